@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.recommendation.AlsModel;
+import ru.yandex.practicum.filmorate.storage.recommendation.AlsRecommendationStorage;
+import ru.yandex.practicum.filmorate.storage.recommendation.AlsTrainer;
+import ru.yandex.practicum.filmorate.storage.recommendation.HnswIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Обучение ALS (32 фактора, 10 итераций) на синтетических степенных данных и выдача
+// рекомендаций через HNSW. Время выдачи меряется выборкой, чтобы видеть p99; размер модели
+// и графа и полнота HNSW относительно перебора (recall@20) печатаются по окончании прогона.
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class AlsBenchmark {
+
+    private static final int FILMS = 20000;
+    private static final int FACTORS = 32;
+    private static final int RECALL_SAMPLE = 200;
+
+    @Param({"10000", "50000"})
+    private int users;
+
+    private LikeIndex likeIndex;
+    private Path modelPath;
+    private AlsRecommendationStorage storage;
+    private int[] probeUsers;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        likeIndex = new SyntheticDataset(users, FILMS, users / 500, 11).toLikeIndex();
+        modelPath = Files.createTempFile("als-benchmark", ".bin");
+        // обучение при старте идёт в фоне, поэтому модель готовится заранее и читается из файла
+        new AlsTrainer(FACTORS, 10, 0.1, 40, 42).train(likeIndex).write(modelPath);
+        storage = new AlsRecommendationStorage(likeIndex, FACTORS, 10, 0.1, 40, modelPath, 20, 16, 100, 64, 0);
+        storage.load();
+        probeUsers = new Random(5).ints(1024, 1, users + 1).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void report() throws IOException {
+        storage.shutdown();
+        AlsModel model = AlsModel.read(modelPath);
+        HnswIndex index = HnswIndex.build(model.filmFactors(), FACTORS, 16, 100, 42);
+        Random random = new Random(3);
+        int found = 0;
+        for (int i = 0; i < RECALL_SAMPLE; i++) {
+            float[] vector = model.userVector(model.userId(random.nextInt(model.users())));
+            Set<Integer> exact = IntStream.range(0, model.films()).boxed()
+                    .sorted(Comparator.comparingDouble((Integer node) -> index.dot(vector, node)).reversed())
+                    .limit(20)
+                    .collect(Collectors.toSet());
+            found += (int) Arrays.stream(index.search(vector, 20, 64)).filter(exact::contains).count();
+        }
+        System.out.printf("%nusers=%d: model %.1f MB (file %.1f MB), graph %.1f MB, recall@20 %.3f%n", users,
+                model.sizeBytes() / 1e6, Files.size(modelPath) / 1e6, index.sizeBytes() / 1e6,
+                (double) found / (RECALL_SAMPLE * 20));
+        Files.deleteIfExists(modelPath);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 2)
+    public AlsModel train() {
+        return new AlsTrainer(FACTORS, 10, 0.1, 40, 42).train(likeIndex);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public List<Integer> recommend() {
+        next = (next + 1) & (probeUsers.length - 1);
+        return storage.findRecommendedFilmIds(probeUsers[next]);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.event.FeedCursor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Страница ленты по курсору должна стоить одинаково при любой длине истории пользователя,
+// полная лента (старый путь) растёт линейно.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedBenchmark {
+
+    private static final int USER_ID = 1;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000", "10000", "100000"})
+    private int historySize;
+
+    private JdbcTemplate jdbcTemplate;
+    private EventDbStorage eventStorage;
+    private FeedCursor middle;
+    private FeedCursor tail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:feed-" + historySize + ";DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        eventStorage = new EventDbStorage(jdbcTemplate, event -> {
+        });
+
+        jdbcTemplate.update("INSERT INTO users (id, email, login, name, birthday) " +
+                "VALUES (?, 'bench@mail.ru', 'bench', 'bench', DATE '1990-01-01')", USER_ID);
+        // соседний пользователь с той же историей, чтобы индекс не покрывал всю таблицу
+        jdbcTemplate.update("INSERT INTO users (id, email, login, name, birthday) " +
+                "VALUES (?, 'other@mail.ru', 'other', 'other', DATE '1990-01-01')", USER_ID + 1);
+        List<Object[]> rows = new ArrayList<>(historySize * 2);
+        for (int i = 0; i < historySize; i++) {
+            rows.add(new Object[]{USER_ID, i, 1_000_000L + i});
+            rows.add(new Object[]{USER_ID + 1, i, 1_000_000L + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO events (user_id, entity_id, event_type, operation, timestamp) " +
+                "VALUES (?, ?, 'LIKE', 'ADD', ?)", rows);
+
+        middle = cursorAt(historySize / 2);
+        tail = cursorAt(historySize - PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<Event> firstPage() {
+        return eventStorage.getUserFeed(USER_ID, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Event> middlePage() {
+        return eventStorage.getUserFeed(USER_ID, middle, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Event> lastPage() {
+        return eventStorage.getUserFeed(USER_ID, tail, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Event> fullHistory() {
+        return eventStorage.getUserFeed(USER_ID);
+    }
+
+    private FeedCursor cursorAt(int offset) {
+        Event event = jdbcTemplate.queryForObject("SELECT event_id, timestamp FROM events WHERE user_id = ? " +
+                        "ORDER BY timestamp, event_id OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY",
+                (rs, rowNum) -> new Event(rs.getInt("event_id"), USER_ID, 0, null, null, rs.getLong("timestamp")),
+                USER_ID, offset);
+        return FeedCursor.after(event);
+    }
+}
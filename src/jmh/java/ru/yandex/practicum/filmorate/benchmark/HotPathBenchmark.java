@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationDbStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Горячие пути хранилищ и сервисов на полном контексте приложения поверх синтетической базы:
+// likes — число лайков (10k..10M; 10M требует -Xmx порядка 8g), пользователи, фильмы, дружба
+// и отзывы масштабируются вместе с ним. Контекст поднимается после заполнения базы, поэтому
+// индексы в памяти строятся так же, как при старте приложения на готовых данных.
+// Запуск: mvn -Pjmh -DskipTests verify -Djmh.include=HotPathBenchmark -Djmh.result=bench/<коммит>.json
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HotPathBenchmark {
+
+    private static final int PROBES = 1024;
+    private static final String[] SEARCH_QUERIES = {"film 1", "ilm 42", "director 7", "m 99"};
+
+    @Param({"10000", "100000", "1000000"})
+    private int likes;
+
+    private JdbcTemplate jdbcTemplate;
+    private ConfigurableApplicationContext context;
+    private FilmStorage filmStorage;
+    private FilmService filmService;
+    private UserService userService;
+    private RecommendationDbStorage recommendationStorage;
+    private int[] probeFilms;
+    private int[] probeUsers;
+    private int[] probeFriends;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String name = "hot-path-" + likes;
+        SyntheticDataset dataset = SyntheticDataset.ofLikes(likes, 17);
+        jdbcTemplate = SyntheticDatabase.create(name, dataset);
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                // аргументами командной строки, чтобы перекрыть application.properties (там schema.sql при старте)
+                .run("--spring.datasource.url=" + SyntheticDatabase.url(name),
+                        "--spring.datasource.username=" + SyntheticDatabase.USER,
+                        "--spring.datasource.password=" + SyntheticDatabase.PASSWORD,
+                        "--spring.sql.init.mode=never",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        // фоновые пересчёты не должны попадать в замеры
+                        "--filmorate.like-count.reconcile-interval-ms=3600000",
+                        "--filmorate.like-count.fold-interval-ms=3600000",
+                        "--filmorate.recommendations.als.train-interval-ms=3600000",
+                        "--filmorate.recommendations.materialized.refresh-interval-ms=3600000",
+                        "--filmorate.reviews.useful-buffer.flush-interval-ms=3600000",
+                        "--filmorate.reviews.useful-reconcile-interval-ms=3600000",
+                        "--filmorate.similar-films.rebuild-interval-ms=3600000",
+                        "--filmorate.similar-films.refresh-interval-ms=3600000",
+                        "--filmorate.metrics.log-interval-ms=3600000");
+        filmStorage = context.getBean(FilmStorage.class);
+        filmService = context.getBean(FilmService.class);
+        userService = context.getBean(UserService.class);
+        recommendationStorage = new RecommendationDbStorage(jdbcTemplate);
+
+        Random random = new Random(17);
+        probeFilms = random.ints(PROBES, 1, dataset.films() + 1).toArray();
+        probeUsers = random.ints(PROBES, 1, dataset.users() + 1).toArray();
+        // у каждого пользователя не меньше двух друзей, общие находятся у большинства пар
+        probeFriends = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeFriends[i] = jdbcTemplate.queryForObject("SELECT friend_id FROM user_friends WHERE user_id = ? " +
+                    "ORDER BY friend_id LIMIT 1", Integer.class, probeUsers[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public Film findById() {
+        return filmStorage.findById(probeFilms[advance()]);
+    }
+
+    @Benchmark
+    public List<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    @Benchmark
+    public List<Film> search() {
+        return filmStorage.search(SEARCH_QUERIES[advance() & (SEARCH_QUERIES.length - 1)], "title,director", 0, 20);
+    }
+
+    @Benchmark
+    public List<Film> mostPopular() {
+        return filmService.getMostPopularFilms(10, null, null);
+    }
+
+    @Benchmark
+    public List<Film> mostPopularByGenreAndYear() {
+        int film = probeFilms[advance()];
+        return filmService.getMostPopularFilms(10, 1 + film % 6, 1950 + film % 70);
+    }
+
+    @Benchmark
+    public List<Film> commonFilms() {
+        int i = advance();
+        return filmService.getCommonFilms(probeUsers[i], probeFriends[i]);
+    }
+
+    @Benchmark
+    public List<User> commonFriends() {
+        int i = advance();
+        return userService.getCommonFriends(probeUsers[i], probeFriends[i]);
+    }
+
+    @Benchmark
+    public List<Integer> sqlRecommendations() {
+        return recommendationStorage.findRecommendedFilmIds(probeUsers[advance()]);
+    }
+
+    private int advance() {
+        next = (next + 1) & (PROBES - 1);
+        return next;
+    }
+}
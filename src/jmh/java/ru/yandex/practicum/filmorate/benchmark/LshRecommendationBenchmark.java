@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.recommendation.BitsetRecommendationStorage;
+import ru.yandex.practicum.filmorate.storage.recommendation.LshRecommendationStorage;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Точный поиск 20 соседей по Жаккару (BitsetRecommendationStorage) против MinHash/LSH
+// на синтетических степенных данных. Полнота LSH относительно точного поиска (recall@20)
+// печатается по окончании прогона.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LshRecommendationBenchmark {
+
+    private static final int FILMS = 20000;
+    private static final int NEIGHBOURS = 20;
+    private static final int RECALL_SAMPLE = 500;
+
+    @Param({"10000", "100000"})
+    private int users;
+
+    @Param({"32x2", "64x3", "16x4"})
+    private String lsh;
+
+    private LikeIndex likeIndex;
+    private BitsetRecommendationStorage exact;
+    private LshRecommendationStorage approximate;
+    private int[] probeUsers;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        likeIndex = new SyntheticDataset(users, FILMS, users / 500, 11).toLikeIndex();
+        exact = new BitsetRecommendationStorage(likeIndex, NEIGHBOURS, "jaccard");
+        String[] shape = lsh.split("x");
+        approximate = new LshRecommendationStorage(likeIndex, Integer.parseInt(shape[0]),
+                Integer.parseInt(shape[1]), NEIGHBOURS, "jaccard");
+        approximate.init();
+        probeUsers = new Random(5).ints(1024, 1, users + 1).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void recall() {
+        Random random = new Random(3);
+        int found = 0;
+        int total = 0;
+        for (int i = 0; i < RECALL_SAMPLE; i++) {
+            int user = 1 + random.nextInt(users);
+            Set<Integer> expected = new HashSet<>(exact.findNeighbourIds(user));
+            total += expected.size();
+            for (int id : approximate.findNeighbourIds(user)) {
+                if (expected.contains(id)) {
+                    found++;
+                }
+            }
+        }
+        System.out.printf("%nrecall@%d users=%d lsh=%s: %.3f%n", NEIGHBOURS, users, lsh,
+                total == 0 ? 1.0 : (double) found / total);
+    }
+
+    @Benchmark
+    public List<Integer> exact() {
+        return exact.findNeighbourIds(nextUser());
+    }
+
+    @Benchmark
+    public List<Integer> lsh() {
+        return approximate.findNeighbourIds(nextUser());
+    }
+
+    private int nextUser() {
+        next = (next + 1) & (probeUsers.length - 1);
+        return probeUsers[next];
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.recommendation.BitsetRecommendationStorage;
+import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationDbStorage;
+import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// SQL-рекомендации (самосоединение film_likes) против битовых множеств в памяти:
+// один ближайший сосед (тот же результат, что у SQL) и 20 соседей по Жаккару.
+// Лайки распределены неравномерно: небольшая доля фильмов собирает большую часть лайков.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecommendationBenchmark {
+
+    private static final int FILMS = 2000;
+    private static final int LIKES_PER_USER = 40;
+
+    @Param({"1000", "10000"})
+    private int users;
+
+    private JdbcTemplate jdbcTemplate;
+    private RecommendationStorage sql;
+    private RecommendationStorage bitset;
+    private RecommendationStorage bitsetKnn;
+    private int[] probeUsers;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:recommendations-" + users + ";DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        List<Object[]> userRows = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            userRows.add(new Object[]{i, "u" + i + "@mail.ru", "u" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, email, login, birthday) VALUES (?, ?, ?, DATE '1990-01-01')",
+                userRows);
+        List<Object[]> filmRows = new ArrayList<>(FILMS);
+        for (int i = 1; i <= FILMS; i++) {
+            filmRows.add(new Object[]{i, "Film " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO films (id, name, release_date, duration) " +
+                "VALUES (?, ?, DATE '2000-01-01', 100)", filmRows);
+
+        Random random = new Random(7);
+        List<Object[]> likes = new ArrayList<>(users * LIKES_PER_USER);
+        for (int user = 1; user <= users; user++) {
+            Set<Integer> liked = new HashSet<>();
+            while (liked.size() < LIKES_PER_USER) {
+                // квадрат равномерного числа смещает выбор к фильмам с малыми id
+                double skew = random.nextDouble();
+                liked.add(1 + (int) (skew * skew * FILMS));
+            }
+            for (int film : liked) {
+                likes.add(new Object[]{film, user});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", likes);
+
+        LikeIndex likeIndex = new LikeIndex(jdbcTemplate);
+        likeIndex.rebuild();
+        sql = new RecommendationDbStorage(jdbcTemplate);
+        bitset = new BitsetRecommendationStorage(likeIndex, 1, "overlap");
+        bitsetKnn = new BitsetRecommendationStorage(likeIndex, 20, "jaccard");
+
+        probeUsers = random.ints(1024, 1, users + 1).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<Integer> sql() {
+        return sql.findRecommendedFilmIds(nextUser());
+    }
+
+    @Benchmark
+    public List<Integer> bitset() {
+        return bitset.findRecommendedFilmIds(nextUser());
+    }
+
+    @Benchmark
+    public List<Integer> bitsetKnn() {
+        return bitsetKnn.findRecommendedFilmIds(nextUser());
+    }
+
+    private int nextUser() {
+        next = (next + 1) & (probeUsers.length - 1);
+        return probeUsers[next];
+    }
+}
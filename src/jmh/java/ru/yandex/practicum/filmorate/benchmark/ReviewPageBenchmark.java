@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.storage.review.FilmReviewStats;
+import ru.yandex.practicum.filmorate.storage.review.ReviewCursor;
+import ru.yandex.practicum.filmorate.storage.review.ReviewDbStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewUsefulBuffer;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.ValidationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Страница отзывов фильма по курсору должна стоить одинаково при любом числе отзывов и любой
+// глубине, постраничный OFFSET (то, что оставалось клиентам раньше) растёт с глубиной.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewPageBenchmark {
+
+    private static final int FILM_ID = 1;
+    private static final int PAGE_SIZE = 50;
+    private static final int AUTHORS = 100;
+
+    @Param({"1000", "10000", "100000"})
+    private int reviewCount;
+
+    private JdbcTemplate jdbcTemplate;
+    private ReviewDbStorage reviewStorage;
+    private ReviewCursor middle;
+    private ReviewCursor tail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:reviews-" + reviewCount + ";DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        List<Object[]> users = new ArrayList<>(AUTHORS);
+        for (int i = 1; i <= AUTHORS; i++) {
+            users.add(new Object[]{i, "u" + i + "@mail.ru", "u" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, email, login, name, birthday) " +
+                "VALUES (?, ?, ?, 'bench', DATE '1990-01-01')", users);
+        // соседний фильм с тем же числом отзывов, чтобы индекс не покрывал всю таблицу
+        for (int filmId = FILM_ID; filmId <= FILM_ID + 1; filmId++) {
+            jdbcTemplate.update("INSERT INTO films (id, name, release_date, duration) " +
+                    "VALUES (?, 'bench', DATE '2000-01-01', 100)", filmId);
+        }
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(reviewCount * 2);
+        for (int i = 0; i < reviewCount; i++) {
+            for (int filmId = FILM_ID; filmId <= FILM_ID + 1; filmId++) {
+                rows.add(new Object[]{1 + random.nextInt(AUTHORS), filmId, random.nextInt(201) - 100});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO reviews (content, is_positive, user_id, film_id, useful) " +
+                "VALUES ('bench', true, ?, ?, ?)", rows);
+
+        FilmReviewStats reviewStats = new FilmReviewStats(jdbcTemplate);
+        EntityIdRegistry idRegistry = new EntityIdRegistry(jdbcTemplate, false);
+        idRegistry.rebuild();
+        ReviewUsefulBuffer usefulBuffer = new ReviewUsefulBuffer(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), reviewStats, false, 50);
+        reviewStorage = new ReviewDbStorage(jdbcTemplate, new ValidationUtils(jdbcTemplate, idRegistry),
+                idRegistry, usefulBuffer, reviewStats);
+
+        middle = cursorAt(reviewCount / 2);
+        tail = cursorAt(reviewCount - PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<Review> firstPage() {
+        return reviewStorage.findByFilmId(FILM_ID, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Review> middlePage() {
+        return reviewStorage.findByFilmId(FILM_ID, middle, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Review> lastPage() {
+        return reviewStorage.findByFilmId(FILM_ID, tail, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Integer> offsetMiddlePage() {
+        return jdbcTemplate.queryForList("SELECT id FROM reviews WHERE film_id = ? " +
+                "ORDER BY useful DESC, id OFFSET ? ROWS FETCH NEXT ? ROWS ONLY", Integer.class,
+                FILM_ID, reviewCount / 2, PAGE_SIZE);
+    }
+
+    private ReviewCursor cursorAt(int offset) {
+        return jdbcTemplate.queryForObject("SELECT id, useful FROM reviews WHERE film_id = ? " +
+                        "ORDER BY useful DESC, id OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY",
+                (rs, rowNum) -> new ReviewCursor(rs.getInt("useful"), rs.getInt("id")), FILM_ID, offset);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.film.SimilarFilmIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Полная перестройка индекса похожих фильмов (top-50 на фильм) и пересчёт строк после лайка
+// активного пользователя на синтетических степенных данных.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class SimilarFilmBenchmark {
+
+    private static final int FILMS = 20000;
+
+    @Param({"10000", "100000"})
+    private int users;
+
+    private LikeIndex likeIndex;
+    private SimilarFilmIndex index;
+    private int activeUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        likeIndex = new SyntheticDataset(users, FILMS, users / 500, 11).toLikeIndex();
+        index = new SimilarFilmIndex(likeIndex, 50, Integer.MAX_VALUE, 200, 0);
+        index.init();
+        activeUser = likeIndex.read(() -> {
+            int best = 1;
+            for (int user = 1; user <= users; user++) {
+                if (likeIndex.filmsOf(user).getCardinality() > likeIndex.filmsOf(best).getCardinality()) {
+                    best = user;
+                }
+            }
+            return best;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.shutdown();
+    }
+
+    @Benchmark
+    public void rebuild() {
+        index.rebuild();
+    }
+
+    @Benchmark
+    public List<Integer> likeAndRefresh() {
+        likeIndex.onLikeAdded(FILMS, activeUser);
+        likeIndex.onLikeRemoved(FILMS, activeUser);
+        index.refresh();
+        return index.similar(FILMS, 10);
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.storage.review.FilmReviewStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Заполняет H2 в памяти набором SyntheticDataset: схема и справочники приложения, фильмы
+// с рейтингом, жанрами и режиссёрами, пользователи, лайки (с like_count), дружба и отзывы
+// (со сводкой film_review_stats). База живёт до SHUTDOWN, поэтому к ней можно подключить
+// контекст приложения по тому же URL.
+public final class SyntheticDatabase {
+
+    public static final String USER = "sa";
+    public static final String PASSWORD = "password";
+
+    private static final int BATCH_SIZE = 10_000;
+    private static final int MPAA_RATINGS = 5;
+    private static final int GENRES = 6;
+    private static final int DIRECTORS = 200;
+
+    private SyntheticDatabase() {
+    }
+
+    public static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+    }
+
+    public static JdbcTemplate create(String name, SyntheticDataset dataset) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url(name));
+        dataSource.setUser(USER);
+        dataSource.setPassword(PASSWORD);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Random random = new Random(dataset.films());
+
+        try (Batch users = new Batch(jdbcTemplate, "INSERT INTO users (id, email, login, name, birthday) " +
+                "VALUES (?, ?, ?, ?, DATE '1990-01-01')")) {
+            for (int i = 1; i <= dataset.users(); i++) {
+                users.add(i, "u" + i + "@mail.ru", "u" + i, "User " + i);
+            }
+        }
+        try (Batch directors = new Batch(jdbcTemplate, "INSERT INTO directors (id, name) VALUES (?, ?)")) {
+            for (int i = 1; i <= DIRECTORS; i++) {
+                directors.add(i, "Director " + i);
+            }
+        }
+        try (Batch films = new Batch(jdbcTemplate, "INSERT INTO films (id, name, description, release_date, " +
+                "duration, mpaa_rating_id) VALUES (?, ?, 'bench', DATEADD(DAY, ?, DATE '1950-01-01'), 100, ?)")) {
+            for (int i = 1; i <= dataset.films(); i++) {
+                films.add(i, "Film " + i, random.nextInt(365 * 70), 1 + random.nextInt(MPAA_RATINGS));
+            }
+        }
+        try (Batch genres = new Batch(jdbcTemplate, "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)");
+             Batch directors = new Batch(jdbcTemplate,
+                     "INSERT INTO film_director (film_id, director_id) VALUES (?, ?)")) {
+            for (int i = 1; i <= dataset.films(); i++) {
+                int genre = 1 + random.nextInt(GENRES);
+                genres.add(i, genre);
+                if (random.nextBoolean()) {
+                    genres.add(i, 1 + genre % GENRES);
+                }
+                directors.add(i, 1 + random.nextInt(DIRECTORS));
+            }
+        }
+
+        int[] likeCounts = new int[dataset.films() + 1];
+        try (Batch likes = new Batch(jdbcTemplate, "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)")) {
+            dataset.generate((filmId, userId) -> {
+                likes.add(filmId, userId);
+                likeCounts[filmId]++;
+            });
+        }
+        try (Batch counts = new Batch(jdbcTemplate, "UPDATE films SET like_count = ? WHERE id = ?")) {
+            for (int i = 1; i <= dataset.films(); i++) {
+                if (likeCounts[i] > 0) {
+                    counts.add(likeCounts[i], i);
+                }
+            }
+        }
+        try (Batch friends = new Batch(jdbcTemplate,
+                "INSERT INTO user_friends (user_id, friend_id, status) VALUES (?, ?, ?)")) {
+            dataset.generateFriendships((userId, friendId, confirmed) ->
+                    friends.add(userId, friendId, confirmed ? "CONFIRMED" : "UNCONFIRMED"));
+        }
+        try (Batch reviews = new Batch(jdbcTemplate, "INSERT INTO reviews (content, is_positive, user_id, " +
+                "film_id, useful) VALUES ('bench', ?, ?, ?, ?)")) {
+            dataset.generateReviews((filmId, userId, positive, useful) ->
+                    reviews.add(positive, userId, filmId, useful));
+        }
+        new FilmReviewStats(jdbcTemplate).reconcile();
+        return jdbcTemplate;
+    }
+
+    // Копит строки и отправляет их пачками по BATCH_SIZE, чтобы не держать в памяти миллионы массивов
+    private static final class Batch implements AutoCloseable {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+
+        Batch(JdbcTemplate jdbcTemplate, String sql) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.sql = sql;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() == BATCH_SIZE) {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Синтетические лайки со степенными распределениями: популярность фильмов — закон Ципфа,
+// активность пользователей — Парето (большинство ставит несколько лайков, немногие — сотни).
+// Пользователи разбиты на сообщества со своими любимыми фильмами, иначе похожих соседей
+// почти нет и поиск ближайших теряет смысл. Дружба и отзывы тоже степенные: число друзей — Парето,
+// друзей выбирают по Ципфу среди всех пользователей (у «знаменитостей» тысячи подписчиков), отзывы
+// чаще пишут к популярным фильмам.
+public final class SyntheticDataset {
+
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final double PARETO_ALPHA = 1.5;
+    private static final int MIN_LIKES = 5;
+    private static final int MAX_LIKES = 500;
+    private static final int COMMUNITY_FILMS = 200;
+    private static final double COMMUNITY_SHARE = 0.7;
+    // среднее число лайков пользователя при MIN_LIKES и PARETO_ALPHA с учётом обрезки по MAX_LIKES
+    private static final int MEAN_LIKES = 13;
+    private static final int MIN_FRIENDS = 2;
+    private static final int MAX_FRIENDS = 1000;
+    private static final double CONFIRMED_SHARE = 0.5;
+    private static final int REVIEWS_PER_USERS = 2;
+
+    private final int users;
+    private final int films;
+    private final int communities;
+    private final long seed;
+
+    public SyntheticDataset(int users, int films, int communities, long seed) {
+        this.users = users;
+        this.films = films;
+        this.communities = communities;
+        this.seed = seed;
+    }
+
+    // Набор примерно из likes лайков: на фильм приходится в среднем 50 лайков, на сообщество — 500 пользователей
+    public static SyntheticDataset ofLikes(int likes, long seed) {
+        int users = Math.max(100, likes / MEAN_LIKES);
+        return new SyntheticDataset(users, Math.max(2 * COMMUNITY_FILMS, likes / 50), Math.max(1, users / 500), seed);
+    }
+
+    public int users() {
+        return users;
+    }
+
+    public int films() {
+        return films;
+    }
+
+    public interface LikeSink {
+        void like(int filmId, int userId);
+    }
+
+    public interface FriendSink {
+        void friend(int userId, int friendId, boolean confirmed);
+    }
+
+    public interface ReviewSink {
+        void review(int filmId, int userId, boolean positive, int useful);
+    }
+
+    // Пользователи 1..users, фильмы 1..films
+    public void generate(LikeSink sink) {
+        Random random = new Random(seed);
+        double[] global = zipfCdf(films);
+        double[] local = zipfCdf(COMMUNITY_FILMS);
+        int[][] communityFilms = new int[communities][COMMUNITY_FILMS];
+        for (int[] community : communityFilms) {
+            for (int i = 0; i < COMMUNITY_FILMS; i++) {
+                community[i] = 1 + random.nextInt(films);
+            }
+        }
+        boolean[] liked = new boolean[films + 1];
+        int[] chosen = new int[MAX_LIKES];
+        for (int user = 1; user <= users; user++) {
+            int[] community = communityFilms[random.nextInt(communities)];
+            int count = paretoCount(MIN_LIKES, MAX_LIKES, random);
+            count = Math.min(count, films / 2);
+            int size = 0;
+            while (size < count) {
+                int film = random.nextDouble() < COMMUNITY_SHARE
+                        ? community[sample(local, random)]
+                        : 1 + sample(global, random);
+                if (!liked[film]) {
+                    liked[film] = true;
+                    chosen[size++] = film;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                sink.like(chosen[i], user);
+                liked[chosen[i]] = false;
+            }
+        }
+    }
+
+    public void generateFriendships(FriendSink sink) {
+        Random random = new Random(seed + 1);
+        double[] popularity = zipfCdf(users);
+        // номера пользователей в порядке популярности, чтобы знаменитостями не были первые id
+        int[] byRank = shuffledIds(users, random);
+        boolean[] linked = new boolean[users + 1];
+        int[] chosen = new int[MAX_FRIENDS];
+        for (int user = 1; user <= users; user++) {
+            int count = Math.min(users - 1, paretoCount(MIN_FRIENDS, MAX_FRIENDS, random));
+            int size = 0;
+            while (size < count) {
+                int friend = byRank[sample(popularity, random)];
+                if (friend != user && !linked[friend]) {
+                    linked[friend] = true;
+                    chosen[size++] = friend;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                sink.friend(user, chosen[i], random.nextDouble() < CONFIRMED_SHARE);
+                linked[chosen[i]] = false;
+            }
+        }
+    }
+
+    // Один отзыв на REVIEWS_PER_USERS пользователей; полезность — степенная с обоими знаками
+    public void generateReviews(ReviewSink sink) {
+        Random random = new Random(seed + 2);
+        double[] global = zipfCdf(films);
+        for (int i = 0; i < users / REVIEWS_PER_USERS; i++) {
+            int useful = paretoCount(1, 10_000, random) - 1;
+            sink.review(1 + sample(global, random), 1 + random.nextInt(users), random.nextBoolean(),
+                    random.nextBoolean() ? useful : -useful);
+        }
+    }
+
+    public LikeIndex toLikeIndex() {
+        LikeIndex likeIndex = new LikeIndex(null);
+        generate(likeIndex::onLikeAdded);
+        return likeIndex;
+    }
+
+    private static int paretoCount(int min, int max, Random random) {
+        return (int) Math.min(max, min / Math.pow(1 - random.nextDouble(), 1 / PARETO_ALPHA));
+    }
+
+    private static int[] shuffledIds(int n, Random random) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = tmp;
+        }
+        return ids;
+    }
+
+    private static double[] zipfCdf(int n) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+}
@@ -1,16 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ReviewSummary;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
-import ru.yandex.practicum.filmorate.storage.mpaa.MpaaStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.util.List;
 
@@ -21,9 +24,9 @@ import java.util.List;
 public class FilmController {
     private static final Logger log = LoggerFactory.getLogger(FilmController.class);
     private final FilmStorage filmStorage;
-    private final GenreStorage genreStorage;
-    private final MpaaStorage mpaaStorage;
+    private final ReferenceDataCache referenceData;
     private final FilmService filmService;
+    private final ReviewService reviewService;
 
     @PostMapping
     public Film createFilm(@Valid @RequestBody Film film) {
@@ -74,6 +77,19 @@ public class FilmController {
         return filmService.getMostPopularFilms(count, genreId, year);
     }
 
+    @GetMapping("/{id}/reviews/summary")
+    public ReviewSummary getReviewSummary(@PathVariable int id) {
+        return reviewService.getSummary(id);
+    }
+
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(
+            @PathVariable int id,
+            @RequestParam(defaultValue = "10") @Positive int count) {
+        log.info("Запрос фильмов, похожих на фильм {}: count={}", id, count);
+        return filmService.getSimilarFilms(id, count);
+    }
+
     @GetMapping("/director/{directorId}")
     public List<Film> getFilmsByDirector(
             @PathVariable int directorId,
@@ -92,11 +108,11 @@ public class FilmController {
 
     private void validateMpaAndGenres(Film film) {
         if (film.getMpaaRatingId() != null) {
-            mpaaStorage.findById(film.getMpaaRatingId());
+            referenceData.getMpa(film.getMpaaRatingId());
         }
         if (film.getGenreIds() != null) {
             for (Integer genreId : film.getGenreIds()) {
-                genreStorage.findById(genreId);
+                referenceData.getGenre(genreId);
             }
         }
     }
@@ -110,8 +126,10 @@ public class FilmController {
     @GetMapping("/search")
     public List<Film> searchFilms(
             @RequestParam String query,
-            @RequestParam(defaultValue = "title") String by) {
-        log.info("Поиск: query='{}', by='{}'", query, by);
-        return filmService.searchFilms(query, by);
+            @RequestParam(defaultValue = "title") String by,
+            @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+            @RequestParam(required = false) @Positive Integer count) {
+        log.info("Поиск: query='{}', by='{}', from={}, count={}", query, by, from, count);
+        return filmService.searchFilms(query, by, from, count);
     }
 }
\ No newline at end of file
@@ -2,11 +2,14 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.dto.GenreDto;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -15,15 +18,18 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GenreController {
 
+    // Справочник жанров меняется только вместе со схемой, клиенты могут долго хранить ответ
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
     private final GenreStorage genreStorage;
 
     @GetMapping
-    public List<GenreDto> getAllGenres() {
-        return genreStorage.findAll();
+    public ResponseEntity<List<GenreDto>> getAllGenres() {
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(genreStorage.findAll());
     }
 
     @GetMapping("/{id}")
-    public GenreDto getGenreById(@PathVariable @Positive int id) {
-        return genreStorage.findById(id);
+    public ResponseEntity<GenreDto> getGenreById(@PathVariable @Positive int id) {
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(genreStorage.findById(id));
     }
 }
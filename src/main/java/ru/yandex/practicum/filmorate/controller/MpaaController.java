@@ -2,11 +2,14 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.dto.MpaaDto;
 import ru.yandex.practicum.filmorate.storage.mpaa.MpaaStorage;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -15,15 +18,18 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MpaaController {
 
+    // Справочник рейтингов меняется только вместе со схемой, клиенты могут долго хранить ответ
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
     private final MpaaStorage mpaaStorage;
 
     @GetMapping
-    public List<MpaaDto> getAllMpaa() {
-        return mpaaStorage.findAll();
+    public ResponseEntity<List<MpaaDto>> getAllMpaa() {
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(mpaaStorage.findAll());
     }
 
     @GetMapping("/{id}")
-    public MpaaDto getMpaaById(@PathVariable @Positive int id) {
-        return mpaaStorage.findById(id);
+    public ResponseEntity<MpaaDto> getMpaaById(@PathVariable @Positive int id) {
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(mpaaStorage.findById(id));
     }
 }
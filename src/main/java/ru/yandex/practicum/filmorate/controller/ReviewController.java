@@ -5,10 +5,12 @@ import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.storage.review.ReviewCursor;
 
 import java.util.List;
 
@@ -19,6 +21,7 @@ import java.util.List;
 public class ReviewController {
 
     private static final Logger log = LoggerFactory.getLogger(ReviewController.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final ReviewService reviewService;
 
     @PostMapping
@@ -51,10 +54,18 @@ public class ReviewController {
     }
 
     @GetMapping
-    public List<Review> getReviews(
+    public ResponseEntity<List<Review>> getReviews(
         @RequestParam(required = false) Integer filmId,
-        @RequestParam(required = false) Integer count) {
-        return reviewService.getReviews(filmId, count);
+        @RequestParam(required = false) Integer count,
+        @RequestParam(required = false) String cursor) {
+        int pageSize = reviewService.pageSize(count);
+        ReviewCursor after = cursor != null ? ReviewCursor.decode(cursor) : null;
+        List<Review> reviews = reviewService.getReviews(filmId, after, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!reviews.isEmpty() && reviews.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, ReviewCursor.after(reviews.getLast()).encode());
+        }
+        return response.body(reviews);
     }
 
     @PutMapping("/{id}/like/{userId}")
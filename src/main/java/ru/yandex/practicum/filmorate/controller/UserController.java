@@ -1,16 +1,23 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.event.Event;
 import ru.yandex.practicum.filmorate.service.EventService;
+import ru.yandex.practicum.filmorate.service.FeedStreamService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.event.FeedCursor;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.List;
@@ -21,9 +28,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
     private static final Logger log = LoggerFactory.getLogger(UserController.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final UserStorage userStorage;
     private final UserService userService;
     private final EventService eventService;
+    private final FeedStreamService feedStreamService;
 
     @PostMapping
     public User createUser(@Valid @RequestBody User user) {
@@ -73,6 +82,22 @@ public class UserController {
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id,
+                                           @RequestParam(defaultValue = "10") @Positive int count) {
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    @GetMapping(path = "/{id}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserFeed(@PathVariable int id,
+                                     @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("Подписка на живую ленту пользователя с ID: {}", id);
+        if (!userStorage.exists(id)) {
+            throw new NotFoundException("Пользователь с ID " + id + " не найден");
+        }
+        return feedStreamService.subscribe(id, lastEventId);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteById(@PathVariable Integer id) {
         log.info("Удаление пользователя с ID: {}", id);
@@ -80,12 +105,28 @@ public class UserController {
     }
 
     @GetMapping("/{id}/feed")
-    public List<Event> getUserFeed(@PathVariable int id) {
+    public ResponseEntity<List<Event>> getUserFeed(@PathVariable int id,
+                                                   @RequestParam(required = false) @Positive Integer limit,
+                                                   @RequestParam(required = false) String cursor) {
         log.info("Список новостей о пользователе с ID: {}", id);
-        userStorage.findById(id);
-        List<Event> events = eventService.getUserFeed(id);
+        if (!userStorage.exists(id)) {
+            throw new NotFoundException("Пользователь с ID " + id + " не найден");
+        }
+        if (limit == null && cursor == null) {
+            // без параметров лента отдаётся целиком, как раньше
+            List<Event> events = eventService.getUserFeed(id);
+            log.info("Возвращаем {} событий для пользователя {}", events.size(), id);
+            return ResponseEntity.ok(events);
+        }
+        int pageSize = limit != null ? limit : Integer.MAX_VALUE;
+        FeedCursor after = cursor != null ? FeedCursor.decode(cursor) : null;
+        List<Event> events = eventService.getUserFeed(id, after, pageSize);
         log.info("Возвращаем {} событий для пользователя {}", events.size(), id);
-        return events;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!events.isEmpty() && events.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, FeedCursor.after(events.getLast()).encode());
+        }
+        return response.body(events);
     }
 
     @GetMapping("/{id}/recommendations")
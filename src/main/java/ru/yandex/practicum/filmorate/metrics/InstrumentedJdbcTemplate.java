@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+// JdbcTemplate, замеряющий каждый запрос. Переопределены только методы, через которые проходят
+// все остальные (query с PreparedStatementCreator, update с PreparedStatementSetter, batchUpdate
+// с BatchPreparedStatementSetter и их варианты без параметров), поэтому каждый запрос учитывается
+// один раз. Запросы с RowCallbackHandler идут через извлекатель, который считает строки. Текст
+// запроса, из которого QueryMetrics берёт имя, лямбда-создатель PreparedStatement не сообщает: его
+// видит обёртка соединения в момент prepareStatement; обёртка у каждого потока своя и переиспользуется.
+// Бин заменяет JdbcTemplate из автоконфигурации Spring Boot; ошибочные запросы не учитываются.
+@Component
+@ConditionalOnProperty(name = "filmorate.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class InstrumentedJdbcTemplate extends JdbcTemplate {
+
+    private static final ThreadLocal<SqlCapturingCreator> CAPTURING = ThreadLocal.withInitial(SqlCapturingCreator::new);
+
+    private final QueryMetrics metrics;
+
+    public InstrumentedJdbcTemplate(DataSource dataSource, QueryMetrics metrics) {
+        super(dataSource);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) {
+        long start = System.nanoTime();
+        T result = super.query(sql, rse);
+        metrics.recordQuery(sql, System.nanoTime() - start, rows(result));
+        return result;
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+        SqlProvider provider = provider(psc);
+        try {
+            long start = System.nanoTime();
+            T result = super.query((PreparedStatementCreator) provider, pss, rse);
+            metrics.recordQuery(provider.getSql(), System.nanoTime() - start, rows(result));
+            return result;
+        } finally {
+            release(provider);
+        }
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler rch) {
+        query(sql, counting(rch));
+    }
+
+    @Override
+    public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+        query(psc, counting(rch));
+    }
+
+    @Override
+    public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+        query(sql, pss, counting(rch));
+    }
+
+    @Override
+    public void query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+        query(sql, args, argTypes, counting(rch));
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler rch, Object... args) {
+        query(sql, counting(rch), args);
+    }
+
+    @Override
+    public int update(String sql) {
+        long start = System.nanoTime();
+        int updated = super.update(sql);
+        metrics.recordQuery(sql, System.nanoTime() - start, updated);
+        return updated;
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) {
+        SqlProvider provider = provider(psc);
+        try {
+            long start = System.nanoTime();
+            int updated = super.update((PreparedStatementCreator) provider, pss);
+            metrics.recordQuery(provider.getSql(), System.nanoTime() - start, updated);
+            return updated;
+        } finally {
+            release(provider);
+        }
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+        SqlProvider provider = provider(psc);
+        try {
+            long start = System.nanoTime();
+            int updated = super.update((PreparedStatementCreator) provider, generatedKeyHolder);
+            metrics.recordQuery(provider.getSql(), System.nanoTime() - start, updated);
+            return updated;
+        } finally {
+            release(provider);
+        }
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+        long start = System.nanoTime();
+        int[] updated = super.batchUpdate(sql, pss);
+        metrics.recordQuery(sql, System.nanoTime() - start, rows(updated));
+        return updated;
+    }
+
+    @Override
+    public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss,
+                             KeyHolder generatedKeyHolder) {
+        SqlProvider provider = provider(psc);
+        try {
+            long start = System.nanoTime();
+            int[] updated = super.batchUpdate((PreparedStatementCreator) provider, pss, generatedKeyHolder);
+            metrics.recordQuery(provider.getSql(), System.nanoTime() - start, rows(updated));
+            return updated;
+        } finally {
+            release(provider);
+        }
+    }
+
+    // Обёртка потока занята, если запрос выполняется изнутри другого запроса, — тогда своя
+    private static SqlProvider provider(PreparedStatementCreator psc) {
+        if (psc instanceof SqlProvider provider) {
+            return provider;
+        }
+        SqlCapturingCreator capturing = CAPTURING.get();
+        if (capturing.creator != null) {
+            capturing = new SqlCapturingCreator();
+        }
+        capturing.creator = psc;
+        capturing.sql = null;
+        return capturing;
+    }
+
+    private static void release(SqlProvider provider) {
+        if (provider instanceof SqlCapturingCreator capturing) {
+            capturing.creator = null;
+            capturing.connection = null;
+        }
+    }
+
+    // Обрабатывает строки, как JdbcTemplate для RowCallbackHandler, и возвращает их число
+    private static ResultSetExtractor<Long> counting(RowCallbackHandler rch) {
+        return rs -> {
+            long rows = 0;
+            while (rs.next()) {
+                rch.processRow(rs);
+                rows++;
+            }
+            return rows;
+        };
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        if (result instanceof int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        return 0;
+    }
+
+    // Запоминает текст, с которым создатель вызвал prepareStatement у соединения. Прокси соединения
+    // создаётся один раз и передаёт вызовы текущему соединению
+    private static final class SqlCapturingCreator implements PreparedStatementCreator, SqlProvider,
+            InvocationHandler {
+
+        private final Connection proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, this);
+        private PreparedStatementCreator creator;
+        private Connection connection;
+        private String sql;
+
+        @Override
+        public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+            connection = con;
+            return creator.createPreparedStatement(proxy);
+        }
+
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("prepareStatement") && args[0] instanceof String text) {
+                sql = text;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        @Override
+        public String getSql() {
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+// Распределение времени вызовов одного запроса к базе или одного эндпоинта и распределение
+// сопутствующей величины: числа строк для запроса, числа запросов к базе для эндпоинта.
+// Запись идёт в Recorder без блокировок и выделения памяти; накопленные значения переносятся
+// в обычные гистограммы при чтении.
+public final class LatencyStats {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final String name;
+    private final Recorder latencyRecorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder countRecorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    // защищены монитором this
+    private Histogram latencyInterval;
+    private Histogram countInterval;
+    private final Histogram latencyTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram countTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram latencySinceLog = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram countSinceLog = new Histogram(SIGNIFICANT_DIGITS);
+
+    LatencyStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void record(long nanos, long count) {
+        latencyRecorder.recordValue(Math.max(nanos / 1000, 0));
+        countRecorder.recordValue(Math.max(count, 0));
+    }
+
+    // Всё, что записано с запуска приложения
+    synchronized LatencySummary total() {
+        drain();
+        return summary(latencyTotal, countTotal);
+    }
+
+    // Записанное с прошлого вызова; null, если вызовов не было
+    synchronized LatencySummary sinceLastLog() {
+        drain();
+        if (latencySinceLog.getTotalCount() == 0) {
+            return null;
+        }
+        LatencySummary summary = summary(latencySinceLog, countSinceLog);
+        latencySinceLog.reset();
+        countSinceLog.reset();
+        return summary;
+    }
+
+    private void drain() {
+        latencyInterval = latencyRecorder.getIntervalHistogram(latencyInterval);
+        countInterval = countRecorder.getIntervalHistogram(countInterval);
+        latencyTotal.add(latencyInterval);
+        latencySinceLog.add(latencyInterval);
+        countTotal.add(countInterval);
+        countSinceLog.add(countInterval);
+    }
+
+    private LatencySummary summary(Histogram latency, Histogram count) {
+        long calls = latency.getTotalCount();
+        return new LatencySummary(name, calls,
+                latency.getValueAtPercentile(50), latency.getValueAtPercentile(90),
+                latency.getValueAtPercentile(99), latency.getMaxValue(),
+                Math.round(latency.getMean() * calls / 1000), count.getMean(), count.getMaxValue());
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+// Времена в микросекундах, суммарное — в миллисекундах. meanCount и maxCount — строки на вызов
+// для запроса к базе и запросы к базе на вызов для эндпоинта.
+public record LatencySummary(String name, long calls, long p50Micros, long p90Micros, long p99Micros,
+                             long maxMicros, long totalMillis, double meanCount, long maxCount) {
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Статистика запросов к базе по имени, которое хранилище передаёт комментарием в начале текста
+// («/* FilmDbStorage.findById */ SELECT ...»), и статистика эндпоинтов. Имя не зависит ни от того,
+// через какой вспомогательный метод выполнен запрос, ни от длины списка IN; запросы без комментария
+// учитываются вместе под именем «unnamed». Имя разбирается только при первой встрече текста:
+// дальше статистика находится по самому тексту, а у строковой константы хеш уже посчитан и
+// сравнение сводится к сравнению ссылок.
+@Component
+@RequiredArgsConstructor
+public class QueryMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryMetrics.class);
+    private static final String UNNAMED = "unnamed";
+    // текстов с разной длиной списка IN может быть много: сверх предела имя разбирается каждый раз
+    private static final int MAX_CACHED_SQL = 1024;
+    // запросы к базе, выполненные текущим потоком с начала обработки HTTP-запроса
+    private static final ThreadLocal<int[]> REQUEST_QUERIES = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Value("${filmorate.metrics.log-top:10}")
+    private final int logTop;
+
+    private final Map<String, LatencyStats> queries = new ConcurrentHashMap<>();
+    private final Map<String, LatencyStats> queriesBySql = new ConcurrentHashMap<>();
+    private final Map<Object, LatencyStats> endpoints = new ConcurrentHashMap<>();
+
+    public void recordQuery(String sql, long nanos, long rows) {
+        LatencyStats stats = sql == null ? null : queriesBySql.get(sql);
+        if (stats == null) {
+            stats = queries.computeIfAbsent(queryName(sql), LatencyStats::new);
+            if (sql != null && queriesBySql.size() < MAX_CACHED_SQL) {
+                queriesBySql.put(sql, stats);
+            }
+        }
+        stats.record(nanos, rows);
+        REQUEST_QUERIES.get()[0]++;
+    }
+
+    void startRequest() {
+        REQUEST_QUERIES.get()[0] = 0;
+    }
+
+    void recordRequest(Object endpoint, String httpMethod, String pattern, long nanos) {
+        LatencyStats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            stats = endpoints.computeIfAbsent(endpoint, key -> new LatencyStats(httpMethod + " " + pattern));
+        }
+        stats.record(nanos, REQUEST_QUERIES.get()[0]);
+    }
+
+    // Самые долгие по суммарному времени — первыми
+    public List<LatencySummary> queries() {
+        return totals(queries.values());
+    }
+
+    public List<LatencySummary> endpoints() {
+        return totals(endpoints.values());
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.metrics.log-interval-ms:60000}",
+            fixedDelayString = "${filmorate.metrics.log-interval-ms:60000}")
+    public void logSummary() {
+        logTop("Запросы к базе", queries.values());
+        logTop("Эндпоинты", endpoints.values());
+    }
+
+    private void logTop(String title, Iterable<LatencyStats> stats) {
+        List<LatencySummary> summaries = new ArrayList<>();
+        for (LatencyStats s : stats) {
+            summaries.add(s.sinceLastLog());
+        }
+        List<LatencySummary> top = summaries.stream()
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingLong(LatencySummary::totalMillis).reversed())
+                .limit(logTop)
+                .toList();
+        for (LatencySummary s : top) {
+            log.info("{}: {} — вызовов {}, всего {} мс, p50 {} мкс, p99 {} мкс, макс. {} мкс, в среднем {}",
+                    title, s.name(), s.calls(), s.totalMillis(), s.p50Micros(), s.p99Micros(), s.maxMicros(),
+                    String.format("%.1f", s.meanCount()));
+        }
+    }
+
+    private List<LatencySummary> totals(Iterable<LatencyStats> stats) {
+        List<LatencySummary> summaries = new ArrayList<>();
+        for (LatencyStats s : stats) {
+            summaries.add(s.total());
+        }
+        summaries.sort(Comparator.comparingLong(LatencySummary::totalMillis).reversed());
+        return summaries;
+    }
+
+    // «/* FilmDbStorage.findById */ SELECT ...» -> FilmDbStorage.findById
+    static String queryName(String sql) {
+        if (sql == null || !sql.startsWith("/* ")) {
+            return UNNAMED;
+        }
+        int end = sql.indexOf(" */", 3);
+        return end < 0 ? UNNAMED : sql.substring(3, end);
+    }
+}
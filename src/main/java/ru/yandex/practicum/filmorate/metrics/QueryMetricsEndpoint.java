@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// Распределения времени запросов к базе и эндпоинтов с запуска приложения: /actuator/querymetrics.
+// Отдаётся только на порту management.server.port, который слушает локальный адрес, а не на публичном.
+@Component
+@Endpoint(id = "querymetrics")
+@RequiredArgsConstructor
+public class QueryMetricsEndpoint {
+
+    private final QueryMetrics queryMetrics;
+
+    @ReadOperation
+    public Map<String, List<LatencySummary>> metrics() {
+        return Map.of("queries", queryMetrics.queries(), "endpoints", queryMetrics.endpoints());
+    }
+}
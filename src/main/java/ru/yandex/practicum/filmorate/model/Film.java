@@ -53,6 +53,8 @@ public class Film {
 
     private List<DirectorDto> directors = new ArrayList<>();
 
+    private ReviewSummary reviewSummary;
+
     @JsonSetter("mpa")
     public void setMpaFromJson(MpaaDto mpa) {
         if (mpa != null) {
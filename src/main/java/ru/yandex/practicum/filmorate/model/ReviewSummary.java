@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ReviewSummary {
+    private int filmId;
+    private int positiveCount;
+    private int negativeCount;
+    private int totalUseful;
+    // самый полезный отзыв; null, если отзывов нет
+    private Integer topReviewId;
+}
@@ -5,7 +5,6 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Getter
@@ -27,6 +26,7 @@ public class User {
     @Past(message = "Дата рождения не может быть в будущем")
     private LocalDate birthday;
 
-    private Set<FriendLink> friendLinks = new HashSet<>();
+    // null — связи не переданы и при обновлении не меняются
+    private Set<FriendLink> friendLinks;
 }
 
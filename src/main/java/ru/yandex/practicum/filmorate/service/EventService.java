@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.event.Event;
 import ru.yandex.practicum.filmorate.model.event.Operation;
 import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.event.FeedCursor;
 
 import java.util.List;
 
@@ -19,28 +20,33 @@ public class EventService {
     private final EventStorage eventStorage;
 
     public List<Event> getUserFeed(int userId) {
-        log.info("Получение всех новостей пользователя с ID: {}", userId);
+        log.debug("Получение всех новостей пользователя с ID: {}", userId);
         List<Event> events = eventStorage.getUserFeed(userId);
         return events;
     }
 
+    public List<Event> getUserFeed(int userId, FeedCursor after, int limit) {
+        log.debug("Получение {} новостей пользователя с ID {} после {}", limit, userId, after);
+        return eventStorage.getUserFeed(userId, after, limit);
+    }
+
     public void createLikeEvent(int userId, int entityId, Operation operation) {
-        log.info("Создание события LIKE");
+        log.debug("Создание события LIKE");
         eventStorage.createLikeEvent(userId, entityId, operation);
     }
 
     public void createFriendEvent(int userId, int entityId, Operation operation) {
-        log.info("Создание события FRIEND");
+        log.debug("Создание события FRIEND");
         eventStorage.createFriendEvent(userId, entityId, operation);
     }
 
     public void createReviewEvent(int userId, int entityId, Operation operation) {
-        log.info("Создание события REVIEW");
+        log.debug("Создание события REVIEW");
         eventStorage.createReviewEvent(userId, entityId, operation);
     }
 
     public boolean deleteEventByUserId(int userId) {
-        log.info("Удаление всех новостей пользователя с ID: {}", userId);
+        log.debug("Удаление всех новостей пользователя с ID: {}", userId);
         return eventStorage.deleteEventByUserId(userId);
     }
 }
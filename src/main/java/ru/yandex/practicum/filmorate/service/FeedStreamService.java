@@ -0,0 +1,293 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.event.FeedCursor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Живая лента по SSE. Подключение не держит поток: SseEmitter работает поверх асинхронного
+// запроса, а отправку выполняет пул из threads потоков с очередью на queue-capacity задач.
+// Клиент, на котором запись встала, занимает поток пула не дольше таймаута записи контейнера
+// (server.tomcat.connection-timeout). Если пул занят целиком и отправка не может начаться сразу,
+// подписка снимается; снимается она и тогда, когда клиент не успевает разбирать свою ограниченную
+// очередь или отправка ему висит дольше stall-timeout-ms. Клиент переподключается с Last-Event-ID —
+// пропущенное дочитывается из таблицы events. Пульс рассылает одна задача на весь список подписчиков.
+// id SSE-события — курсор ленты (см. FeedCursor), поэтому Last-Event-ID сразу задаёт позицию.
+@Service
+@RequiredArgsConstructor
+public class FeedStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedStreamService.class);
+    private static final String EVENT_NAME = "feed";
+    private static final int REPLAY_PAGE_SIZE = 500;
+    // события старше момента подписки на столько не могут прийти ещё и живыми
+    // (если только их транзакция не шла дольше), их id для отсева повторов не запоминаются
+    private static final long REPLAY_OVERLAP_MS = 60_000;
+
+    private final EventStorage eventStorage;
+
+    @Value("${filmorate.feed.stream.buffer-size:256}")
+    private final int bufferSize;
+
+    @Value("${filmorate.feed.stream.timeout-ms:1800000}")
+    private final long timeoutMs;
+
+    @Value("${filmorate.feed.stream.stall-timeout-ms:30000}")
+    private final long stallTimeoutMs;
+
+    @Value("${filmorate.feed.stream.threads:8}")
+    private final int threads;
+
+    @Value("${filmorate.feed.stream.queue-capacity:1024}")
+    private final int queueCapacity;
+
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger created = new AtomicInteger();
+        dispatcher = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "feed-stream-" + created.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public SseEmitter subscribe(int userId, String lastEventId) {
+        FeedCursor after = lastEventId != null && !lastEventId.isBlank() ? FeedCursor.decode(lastEventId) : null;
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber = new Subscriber(userId, emitter, after, bufferSize);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        // подписываемся до чтения истории: события, пришедшие во время дочитывания, ждут в очереди
+        subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        log.debug("Подписка на ленту пользователя {} с позиции {}, открыто {}", userId, after,
+                connections.incrementAndGet());
+        if (!submit(() -> replay(subscriber))) {
+            log.debug("Пул отправки ленты занят, подписка пользователя {} не принята", userId);
+            unsubscribe(subscriber);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeedEvent(Event event) {
+        Set<Subscriber> listeners = subscribers.get(event.getUserId());
+        if (listeners == null) {
+            return;
+        }
+        for (Subscriber subscriber : listeners) {
+            if (subscriber.queue.offer(event)) {
+                schedule(subscriber);
+            } else {
+                log.debug("Подписчик ленты пользователя {} не успевает, отключаем", event.getUserId());
+                unsubscribe(subscriber);
+                // complete ждёт монитор emitter, который может держать зависшая отправка, —
+                // поток фиксирующей транзакции на этом не задерживаем
+                submit(subscriber.emitter::complete);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.feed.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (sweeping.compareAndSet(false, true) && !submit(this::sweep)) {
+            sweeping.set(false);
+        }
+    }
+
+    public int connections() {
+        return connections.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(listeners -> listeners.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+        dispatcher.shutdownNow();
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    // Снимает зависших подписчиков и шлёт пульс свободным. Подписчику, которому сейчас идёт отправка,
+    // пульс не нужен: соединение и так не простаивает
+    private void sweep() {
+        try {
+            long now = System.nanoTime();
+            subscribers.values().forEach(listeners -> listeners.forEach(subscriber -> {
+                long sendingSince = subscriber.sendingSince;
+                if (sendingSince != 0 && now - sendingSince > TimeUnit.MILLISECONDS.toNanos(stallTimeoutMs)) {
+                    // emitter не трогаем: его монитор держит зависшая отправка; поток освободится
+                    // по таймауту записи, а новые события этому клиенту больше не копятся
+                    log.debug("Отправка ленты пользователя {} висит дольше {} мс, отключаем", subscriber.userId,
+                            stallTimeoutMs);
+                    unsubscribe(subscriber);
+                    return;
+                }
+                if (subscriber.replaying || !subscriber.draining.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    subscriber.sendingSince = System.nanoTime();
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(subscriber);
+                    return;
+                } finally {
+                    subscriber.sendingSince = 0;
+                    subscriber.draining.set(false);
+                }
+                if (!subscriber.queue.isEmpty()) {
+                    schedule(subscriber);
+                }
+            }));
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private void replay(Subscriber subscriber) {
+        try {
+            if (subscriber.position != null) {
+                List<Event> page;
+                do {
+                    page = eventStorage.getUserFeed(subscriber.userId, subscriber.position, REPLAY_PAGE_SIZE);
+                    for (Event event : page) {
+                        send(subscriber, event);
+                        if (event.getTimestamp() >= subscriber.subscribedAt - REPLAY_OVERLAP_MS) {
+                            subscriber.replayed.add(event.getEventId());
+                        }
+                    }
+                } while (page.size() == REPLAY_PAGE_SIZE);
+            }
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(subscriber);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось дочитать ленту пользователя {}: {}", subscriber.userId, e.getMessage());
+            subscriber.emitter.completeWithError(e);
+            unsubscribe(subscriber);
+            return;
+        } finally {
+            subscriber.sendingSince = 0;
+            subscriber.replaying = false;
+        }
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.replaying && subscriber.draining.compareAndSet(false, true)
+                && !submit(() -> drain(subscriber))) {
+            // отправка сейчас не идёт, поэтому монитор emitter свободен и закрыть его можно сразу
+            log.debug("Пул отправки ленты занят, отключаем подписчика пользователя {}", subscriber.userId);
+            unsubscribe(subscriber);
+            subscriber.emitter.complete();
+            subscriber.draining.set(false);
+        }
+    }
+
+    // false — пул и его очередь заняты, задача не принята
+    private boolean submit(Runnable task) {
+        try {
+            dispatcher.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Event event;
+            while ((event = subscriber.queue.poll()) != null) {
+                // событие могло уже прийти при дочитывании истории. Сравнивать с позицией нельзя:
+                // транзакции фиксируются не в порядке id, и более раннее событие приходит позже
+                if (!subscriber.replayed.remove(event.getEventId())) {
+                    send(subscriber, event);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(subscriber);
+            return;
+        } finally {
+            subscriber.sendingSince = 0;
+            subscriber.draining.set(false);
+        }
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private static void send(Subscriber subscriber, Event event) throws IOException {
+        FeedCursor cursor = FeedCursor.after(event);
+        subscriber.sendingSince = System.nanoTime();
+        subscriber.emitter.send(SseEmitter.event()
+                .id(cursor.encode())
+                .name(EVENT_NAME)
+                .data(event, MediaType.APPLICATION_JSON));
+        subscriber.position = cursor;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Set<Subscriber> listeners = subscribers.get(subscriber.userId);
+        if (listeners != null && listeners.remove(subscriber)) {
+            subscribers.computeIfPresent(subscriber.userId, (id, set) -> set.isEmpty() ? null : set);
+            log.debug("Подписка на ленту пользователя {} закрыта, открыто {}", subscriber.userId,
+                    connections.decrementAndGet());
+        }
+    }
+
+    private static final class Subscriber {
+        private final int userId;
+        private final SseEmitter emitter;
+        private final Queue<Event> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final long subscribedAt = System.currentTimeMillis();
+        // id событий, отправленных при дочитывании истории; пишет replay, затем читает drain
+        private final Set<Integer> replayed = ConcurrentHashMap.newKeySet();
+        // последнее отправленное событие; меняет только поток, держащий draining или выполняющий replay
+        private volatile FeedCursor position;
+        private volatile boolean replaying = true;
+        // System.nanoTime() начала текущей отправки, 0 — отправка не идёт
+        private volatile long sendingSince;
+
+        private Subscriber(int userId, SseEmitter emitter, FeedCursor position, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.position = position;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
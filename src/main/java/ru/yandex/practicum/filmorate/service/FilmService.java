@@ -3,19 +3,22 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.event.Operation;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.SimilarFilmIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
 import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationMaterializer;
+import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationStorage;
+import ru.yandex.practicum.filmorate.validation.ValidationUtils;
 
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -24,16 +27,24 @@ public class FilmService {
     private static final Logger log = LoggerFactory.getLogger(FilmService.class);
 
     private final FilmStorage filmStorage;
-    private final UserStorage userStorage;
+    private final ValidationUtils validationUtils;
     private final DirectorStorage directorStorage;
     private final LikeStorage likeStorage;
     private final EventService eventService;
+    private final PopularityIndex popularityIndex;
+    private final LikeIndex likeIndex;
+    private final RecommendationMaterializer recommendationMaterializer;
+    private final SimilarFilmIndex similarFilmIndex;
+    private final RecommendationStorage recommendationStorage;
+
+    @Value("${filmorate.popularity-index.enabled:true}")
+    private final boolean popularityIndexEnabled;
 
     public void addLike(int filmId, int userId) {
         log.info("Добавление лайка: фильм {}, пользователь {}", filmId, userId);
 
-        filmStorage.findById(filmId);
-        userStorage.findById(userId);
+        validationUtils.validateFilm(filmId);
+        validationUtils.validateUser(userId);
 
         if (likeStorage.isLikeExists(filmId, userId)) {
             log.info("Лайк уже существует: фильм {}, пользователь {}", filmId, userId);
@@ -42,6 +53,7 @@ public class FilmService {
         }
 
         likeStorage.addLike(filmId, userId);
+        recommendationMaterializer.onLikeChanged(filmId, userId);
 
         eventService.createLikeEvent(userId, filmId, Operation.ADD);
 
@@ -51,8 +63,8 @@ public class FilmService {
     public void removeLike(int filmId, int userId) {
         log.info("Удаление лайка: фильм {}, пользователь {}", filmId, userId);
 
-        filmStorage.findById(filmId);
-        userStorage.findById(userId);
+        validationUtils.validateFilm(filmId);
+        validationUtils.validateUser(userId);
 
         if (!likeStorage.isLikeExists(filmId, userId)) {
             log.info("Лайк не найден: фильм {}, пользователь {}", filmId, userId);
@@ -60,6 +72,7 @@ public class FilmService {
         }
 
         likeStorage.removeLike(filmId, userId);
+        recommendationMaterializer.onLikeChanged(filmId, userId);
 
         eventService.createLikeEvent(userId, filmId, Operation.REMOVE);
 
@@ -73,34 +86,23 @@ public class FilmService {
             return List.of();
         }
 
-        Stream<Film> filmStream = filmStorage.findAll().stream();
-
-        if (genreId != null) {
-            filmStream = filmStream.filter(film ->
-                    film.getGenreIds().contains(genreId) ||
-                            film.getGenres().stream()
-                                    .anyMatch(genre -> genre.ordinal() + 1 == genreId)
-            );
-        }
-        if (year != null) {
-            filmStream = filmStream.filter(film ->
-                    film.getReleaseDate() != null &&
-                            film.getReleaseDate().getYear() == year
-            );
+        if (!popularityIndexEnabled) {
+            return filmStorage.findPopular(count, genreId, year);
         }
-        Comparator<Film> sortOrder = (genreId != null || year != null)
-                ? Comparator.comparingInt(Film::getId)
-                : Comparator
-                        .comparingInt((Film f) -> f.getLikes().size()).reversed()
-                        .thenComparingInt(Film::getId);
-        return filmStream
-                .sorted(sortOrder)
-                .limit(count)
-                .collect(Collectors.toList());
+        return filmStorage.findByIds(popularityIndex.top(count, genreId, year));
+    }
+
+    public List<Film> getSimilarFilms(int filmId, int count) {
+        log.info("Получение {} фильмов, похожих на фильм {}", count, filmId);
+        validationUtils.validateFilm(filmId);
+        return filmStorage.findByIds(recommendationStorage.findSimilarFilmIds(filmId, count)
+                .orElseGet(() -> similarFilmIndex.similar(filmId, count)));
     }
 
     public void deleteById(Integer id) {
         filmStorage.deleteById(id);
+        recommendationMaterializer.onFilmDeleted(id);
+        likeIndex.onFilmDeleted(id);
     }
 
     public List<Film> getFilmsByDirector(int directorId, String sortBy) {
@@ -112,15 +114,15 @@ public class FilmService {
         return filmStorage.getFilmsByDirector(directorId, sortBy);
     }
 
-    public List<Film> searchFilms(String query, String by) {
-        return filmStorage.search(query, by);
+    public List<Film> searchFilms(String query, String by, int from, Integer count) {
+        return filmStorage.search(query, by, from, count != null ? count : Integer.MAX_VALUE);
     }
 
     public List<Film> getCommonFilms(int userId, int friendId) {
         log.info("Получение общих фильмов пользователей {} и {}", userId, friendId);
 
-        userStorage.findById(userId);
-        userStorage.findById(friendId);
+        validationUtils.validateUser(userId);
+        validationUtils.validateUser(friendId);
         return filmStorage.getCommonFilms(userId, friendId);
     }
 }
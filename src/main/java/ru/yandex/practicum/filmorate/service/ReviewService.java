@@ -5,10 +5,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewSummary;
 import ru.yandex.practicum.filmorate.model.event.Operation;
-import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewCursor;
 import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validation.ValidationUtils;
 
 import java.util.List;
 
@@ -20,16 +21,15 @@ public class ReviewService {
     private static final int DEFAULT_COUNT = 10;
 
     private final ReviewStorage reviewStorage;
-    private final FilmStorage filmStorage;
-    private final UserStorage userStorage;
+    private final ValidationUtils validationUtils;
     private final EventService eventService;
 
     public Review addReview(Review review) {
         log.info("Добавление отзыва: пользователь {}, фильм {}", review.getUserId(), review.getFilmId());
 
         // Проверка существования пользователя и фильма
-        userStorage.findById(review.getUserId());
-        filmStorage.findById(review.getFilmId());
+        validationUtils.validateUser(review.getUserId());
+        validationUtils.validateFilm(review.getFilmId());
 
         Review addReview = reviewStorage.add(review);
         //пришлось создать переменную, потому что id отзыва создается после метода add
@@ -59,23 +59,30 @@ public class ReviewService {
         return reviewStorage.findById(reviewId);
     }
 
-    public List<Review> getReviews(Integer filmId, Integer count) {
-        int limit = (count != null && count > 0) ? count : DEFAULT_COUNT;
-
+    public List<Review> getReviews(Integer filmId, ReviewCursor after, int limit) {
         if (filmId != null) {
             log.info("Получение отзывов для фильма {} (лимит: {})", filmId, limit);
-            return reviewStorage.findByFilmId(filmId, limit);
+            return reviewStorage.findByFilmId(filmId, after, limit);
         } else {
             log.info("Получение всех отзывов (лимит: {})", limit);
-            return reviewStorage.findAll(limit);
+            return reviewStorage.findAll(after, limit);
         }
     }
 
+    public int pageSize(Integer count) {
+        return (count != null && count > 0) ? count : DEFAULT_COUNT;
+    }
+
+    public ReviewSummary getSummary(int filmId) {
+        log.info("Получение сводки отзывов фильма {}", filmId);
+        return reviewStorage.findSummary(filmId);
+    }
+
     public void addLike(int reviewId, int userId) {
         log.info("Добавление лайка отзыву {} от пользователя {}", reviewId, userId);
 
-        reviewStorage.findById(reviewId);
-        userStorage.findById(userId);
+        validationUtils.validateReview(reviewId);
+        validationUtils.validateUser(userId);
 
         reviewStorage.addLike(reviewId, userId);
     }
@@ -83,8 +90,8 @@ public class ReviewService {
     public void addDislike(int reviewId, int userId) {
         log.info("Добавление дизлайка отзыву {} от пользователя {}", reviewId, userId);
 
-        reviewStorage.findById(reviewId);
-        userStorage.findById(userId);
+        validationUtils.validateReview(reviewId);
+        validationUtils.validateUser(userId);
 
         reviewStorage.addDislike(reviewId, userId);
     }
@@ -92,8 +99,8 @@ public class ReviewService {
     public void removeLike(int reviewId, int userId) {
         log.info("Удаление лайка отзыву {} от пользователя {}", reviewId, userId);
 
-        reviewStorage.findById(reviewId);
-        userStorage.findById(userId);
+        validationUtils.validateReview(reviewId);
+        validationUtils.validateUser(userId);
 
         reviewStorage.removeLike(reviewId, userId);
     }
@@ -101,8 +108,8 @@ public class ReviewService {
     public void removeDislike(int reviewId, int userId) {
         log.info("Удаление дизлайка отзыву {} от пользователя {}", reviewId, userId);
 
-        reviewStorage.findById(reviewId);
-        userStorage.findById(userId);
+        validationUtils.validateReview(reviewId);
+        validationUtils.validateUser(userId);
 
         reviewStorage.removeDislike(reviewId, userId);
     }
@@ -5,19 +5,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.FriendLink;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.event.Operation;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationMaterializer;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.FriendSuggestions;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.validation.ValidationUtils;
 
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,33 +24,30 @@ public class UserService {
 
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
 
-    private final UserDbStorage userStorage;
+    private final UserStorage userStorage;
     private final EventService eventService;
     private final ValidationUtils validationUtils;
 
     private final FilmStorage filmStorage;
-    private final RecommendationStorage recommendationStorage;
+    private final RecommendationMaterializer recommendationMaterializer;
+    private final LikeIndex likeIndex;
+    private final FriendGraph friendGraph;
+    private final FriendSuggestions friendSuggestions;
 
     public void addFriend(int userId, int friendId) {
         log.info("Добавление в друзья: пользователь {} -> {}", userId, friendId);
 
-        User user = userStorage.findById(userId);
-        User friend = userStorage.findById(friendId);
+        validationUtils.validateUser(userId);
+        validationUtils.validateUser(friendId);
 
-        boolean friendAlreadyRequested = friend.getFriendLinks().stream()
-                .anyMatch(fl -> fl.getFriendId() == userId && fl.getStatus() == FriendshipStatus.UNCONFIRMED);
+        boolean friendAlreadyRequested = friendGraph.status(friendId, userId)
+                .filter(status -> status == FriendshipStatus.UNCONFIRMED)
+                .isPresent();
 
         if (friendAlreadyRequested) {
-            friend.getFriendLinks().removeIf(fl -> fl.getFriendId() == userId);
-            friend.getFriendLinks().add(new FriendLink(userId, FriendshipStatus.CONFIRMED));
-            user.getFriendLinks().removeIf(fl -> fl.getFriendId() == friendId);
-            user.getFriendLinks().add(new FriendLink(friendId, FriendshipStatus.CONFIRMED));
-            userStorage.update(user);
-            userStorage.update(friend);
+            userStorage.confirmFriendLink(userId, friendId);
         } else {
-            user.getFriendLinks().removeIf(fl -> fl.getFriendId() == friendId);
-            user.getFriendLinks().add(new FriendLink(friendId, FriendshipStatus.UNCONFIRMED));
-            userStorage.update(user);
+            userStorage.addFriendLink(userId, friendId);
         }
 
         eventService.createFriendEvent(userId, friendId, Operation.ADD);
@@ -60,36 +56,29 @@ public class UserService {
     public void removeFriend(int userId, int friendId) {
         log.info("Удаление из друзей: пользователь {} -> {}", userId, friendId);
 
-        User user = userStorage.findById(userId);
-        userStorage.findById(friendId);
+        validationUtils.validateUser(userId);
+        validationUtils.validateUser(friendId);
 
-        user.getFriendLinks().removeIf(fl -> fl.getFriendId() == friendId);
-        userStorage.update(user);
+        userStorage.removeFriendLink(userId, friendId);
 
         eventService.createFriendEvent(userId, friendId, Operation.REMOVE);
     }
 
     public List<User> getFriends(int userId) {
-        List<Integer> friendIds = userStorage.findById(userId).getFriendLinks().stream()
-                .map(FriendLink::getFriendId)
-                .toList();
-        return userStorage.findByIds(friendIds);
+        validationUtils.validateUser(userId);
+        return userStorage.findByIds(friendGraph.friendIds(userId));
     }
 
     public List<User> getCommonFriends(int userId, int otherUserId) {
         validationUtils.validateUser(userId);
         validationUtils.validateUser(otherUserId);
-        Set<Integer> userFriendIds = userStorage.findById(userId).getFriendLinks().stream()
-                .map(FriendLink::getFriendId)
-                .collect(Collectors.toSet());
-        Set<Integer> otherFriendIds = userStorage.findById(otherUserId).getFriendLinks().stream()
-                .map(FriendLink::getFriendId)
-                .collect(Collectors.toSet());
-
-        List<Integer> commonIds = userFriendIds.stream()
-                .filter(otherFriendIds::contains)
-                .toList();
-        return userStorage.findByIds(commonIds);
+        return userStorage.findByIds(friendGraph.commonFriendIds(userId, otherUserId));
+    }
+
+    public List<User> getFriendSuggestions(int userId, int count) {
+        log.info("Подбор {} возможных друзей для пользователя {}", count, userId);
+        validationUtils.validateUser(userId);
+        return userStorage.findByIds(friendSuggestions.suggest(userId, count));
     }
 
     public void deleteById(Integer id) {
@@ -98,19 +87,16 @@ public class UserService {
 
         eventService.deleteEventByUserId(id);
 
+        // лайки пользователя удалятся каскадно; индекс популярности снимет их, получив список фильмов от LikeIndex
         userStorage.deleteById(id);
+        likeIndex.onUserDeleted(id);
+        recommendationMaterializer.onUserDeleted(id);
     }
 
     public List<Film> getRecommendations(int userId) {
-        userStorage.findById(userId);
-
-        Optional<Integer> similarUserIdOpt = recommendationStorage.findMostSimilarUserId(userId);
-        if (similarUserIdOpt.isEmpty()) {
-            return List.of();
-        }
+        validationUtils.validateUser(userId);
 
-        int similarUserId = similarUserIdOpt.get();
-        List<Integer> filmIds = recommendationStorage.findRecommendedFilmIds(userId, similarUserId);
+        List<Integer> filmIds = recommendationMaterializer.getRecommendedFilmIds(userId);
 
         if (filmIds.isEmpty()) {
             return List.of();
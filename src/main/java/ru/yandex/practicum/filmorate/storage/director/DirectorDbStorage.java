@@ -9,6 +9,8 @@ import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.sql.PreparedStatement;
 import java.util.List;
@@ -19,6 +21,8 @@ import java.util.Optional;
 public class DirectorDbStorage implements DirectorStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final FilmSearchIndex searchIndex;
+    private final ReferenceDataCache referenceData;
 
     private final RowMapper<Director> directorRowMapper = (rs, rowNum) -> {
         Director director = new Director();
@@ -29,7 +33,7 @@ public class DirectorDbStorage implements DirectorStorage {
 
     @Override
     public Director addDirector(Director director) {
-        String sql = "INSERT INTO directors (name) VALUES (?)";
+        String sql = "/* DirectorDbStorage.addDirector */ INSERT INTO directors (name) VALUES (?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
@@ -43,30 +47,36 @@ public class DirectorDbStorage implements DirectorStorage {
             throw new RuntimeException("Не удалось получить ID созданного режиссёра");
         }
         director.setId(id);
+        searchIndex.indexDirector(id, director.getName());
+        referenceData.putDirector(id, director.getName());
         return director;
     }
 
     @Override
     public Director updateDirector(Director director) {
-        jdbcTemplate.update("UPDATE directors SET name = ? WHERE id = ?",
+        jdbcTemplate.update("/* DirectorDbStorage.updateDirector */ UPDATE directors SET name = ? WHERE id = ?",
                 director.getName(), director.getId());
+        searchIndex.indexDirector(director.getId(), director.getName());
+        referenceData.putDirector(director.getId(), director.getName());
         return director;
     }
 
     @Override
     public void deleteDirector(int id) {
-        String sql = "DELETE FROM directors WHERE id = ?";
+        String sql = "/* DirectorDbStorage.deleteDirector */ DELETE FROM directors WHERE id = ?";
         int rowsAffected = jdbcTemplate.update(sql, id);
         if (rowsAffected == 0) {
             throw new NotFoundException("Режиссёр с ID " + id + " не найден");
         }
+        searchIndex.removeDirector(id);
+        referenceData.removeDirector(id);
     }
 
     @Override
     public Optional<Director> getById(int id) {
         try {
             return Optional.ofNullable(jdbcTemplate.queryForObject(
-                    "SELECT * FROM directors WHERE id = ?", directorRowMapper, id));
+                    "/* DirectorDbStorage.getById */ SELECT * FROM directors WHERE id = ?", directorRowMapper, id));
         } catch (EmptyResultDataAccessException e) {
             return Optional.empty();
         }
@@ -74,7 +84,7 @@ public class DirectorDbStorage implements DirectorStorage {
 
     @Override
     public List<Director> getAllDirectors() {
-        String sql = "SELECT id, name FROM directors ORDER BY id";
+        String sql = "/* DirectorDbStorage.getAllDirectors */ SELECT id, name FROM directors ORDER BY id";
         return jdbcTemplate.query(sql, directorRowMapper);
     }
 }
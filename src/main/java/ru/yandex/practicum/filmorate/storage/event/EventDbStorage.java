@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.event;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -20,6 +21,7 @@ import java.util.List;
 public class EventDbStorage implements EventStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     private final RowMapper<Event> eventRowMapper = (ResultSet rs, int rowNum) -> {
         return new Event(
@@ -34,12 +36,30 @@ public class EventDbStorage implements EventStorage {
 
     @Override
     public List<Event> getUserFeed(int userId) {
-        String sql = "SELECT * FROM events WHERE user_id = ? ORDER BY timestamp ASC";
+        String sql = "/* EventDbStorage.getUserFeed */ " +
+                "SELECT * FROM events WHERE user_id = ? ORDER BY timestamp ASC, event_id ASC";
         List<Event> events = jdbcTemplate.query(sql, eventRowMapper, userId);
 
         return events;
     }
 
+    @Override
+    public List<Event> getUserFeed(int userId, FeedCursor after, int limit) {
+        // H2 читает страницу прямо из индекса idx_events_user_timestamp, только если ORDER BY повторяет
+        // его столбцы целиком; без подсказки он выбирает индекс внешнего ключа по user_id и сортирует
+        // всю историю пользователя. Условие timestamp >= ? задаёт начало диапазона в индексе.
+        if (after == null) {
+            return jdbcTemplate.query("/* EventDbStorage.getUserFeed */ " +
+                    "SELECT * FROM events USE INDEX (idx_events_user_timestamp) " +
+                    "WHERE user_id = ? ORDER BY user_id, timestamp, event_id LIMIT ?", eventRowMapper, userId, limit);
+        }
+        return jdbcTemplate.query("/* EventDbStorage.getUserFeed */ " +
+                "SELECT * FROM events USE INDEX (idx_events_user_timestamp) " +
+                        "WHERE user_id = ? AND timestamp >= ? AND (timestamp > ? OR event_id > ?) " +
+                        "ORDER BY user_id, timestamp, event_id LIMIT ?", eventRowMapper,
+                userId, after.timestamp(), after.timestamp(), after.eventId(), limit);
+    }
+
     @Override
     public void createLikeEvent(int userId, int entityId, Operation operation) {
         createEvent(userId, entityId, EventType.LIKE, operation);
@@ -57,14 +77,15 @@ public class EventDbStorage implements EventStorage {
 
     @Override
     public boolean deleteEventByUserId(int userId) {
-        int rowsAffected = jdbcTemplate.update("DELETE FROM events WHERE user_id = ?", userId);
+        int rowsAffected = jdbcTemplate.update("/* EventDbStorage.deleteEventByUserId */ " +
+                "DELETE FROM events WHERE user_id = ?", userId);
         return rowsAffected > 0;
     }
 
     @Override
-    public Event createEvent(int userId, int entityId, EventType eventType, Operation operation) {
-        String sql = "INSERT INTO events (user_id, entity_id, event_type, operation, timestamp) " +
-                "VALUES (?, ?, ?, ?, ?)";
+    public void createEvent(int userId, int entityId, EventType eventType, Operation operation) {
+        String sql = "/* EventDbStorage.createEvent */ " +
+                "INSERT INTO events (user_id, entity_id, event_type, operation, timestamp) VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
         long timestamp = System.currentTimeMillis();
         jdbcTemplate.update(connection -> {
@@ -77,7 +98,9 @@ public class EventDbStorage implements EventStorage {
             return ps;
         }, keyHolder);
         int eventId = keyHolder.getKey() != null ? keyHolder.getKey().intValue() : 0;
-        return new Event(eventId, userId, entityId, eventType, operation, timestamp);
+        Event event = new Event(eventId, userId, entityId, eventType, operation, timestamp);
+        // живая лента получает событие после фиксации транзакции
+        eventPublisher.publishEvent(event);
     }
 
 }
\ No newline at end of file
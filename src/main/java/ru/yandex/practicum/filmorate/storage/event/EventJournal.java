@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.model.event.Operation;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Журнал событий (включается filmorate.events.journal.enabled=true): события ленты
+// кладутся в кольцевой буфер без блокировок и пишутся в базу одним потоком пачками,
+// поэтому запись события не задерживает обработку лайков, друзей и отзывов.
+// Буфер выдаёт события в порядке добавления, так что порядок событий одного пользователя
+// сохраняется. Чтение ленты и удаление событий сначала дожидаются записи всего,
+// что было добавлено до вызова (flush), и видят свои записи.
+// id события при добавлении ещё неизвестен, поэтому createEvent ничего не возвращает;
+// в живую ленту событие уходит после записи, уже с id.
+@Component
+@Primary
+@ConditionalOnProperty(name = "filmorate.events.journal.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class EventJournal implements EventStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(EventJournal.class);
+
+    private static final String INSERT_SQL = "/* EventJournal.insert */ " +
+            "INSERT INTO events (user_id, entity_id, event_type, operation, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final EventDbStorage eventDbStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${filmorate.events.journal.capacity:65536}")
+    private final int capacity;
+
+    @Value("${filmorate.events.journal.batch-size:512}")
+    private final int batchSize;
+
+    private final Object progress = new Object();
+    private EventRingBuffer<Event> buffer;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean writerParked;
+    // сколько событий из буфера уже обработано писателем; меняет только поток-писатель
+    private volatile long written;
+
+    @PostConstruct
+    public void start() {
+        buffer = new EventRingBuffer<>(capacity);
+        running = true;
+        writer = new Thread(this::drainLoop, "event-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Override
+    public List<Event> getUserFeed(int userId) {
+        flush();
+        return eventDbStorage.getUserFeed(userId);
+    }
+
+    @Override
+    public List<Event> getUserFeed(int userId, FeedCursor after, int limit) {
+        flush();
+        return eventDbStorage.getUserFeed(userId, after, limit);
+    }
+
+    @Override
+    public void createLikeEvent(int userId, int entityId, Operation operation) {
+        createEvent(userId, entityId, EventType.LIKE, operation);
+    }
+
+    @Override
+    public void createFriendEvent(int userId, int entityId, Operation operation) {
+        createEvent(userId, entityId, EventType.FRIEND, operation);
+    }
+
+    @Override
+    public void createReviewEvent(int userId, int entityId, Operation operation) {
+        createEvent(userId, entityId, EventType.REVIEW, operation);
+    }
+
+    @Override
+    public boolean deleteEventByUserId(int userId) {
+        flush();
+        return eventDbStorage.deleteEventByUserId(userId);
+    }
+
+    @Override
+    public void createEvent(int userId, int entityId, EventType eventType, Operation operation) {
+        Event event = new Event(0, userId, entityId, eventType, operation, System.currentTimeMillis());
+        while (buffer.offer(event) < 0) {
+            // буфер заполнен: будим писателя и ждём, пока он освободит место
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+        }
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    // Барьер: возвращается, когда записано всё, что было добавлено до вызова
+    public void flush() {
+        long target = buffer.claimed();
+        if (written >= target) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        synchronized (progress) {
+            while (written < target) {
+                try {
+                    progress.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || written < buffer.claimed()) {
+            Event event;
+            while (batch.size() < batchSize && (event = buffer.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                writerParked = true;
+                // повторная проверка после выставления флага: иначе можно проспать событие
+                event = buffer.poll();
+                if (event == null) {
+                    // без событий писатель спит, пока его не разбудят createEvent, flush или stop
+                    LockSupport.park(this);
+                    writerParked = false;
+                    continue;
+                }
+                writerParked = false;
+                batch.add(event);
+            }
+            write(batch);
+            written += batch.size();
+            batch.clear();
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    private void write(List<Event> batch) {
+        try {
+            insert(batch);
+        } catch (DataAccessException e) {
+            // обычно пользователь уже удалён: пишем по одному и отбрасываем только сбойные события
+            log.warn("Пачка из {} событий не записана, повторяем по одному: {}", batch.size(), e.getMessage());
+            for (Event event : batch) {
+                try {
+                    insert(List.of(event));
+                } catch (DataAccessException ex) {
+                    log.warn("Событие {} пользователя {} отброшено: {}", event.getEventType(), event.getUserId(),
+                            ex.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            // поток-писатель не должен умирать: иначе барьер flush будет ждать вечно
+            log.error("Ошибка записи пачки из {} событий", batch.size(), e);
+        }
+    }
+
+    private void insert(List<Event> batch) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"event_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Event event = batch.get(i);
+                        ps.setInt(1, event.getUserId());
+                        ps.setInt(2, event.getEntityId());
+                        ps.setString(3, event.getEventType().name());
+                        ps.setString(4, event.getOperation().name());
+                        ps.setLong(5, event.getTimestamp());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                }, keyHolder));
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < batch.size(); i++) {
+            Event event = batch.get(i);
+            event.setEventId(((Number) keys.get(i).values().iterator().next()).intValue());
+            eventPublisher.publishEvent(event);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Ограниченная очередь без блокировок для многих писателей и одного читателя (схема Вьюкова).
+// У каждой ячейки свой счётчик: писатель занимает позицию CAS-ом по head и публикует элемент,
+// записывая в счётчик pos + 1; читатель освобождает ячейку, записывая pos + capacity.
+// Порядок выдачи совпадает с порядком занятия позиций.
+final class EventRingBuffer<T> {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final Object[] items;
+    private final AtomicLong head = new AtomicLong();
+    // двигает только поток-читатель
+    private long tail;
+
+    EventRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ёмкость буфера должна быть степенью двойки: " + capacity);
+        }
+        mask = capacity - 1;
+        sequences = new AtomicLongArray(capacity);
+        items = new Object[capacity];
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // Возвращает номер элемента, начиная с 1, или -1, если буфер заполнен
+    long offer(T item) {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    items[index] = item;
+                    sequences.set(index, pos + 1);
+                    return pos + 1;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return -1;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    T poll() {
+        int index = (int) tail & mask;
+        if (sequences.get(index) != tail + 1) {
+            return null;
+        }
+        T item = (T) items[index];
+        items[index] = null;
+        sequences.set(index, tail + mask + 1);
+        tail++;
+        return item;
+    }
+
+    // Сколько позиций занято писателями за всё время
+    long claimed() {
+        return head.get();
+    }
+}
@@ -10,6 +10,9 @@ public interface EventStorage {
 
     List<Event> getUserFeed(int userId);
 
+    // Страница ленты после позиции after (null — с начала), не больше limit событий
+    List<Event> getUserFeed(int userId, FeedCursor after, int limit);
+
     void createLikeEvent(int userId, int entityId, Operation operation);//добавить событие EventType.LIKE
 
     void createFriendEvent(int userId, int entityId, Operation operation); //добавить событие EventType.FRIEND
@@ -18,5 +21,5 @@ public interface EventStorage {
 
     boolean deleteEventByUserId(int userId); //при удалении пользователя по пути удалить события
 
-    Event createEvent(int userId, int entityId, EventType eventType, Operation operation);
+    void createEvent(int userId, int entityId, EventType eventType, Operation operation);
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.event.Event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Позиция в ленте: последнее отданное событие (timestamp, event_id).
+// Клиент получает её непрозрачной строкой и возвращает как есть.
+public record FeedCursor(long timestamp, int eventId) {
+
+    public static FeedCursor after(Event event) {
+        return new FeedCursor(event.getTimestamp(), event.getEventId());
+    }
+
+    public static FeedCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new FeedCursor(Long.parseLong(raw.substring(0, separator)),
+                    Integer.parseInt(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Некорректный курсор ленты: " + cursor);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((timestamp + ":" + eventId).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -9,13 +9,21 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.MpaaRating;
+import ru.yandex.practicum.filmorate.model.ReviewSummary;
 import ru.yandex.practicum.filmorate.model.dto.DirectorDto;
-import ru.yandex.practicum.filmorate.model.dto.GenreDto;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.review.FilmReviewStats;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry.Kind;
 import ru.yandex.practicum.filmorate.validation.ValidationUtils;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -24,10 +32,24 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
 
+    // сводка отзывов приходит тем же запросом из film_review_stats, лучший отзыв — одной строкой индекса
+    private static final String FILM_SELECT = "SELECT f.id, f.name, f.description, f.release_date, f.duration, " +
+            "f.mpaa_rating_id, frs.positive_count, frs.negative_count, frs.total_useful, " +
+            FilmReviewStats.topReviewId("f.id") + " AS top_review_id " +
+            "FROM films f LEFT JOIN film_review_stats frs ON frs.film_id = f.id";
+
     private final JdbcTemplate jdbcTemplate;
     private final ValidationUtils validationUtils;
+    private final EntityIdRegistry idRegistry;
+    private final FilmHydrator filmHydrator;
+    private final PopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final ReferenceDataCache referenceData;
+    private final LikeIndex likeIndex;
+
+    private final RowMapper<Film> filmRowMapper = this::mapFilm;
 
-    private final RowMapper<Film> filmRowMapper = (rs, rowNum) -> {
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
         Film film = new Film();
         film.setId(rs.getInt("id"));
         film.setName(rs.getString("name"));
@@ -37,21 +59,21 @@ public class FilmDbStorage implements FilmStorage {
             film.setReleaseDate(releaseDate.toLocalDate());
         }
         film.setDuration(rs.getInt("duration"));
+        film.setReviewSummary(new ReviewSummary(film.getId(), rs.getInt("positive_count"),
+                rs.getInt("negative_count"), rs.getInt("total_useful"), (Integer) rs.getObject("top_review_id")));
         Object mpaaRatingIdObj = rs.getObject("mpaa_rating_id");
         if (mpaaRatingIdObj != null) {
             film.setMpaaRatingId(rs.getInt("mpaa_rating_id"));
-        }
-        String mpaaCode = rs.getString("mpaa_code");
-        if (mpaaCode != null) {
-            film.setMpaaRating(parseMpaaRating(mpaaCode));
+            film.setMpaaRating(referenceData.findMpaEnum(film.getMpaaRatingId()));
         }
         return film;
-    };
+    }
 
     @Override
     public Film add(Film film) {
         validationUtils.validateFilmInTheFuture(film);
-        String sql = "INSERT INTO films (name, description, release_date, duration, mpaa_rating_id) VALUES (?, ?, ?, ?, ?)";
+        String sql = "/* FilmDbStorage.add */ " +
+                "INSERT INTO films (name, description, release_date, duration, mpaa_rating_id) VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         Integer mpaaRatingId = resolveMpaaRatingId(film);
@@ -75,6 +97,7 @@ public class FilmDbStorage implements FilmStorage {
             throw new RuntimeException("Не удалось получить ID созданного фильма");
         }
         film.setId(id);
+        idRegistry.add(Kind.FILM, id);
 
         if (film.getGenreIds() != null && !film.getGenreIds().isEmpty()) {
             saveGenresByIds(film.getId(), film.getGenreIds());
@@ -89,14 +112,15 @@ public class FilmDbStorage implements FilmStorage {
         }
 
         saveLikes(film.getId(), film.getLikes());
-
-        return findById(id);
+        refreshLikeCount(film.getId());
+        return withLikes(id, film.getLikes());
     }
 
     @Override
     public Film update(Film film) {
         validationUtils.validateFilm(film.getId());
-        String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpaa_rating_id = ? WHERE id = ?";
+        String sql = "/* FilmDbStorage.update */ " +
+                "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpaa_rating_id = ? WHERE id = ?";
         Integer mpaaRatingId = resolveMpaaRatingId(film);
 
         int rowsAffected = jdbcTemplate.update(sql,
@@ -127,41 +151,39 @@ public class FilmDbStorage implements FilmStorage {
 
         deleteLikes(film.getId());
         saveLikes(film.getId(), film.getLikes());
-
-        return findById(film.getId());
+        refreshLikeCount(film.getId());
+        return withLikes(film.getId(), film.getLikes());
     }
 
     @Override
     public void deleteById(int id) {
         validationUtils.validateFilm(id);
-        String sql = "DELETE FROM films WHERE id = ?";
+        // отзывы о фильме удаляются каскадно вместе с ним
+        List<Integer> reviewIds = jdbcTemplate.queryForList("/* FilmDbStorage.deleteById */ " +
+                "SELECT id FROM reviews WHERE film_id = ?",
+                Integer.class, id);
+        String sql = "/* FilmDbStorage.deleteById */ DELETE FROM films WHERE id = ?";
         int rowsAffected = jdbcTemplate.update(sql, id);
         if (rowsAffected == 0) {
             throw new NotFoundException("Фильм с ID " + id + " не найден");
         }
+        idRegistry.remove(Kind.FILM, id);
+        idRegistry.removeAll(Kind.REVIEW, reviewIds);
+        popularityIndex.onFilmDeleted(id);
+        searchIndex.removeFilm(id);
     }
 
     @Override
     public Film findById(int id) {
         validationUtils.validateFilm(id);
 
-        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpaa_rating_id, " +
-                "mr.code AS mpaa_code FROM films f " +
-                "LEFT JOIN mpaa_ratings mr ON f.mpaa_rating_id = mr.id WHERE f.id = ?";
-
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, id);
+        List<Film> films = jdbcTemplate.query("/* FilmDbStorage.findById */ " + FILM_SELECT + " WHERE f.id = ?",
+                filmRowMapper, id);
         if (films.isEmpty()) {
             throw new NotFoundException("Фильм с ID " + id + " не найден");
         }
-
-        Film film = films.get(0);
-        film.setGenreIds(loadGenreIds(id));
-        film.setGenresResponse(loadGenresDto(id));
-        film.setDirectorIds(loadDirectorIds(id));
-        film.setDirectors(loadDirectors(id));
-        film.setLikes(loadLikes(id));
-
-        return film;
+        filmHydrator.hydrate(films);
+        return films.get(0);
     }
 
     @Override
@@ -171,14 +193,12 @@ public class FilmDbStorage implements FilmStorage {
         }
         List<Integer> idList = new ArrayList<>(ids);
         String placeholders = String.join(",", Collections.nCopies(idList.size(), "?"));
-        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpaa_rating_id, " +
-                "mr.code AS mpaa_code FROM films f " +
-                "LEFT JOIN mpaa_ratings mr ON f.mpaa_rating_id = mr.id WHERE f.id IN (" + placeholders + ")";
+        String sql = "/* FilmDbStorage.findByIds */ " + FILM_SELECT + " WHERE f.id IN (" + placeholders + ")";
         List<Film> films = jdbcTemplate.query(sql, filmRowMapper, idList.toArray());
         if (films.isEmpty()) {
             return List.of();
         }
-        loadGenresAndDirectorsForFilms(films);
+        filmHydrator.hydrate(films);
         Map<Integer, Film> filmById = films.stream().collect(Collectors.toMap(Film::getId, Function.identity()));
         return idList.stream()
                 .map(filmById::get)
@@ -188,102 +208,59 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public List<Film> findAll() {
-        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpaa_rating_id, " +
-                "mr.code AS mpaa_code FROM films f " +
-                "LEFT JOIN mpaa_ratings mr ON f.mpaa_rating_id = mr.id";
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper);
-        for (Film film : films) {
-            film.setGenres(loadGenres(film.getId()));
-            film.setGenreIds(loadGenreIds(film.getId()));
-            film.setGenresResponse(loadGenresDto(film.getId()));
-
-            film.setDirectorIds(loadDirectorIds(film.getId()));
-            film.setDirectors(loadDirectors(film.getId()));
-
-            film.setLikes(loadLikes(film.getId()));
-        }
+        List<Film> films = jdbcTemplate.query("/* FilmDbStorage.findAll */ " + FILM_SELECT, filmRowMapper);
+        filmHydrator.hydrateAll(films);
         return films;
     }
 
     @Override
     public List<Film> getFilmsByDirector(int directorId, String sortBy) {
-        String sql;
-        Object[] params;
-
-        if ("year".equals(sortBy)) {
-            sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpaa_rating_id, " +
-                    "mr.code AS mpaa_code FROM films f " +
-                    "LEFT JOIN mpaa_ratings mr ON f.mpaa_rating_id = mr.id " +
-                    "JOIN film_director fd ON f.id = fd.film_id " +  // film_director
-                    "WHERE fd.director_id = ? " +
-                    "ORDER BY f.release_date";
-            params = new Object[]{directorId};
-        } else {
-            sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpaa_rating_id, " +
-                    "mr.code AS mpaa_code, COUNT(fl.user_id) as likes_count " +
-                    "FROM films f " +
-                    "LEFT JOIN mpaa_ratings mr ON f.mpaa_rating_id = mr.id " +
-                    "JOIN film_director fd ON f.id = fd.film_id " +  // film_director
-                    "LEFT JOIN film_likes fl ON f.id = fl.film_id " +
-                    "WHERE fd.director_id = ? " +
-                    "GROUP BY f.id, f.name, f.description, f.release_date, f.duration, f.mpaa_rating_id, mr.code " +
-                    "ORDER BY likes_count DESC";
-            params = new Object[]{directorId};
-        }
-
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, params);
-        loadGenresAndDirectorsForFilms(films);
+        String order = "year".equals(sortBy) ? "f.release_date" : "f.like_count DESC, f.id";
+        String sql = "/* FilmDbStorage.getFilmsByDirector */ " + FILM_SELECT + " " +
+                "JOIN film_director fd ON f.id = fd.film_id " +  // film_director
+                "WHERE fd.director_id = ? " +
+                "ORDER BY " + order;
+
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, directorId);
+        filmHydrator.hydrate(films);
         return films;
     }
 
-    private Set<Genre> loadGenres(int filmId) {
-        String sql = "SELECT g.id, g.name FROM genres g JOIN film_genre fg ON g.id = fg.genre_id WHERE fg.film_id = ?";
-        List<Genre> genres = jdbcTemplate.query(sql,
-                (rs, rowNum) -> {
-                    String name = rs.getString("name");
-                    for (Genre genre : Genre.values()) {
-                        if (genre.getName().equals(name)) {
-                            return genre;
-                        }
-                    }
-                    return null;
-                },
-                filmId);
-        return genres.stream().filter(g -> g != null).collect(Collectors.toSet());
-    }
-
-    private List<Integer> loadGenreIds(int filmId) {
-        String sql = "SELECT genre_id FROM film_genre WHERE film_id = ? ORDER BY genre_id";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("genre_id"), filmId);
-    }
-
-    private List<GenreDto> loadGenresDto(int filmId) {
-        String sql = "SELECT g.id, g.name FROM genres g JOIN film_genre fg ON g.id = fg.genre_id WHERE fg.film_id = ? ORDER BY g.id";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> new GenreDto(rs.getInt("id"), rs.getString("name")), filmId);
-    }
-
-    private Set<Integer> loadLikes(int filmId) {
-        String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
-        List<Integer> likes = jdbcTemplate.query(sql,
-                (rs, rowNum) -> rs.getInt("user_id"),
-                filmId);
-        return new HashSet<>(likes);
+    @Override
+    public List<Film> findPopular(int count, Integer genreId, Integer year) {
+        StringBuilder sql = new StringBuilder("/* FilmDbStorage.findPopular */ ").append(FILM_SELECT)
+                .append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (genreId != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM film_genre fg WHERE fg.film_id = f.id AND fg.genre_id = ?)");
+            params.add(genreId);
+        }
+        if (year != null) {
+            sql.append(" AND f.release_date BETWEEN ? AND ?");
+            params.add(Date.valueOf(LocalDate.of(year, 1, 1)));
+            params.add(Date.valueOf(LocalDate.of(year, 12, 31)));
+        }
+        sql.append(" ORDER BY f.like_count DESC, f.id LIMIT ?");
+        params.add(count);
+
+        List<Film> films = jdbcTemplate.query(sql.toString(), filmRowMapper, params.toArray());
+        filmHydrator.hydrate(films);
+        return films;
     }
 
     private void saveGenres(int filmId, Set<Genre> genres) {
         if (genres == null || genres.isEmpty()) {
             return;
         }
-        Map<String, Integer> nameToId = getGenreNameToIdMap();
         List<Object[]> batchArgs = new ArrayList<>();
         for (Genre genre : genres) {
-            Integer genreId = nameToId.get(genre.getName());
+            Integer genreId = referenceData.findGenreId(genre);
             if (genreId != null) {
                 batchArgs.add(new Object[]{filmId, genreId});
             }
         }
         if (!batchArgs.isEmpty()) {
-            String sql = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
+            String sql = "/* FilmDbStorage.saveGenres */ INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
             jdbcTemplate.batchUpdate(sql, batchArgs);
         }
     }
@@ -300,7 +277,7 @@ public class FilmDbStorage implements FilmStorage {
             }
         }
         if (!batchArgs.isEmpty()) {
-            String sql = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
+            String sql = "/* FilmDbStorage.saveGenresByIds */ INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
             jdbcTemplate.batchUpdate(sql, batchArgs);
         }
     }
@@ -309,7 +286,7 @@ public class FilmDbStorage implements FilmStorage {
         if (likes == null || likes.isEmpty()) {
             return;
         }
-        String sql = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+        String sql = "/* FilmDbStorage.saveLikes */ INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
         List<Object[]> batchArgs = new ArrayList<>(likes.size());
         for (Integer userId : likes) {
             batchArgs.add(new Object[]{filmId, userId});
@@ -317,163 +294,57 @@ public class FilmDbStorage implements FilmStorage {
         jdbcTemplate.batchUpdate(sql, batchArgs);
     }
 
-    private Map<String, Integer> getGenreNameToIdMap() {
-        String sql = "SELECT id, name FROM genres";
-        Map<String, Integer> map = new HashMap<>();
-        jdbcTemplate.query(sql, (rs, rowNum) -> {
-            map.put(rs.getString("name"), rs.getInt("id"));
-            return null;
-        });
-        return map;
+    private void refreshLikeCount(int filmId) {
+        // несвёрнутые полосы film_like_counts ещё прибавятся к счётчику, поэтому они вычитаются
+        String sql = "/* FilmDbStorage.refreshLikeCount */ " +
+                "UPDATE films SET like_count = (SELECT COUNT(*) FROM film_likes WHERE film_id = ?) - " +
+                "COALESCE((SELECT SUM(delta) FROM film_like_counts WHERE film_id = ?), 0) WHERE id = ?";
+        jdbcTemplate.update(sql, filmId, filmId, filmId);
     }
 
     private void deleteGenres(int filmId) {
-        String sql = "DELETE FROM film_genre WHERE film_id = ?";
+        String sql = "/* FilmDbStorage.deleteGenres */ DELETE FROM film_genre WHERE film_id = ?";
         jdbcTemplate.update(sql, filmId);
     }
 
     private void deleteLikes(int filmId) {
-        String sql = "DELETE FROM film_likes WHERE film_id = ?";
+        String sql = "/* FilmDbStorage.deleteLikes */ DELETE FROM film_likes WHERE film_id = ?";
         jdbcTemplate.update(sql, filmId);
     }
 
-    private Integer getMpaaRatingId(MpaaRating rating) {
-        String sql = "SELECT id FROM mpaa_ratings WHERE code = ?";
-        List<Integer> ids = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("id"), rating.getCode());
-        return ids.isEmpty() ? null : ids.get(0);
-    }
-
-    private Integer getGenreId(Genre genre) {
-        String sql = "SELECT id FROM genres WHERE name = ?";
-        List<Integer> ids = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("id"), genre.getName());
-        return ids.isEmpty() ? null : ids.get(0);
-    }
-
     private Integer resolveMpaaRatingId(Film film) {
         Integer id = film.getMpaaRatingId();
         if (id != null && id > 0) {
             return id;
         }
         if (film.getMpaaRating() != null) {
-            return getMpaaRatingId(film.getMpaaRating());
+            return referenceData.findMpaId(film.getMpaaRating());
         }
         return null;
     }
 
-    private MpaaRating parseMpaaRating(String code) {
-        if (code == null) return null;
-        for (MpaaRating rating : MpaaRating.values()) {
-            if (rating.getCode().equals(code)) {
-                return rating;
-            }
-        }
-        return null;
-    }
-
-    private void loadGenresAndDirectorsForFilms(List<Film> films) {
-        if (films.isEmpty()) return;
-
-        Map<Integer, Film> filmMap = films.stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity()));
-
-        List<Integer> filmIds = new ArrayList<>(filmMap.keySet());
-
-        String placeholders = String.join(",", Collections.nCopies(filmIds.size(), "?"));
-
-        String genresSql = "SELECT fg.film_id, g.id, g.name FROM film_genre fg " +
-                "JOIN genres g ON fg.genre_id = g.id " +
-                "WHERE fg.film_id IN (" + placeholders + ") ORDER BY g.id";
-
-        for (Film film : films) {
-            if (film.getGenreIds() == null) {
-                film.setGenreIds(new ArrayList<>());
-            }
-            if (film.getGenresResponse() == null) {
-                film.setGenresResponse(new ArrayList<>());
-            }
-            if (film.getGenres() == null) {
-                film.setGenres(new HashSet<>());
-            }
-        }
-
-        jdbcTemplate.query(genresSql, filmIds.toArray(), rs -> {
-            Film film = filmMap.get(rs.getInt("film_id"));
-            if (film != null) {
-                int genreId = rs.getInt("id");
-                String genreName = rs.getString("name");
-
-                film.getGenreIds().add(genreId);
-
-                film.getGenresResponse().add(new GenreDto(genreId, genreName));
-
-                for (Genre genre : Genre.values()) {
-                    if (genre.getName().equals(genreName)) {
-                        film.getGenres().add(genre);
-                        break;
-                    }
-                }
-            }
-        });
-
-        String directorsSql = "SELECT fd.film_id, d.id, d.name FROM film_director fd " +
-                "JOIN directors d ON fd.director_id = d.id " +
-                "WHERE fd.film_id IN (" + placeholders + ") ORDER BY d.id";
-
-        for (Film film : films) {
-            if (film.getDirectorIds() == null) {
-                film.setDirectorIds(new HashSet<>());
-            }
-            if (film.getDirectors() == null) {
-                film.setDirectors(new ArrayList<>());
-            }
-        }
-
-        jdbcTemplate.query(directorsSql, filmIds.toArray(), rs -> {
-            Film film = filmMap.get(rs.getInt("film_id"));
-            if (film != null) {
-                int directorId = rs.getInt("id");
-                String directorName = rs.getString("name");
-
-                film.getDirectorIds().add(directorId);
-
-                film.getDirectors().add(new DirectorDto(directorId, directorName));
-            }
-        });
-
-        String likesSql = "SELECT film_id, user_id FROM film_likes WHERE film_id IN (" + placeholders + ")";
-
-        for (Film film : films) {
-            if (film.getLikes() == null) {
-                film.setLikes(new HashSet<>());
-            }
-        }
-
-        jdbcTemplate.query(likesSql, filmIds.toArray(), rs -> {
-            Film film = filmMap.get(rs.getInt("film_id"));
-            if (film != null) {
-                film.getLikes().add(rs.getInt("user_id"));
-            }
-        });
-    }
-
-    private Set<Integer> loadDirectorIds(int filmId) {
-        String sql = "SELECT director_id FROM film_director WHERE film_id = ? ORDER BY director_id";
-        List<Integer> directorIds = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("director_id"), filmId);
-        return new HashSet<>(directorIds);
+    // Индекс лайков меняется после фиксации, поэтому лайки сохранённого фильма берутся из запроса
+    private Film withLikes(int filmId, Set<Integer> likes) {
+        Set<Integer> saved = likes != null ? Set.copyOf(likes) : Set.of();
+        AfterCommit.run(() -> likeIndex.onFilmLikesReplaced(filmId, saved));
+        Film film = findById(filmId);
+        film.setLikes(saved);
+        return indexed(film);
     }
 
-    private List<DirectorDto> loadDirectors(int filmId) {
-        String sql = "SELECT d.id, d.name FROM directors d " +
-                "JOIN film_director fd ON d.id = fd.director_id " +
-                "WHERE fd.film_id = ? ORDER BY d.id";
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new DirectorDto(rs.getInt("id"), rs.getString("name")), filmId);
+    private Film indexed(Film film) {
+        // лайки из запроса дойдут до индекса популярности разницей после фиксации, поэтому здесь —
+        // текущее число из LikeIndex
+        popularityIndex.onFilmSaved(film.getId(), film.getReleaseDate(), film.getGenreIds(),
+                likeIndex.likeCount(film.getId()));
+        searchIndex.indexFilm(film.getId(), film.getName(), film.getDirectorIds());
+        return film;
     }
 
     private void saveDirectors(int filmId, Set<Integer> directorIds) {
         if (directorIds == null || directorIds.isEmpty()) return;
 
-        String sql = "INSERT INTO film_director (film_id, director_id) VALUES (?, ?)";
+        String sql = "/* FilmDbStorage.saveDirectors */ INSERT INTO film_director (film_id, director_id) VALUES (?, ?)";
         List<Object[]> batchArgs = new ArrayList<>();
         for (Integer directorId : directorIds) {
             batchArgs.add(new Object[]{filmId, directorId});
@@ -484,7 +355,8 @@ public class FilmDbStorage implements FilmStorage {
     private void saveDirectorsFromDto(int filmId, List<DirectorDto> directors) {
         if (directors == null || directors.isEmpty()) return;
 
-        String sql = "INSERT INTO film_director (film_id, director_id) VALUES (?, ?)";
+        String sql = "/* FilmDbStorage.saveDirectorsFromDto */ " +
+                "INSERT INTO film_director (film_id, director_id) VALUES (?, ?)";
         List<Object[]> batchArgs = new ArrayList<>();
         for (DirectorDto director : directors) {
             batchArgs.add(new Object[]{filmId, director.getId()});
@@ -493,82 +365,42 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     private void deleteDirectors(int filmId) {
-        String sql = "DELETE FROM film_director WHERE film_id = ?";
+        String sql = "/* FilmDbStorage.deleteDirectors */ DELETE FROM film_director WHERE film_id = ?";
         jdbcTemplate.update(sql, filmId);
     }
 
-    public List<Film> search(String query, String by) {
-        if (query == null || query.trim().isEmpty()) {
-            return findAll();
+    @Override
+    public List<Film> search(String query, String by, int from, int count) {
+        Set<String> fields = Set.of(by.split(","));
+        boolean byTitle = fields.contains("title");
+        boolean byDirector = fields.contains("director");
+        if (!byTitle && !byDirector) {
+            return List.of();
         }
 
-        String searchPattern = "%" + query.toLowerCase() + "%";
-        Set<Film> uniqueFilms = new HashSet<>();
-
-        if ("title".equals(by) || "title,director".equals(by)) {
-            String titleSql = "SELECT f.*, mr.code AS mpaa_code " +
-                    "FROM films f " +
-                    "LEFT JOIN mpaa_ratings mr ON f.mpaa_rating_id = mr.id " +
-                    "WHERE LOWER(f.name) LIKE ?";
-
-            List<Film> titleFilms = jdbcTemplate.query(titleSql, filmRowMapper, searchPattern);
-            uniqueFilms.addAll(titleFilms);
+        List<Integer> ranked = new ArrayList<>(searchIndex.search(query, byTitle, byDirector));
+        if (from >= ranked.size()) {
+            return List.of();
         }
-
-        if ("director".equals(by) || "title,director".equals(by)) {
-            String directorSql = "SELECT f.*, mr.code AS mpaa_code " +
-                    "FROM films f " +
-                    "LEFT JOIN mpaa_ratings mr ON f.mpaa_rating_id = mr.id " +
-                    "JOIN film_director fd ON f.id = fd.film_id " +
-                    "JOIN directors d ON fd.director_id = d.id " +
-                    "WHERE LOWER(d.name) LIKE ?";
-
-            List<Film> directorFilms = jdbcTemplate.query(directorSql, filmRowMapper, searchPattern);
-            uniqueFilms.addAll(directorFilms);
+        Map<Integer, Integer> likes = new HashMap<>(ranked.size() * 2);
+        for (Integer filmId : ranked) {
+            likes.put(filmId, likeIndex.likeCount(filmId));
         }
-
-        List<Film> films = new ArrayList<>(uniqueFilms);
-
-        loadGenresAndDirectorsForFilms(films);
-
-        films.sort((f1, f2) -> {
-            int compare = Integer.compare(
-                    f2.getLikes().size(),
-                    f1.getLikes().size()
-            );
-            if (compare == 0) {
-                return Integer.compare(f1.getId(), f2.getId());
-            }
-            return compare;
-        });
-
-        films.sort((f1, f2) -> f2.getLikes().size() - f1.getLikes().size());
-        return films;
+        ranked.sort(Comparator.comparing((Integer filmId) -> likes.get(filmId)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return findByIds(ranked.subList(from, (int) Math.min((long) from + count, ranked.size())));
     }
 
     @Override
     public List<Film> getCommonFilms(int userId, int friendId) {
-        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpaa_rating_id, " +
-                "mr.code AS mpaa_code, COUNT(DISTINCT fl.user_id) as likes_count " +
-                "FROM films f " +
-                "LEFT JOIN mpaa_ratings mr ON f.mpaa_rating_id = mr.id " +
-                "LEFT JOIN film_likes fl ON f.id = fl.film_id " +
-                "WHERE f.id IN (" +
-                "    SELECT fl1.film_id " +
-                "    FROM film_likes fl1 " +
-                "    WHERE fl1.user_id = ? " +
-                "    INTERSECT " +
-                "    SELECT fl2.film_id " +
-                "    FROM film_likes fl2 " +
-                "    WHERE fl2.user_id = ?" +
-                ") " +
-                "GROUP BY f.id, f.name, f.description, f.release_date, f.duration, f.mpaa_rating_id, mr.code " +
-                "ORDER BY likes_count DESC, f.id";
-
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, userId, friendId);
-
-        loadGenresAndDirectorsForFilms(films);
-
-        return films;
+        // пересечение множеств лайков в памяти вместо самосоединения film_likes
+        List<Integer> common = new ArrayList<>(likeIndex.commonFilmIds(userId, friendId));
+        Map<Integer, Integer> likes = new HashMap<>(common.size() * 2);
+        for (Integer filmId : common) {
+            likes.put(filmId, likeIndex.likeCount(filmId));
+        }
+        common.sort(Comparator.comparing((Integer filmId) -> likes.get(filmId)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return findByIds(common);
     }
-}
\ No newline at end of file
+}
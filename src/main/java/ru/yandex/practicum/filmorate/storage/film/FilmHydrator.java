@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.dto.DirectorDto;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+// Догружает жанры и режиссёров для любого набора фильмов фиксированным числом запросов:
+// по одному запросу на связь для каждой пачки из CHUNK_SIZE фильмов, а не по шесть запросов на фильм.
+// Читаются только таблицы связей, названия жанров и имена режиссёров берутся из снимка справочников.
+// Лайки берутся из LikeIndex: он учитывает и ещё не записанные при отложенной записи.
+@Component
+@RequiredArgsConstructor
+public class FilmHydrator {
+
+    static final int CHUNK_SIZE = 5000;
+
+    private static final String GENRES_SQL = "SELECT fg.film_id, fg.genre_id FROM film_genre fg";
+    private static final String DIRECTORS_SQL = "SELECT fd.film_id, fd.director_id FROM film_director fd";
+
+    private static final String BY_FILM_IDS = " WHERE %s.film_id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceData;
+    private final LikeIndex likeIndex;
+
+    public void hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Integer, Film> filmById = reset(films);
+        List<Integer> ids = new ArrayList<>(filmById.keySet());
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            Object[] args = {ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())).toArray(new Integer[0])};
+            jdbcTemplate.query("/* FilmHydrator.hydrate */ " + GENRES_SQL + BY_FILM_IDS.formatted("fg") +
+                            " ORDER BY fg.film_id, fg.genre_id",
+                    genreHandler(filmById), args);
+            jdbcTemplate.query("/* FilmHydrator.hydrate */ " + DIRECTORS_SQL + BY_FILM_IDS.formatted("fd") +
+                            " ORDER BY fd.film_id, fd.director_id",
+                    directorHandler(filmById), args);
+        }
+    }
+
+    // Для полного каталога фильтр по id не нужен: связи читаются целиком за два прохода.
+    public void hydrateAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Integer, Film> filmById = reset(films);
+        jdbcTemplate.query("/* FilmHydrator.hydrateAll */ " + GENRES_SQL + " ORDER BY fg.film_id, fg.genre_id",
+                genreHandler(filmById));
+        jdbcTemplate.query("/* FilmHydrator.hydrateAll */ " + DIRECTORS_SQL + " ORDER BY fd.film_id, fd.director_id",
+                directorHandler(filmById));
+    }
+
+    private Map<Integer, Film> reset(List<Film> films) {
+        Map<Integer, Film> filmById = new HashMap<>(films.size() * 2);
+        for (Film film : films) {
+            film.setGenres(new HashSet<>());
+            film.setGenreIds(new ArrayList<>());
+            film.setGenresResponse(new ArrayList<>());
+            film.setDirectorIds(new HashSet<>());
+            film.setDirectors(new ArrayList<>());
+            film.setLikes(likeIndex.likesOf(film.getId()));
+            filmById.put(film.getId(), film);
+        }
+        return filmById;
+    }
+
+    private RowCallbackHandler genreHandler(Map<Integer, Film> filmById) {
+        return rs -> {
+            Film film = filmById.get(rs.getInt("film_id"));
+            if (film == null) {
+                return;
+            }
+            int genreId = rs.getInt("genre_id");
+            film.getGenreIds().add(genreId);
+            film.getGenresResponse().add(referenceData.findGenre(genreId));
+            Genre genre = referenceData.findGenreEnum(genreId);
+            if (genre != null) {
+                film.getGenres().add(genre);
+            }
+        };
+    }
+
+    private RowCallbackHandler directorHandler(Map<Integer, Film> filmById) {
+        return rs -> {
+            Film film = filmById.get(rs.getInt("film_id"));
+            if (film == null) {
+                return;
+            }
+            int directorId = rs.getInt("director_id");
+            DirectorDto director = referenceData.findDirector(directorId);
+            // режиссёр удалён, пока читался фильм: фильм отдаётся без него
+            if (director == null) {
+                return;
+            }
+            film.getDirectorIds().add(directorId);
+            film.getDirectors().add(director);
+        };
+    }
+}
@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Триграммный инвертированный индекс по названиям фильмов и именам режиссёров.
+// Поиск подстроки сводится к пересечению списков триграмм запроса и проверке кандидатов,
+// вместо LIKE '%q%' с полным сканированием таблиц.
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FilmSearchIndex.class);
+
+    private static final int GRAM = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TextIndex titles = new TextIndex();
+    private final TextIndex directors = new TextIndex();
+    private final Map<Integer, Set<Integer>> filmsByDirector = new HashMap<>();
+    private final Map<Integer, Set<Integer>> directorsByFilm = new HashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            directors.clear();
+            filmsByDirector.clear();
+            directorsByFilm.clear();
+            jdbcTemplate.query("/* FilmSearchIndex.rebuild */ SELECT id, name FROM films",
+                    (RowCallbackHandler) rs -> titles.put(rs.getInt("id"), rs.getString("name")));
+            jdbcTemplate.query("/* FilmSearchIndex.rebuild */ SELECT id, name FROM directors",
+                    (RowCallbackHandler) rs -> directors.put(rs.getInt("id"), rs.getString("name")));
+            jdbcTemplate.query("/* FilmSearchIndex.rebuild */ SELECT film_id, director_id FROM film_director",
+                    (RowCallbackHandler) rs -> link(rs.getInt("film_id"), rs.getInt("director_id")));
+            log.info("Поисковый индекс построен: {} фильмов, {} режиссёров", titles.size(), directors.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Возвращает id фильмов, у которых название или имя режиссёра содержит запрос.
+    public Set<Integer> search(String query, boolean byTitle, boolean byDirector) {
+        String folded = fold(query);
+        lock.readLock().lock();
+        try {
+            Set<Integer> result = new HashSet<>();
+            if (byTitle) {
+                result.addAll(titles.find(folded));
+            }
+            if (byDirector) {
+                for (Integer directorId : directors.find(folded)) {
+                    result.addAll(filmsByDirector.getOrDefault(directorId, Set.of()));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void indexFilm(int filmId, String title, Collection<Integer> directorIds) {
+        lock.writeLock().lock();
+        try {
+            titles.put(filmId, title);
+            unlinkFilm(filmId);
+            if (directorIds != null) {
+                directorIds.forEach(directorId -> link(filmId, directorId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            titles.remove(filmId);
+            unlinkFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexDirector(int directorId, String name) {
+        lock.writeLock().lock();
+        try {
+            directors.put(directorId, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        lock.writeLock().lock();
+        try {
+            directors.remove(directorId);
+            Set<Integer> filmIds = filmsByDirector.remove(directorId);
+            if (filmIds != null) {
+                for (Integer filmId : filmIds) {
+                    Set<Integer> directorIds = directorsByFilm.get(filmId);
+                    if (directorIds != null) {
+                        directorIds.remove(directorId);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Регистр и буква «ё» не различаются: «Ёлки» находится по запросу «елки».
+    static String fold(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private void link(int filmId, int directorId) {
+        filmsByDirector.computeIfAbsent(directorId, k -> new HashSet<>()).add(filmId);
+        directorsByFilm.computeIfAbsent(filmId, k -> new HashSet<>()).add(directorId);
+    }
+
+    private void unlinkFilm(int filmId) {
+        Set<Integer> directorIds = directorsByFilm.remove(filmId);
+        if (directorIds != null) {
+            for (Integer directorId : directorIds) {
+                Set<Integer> filmIds = filmsByDirector.get(directorId);
+                if (filmIds != null) {
+                    filmIds.remove(filmId);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String folded) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            grams.add(folded.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static final class TextIndex {
+        private final Map<Integer, String> texts = new HashMap<>();
+        private final Map<String, Set<Integer>> postings = new HashMap<>();
+
+        void put(int id, String text) {
+            remove(id);
+            String folded = fold(text);
+            texts.put(id, folded);
+            for (String gram : grams(folded)) {
+                postings.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+        }
+
+        void remove(int id) {
+            String old = texts.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (String gram : grams(old)) {
+                Set<Integer> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+
+        List<Integer> find(String folded) {
+            if (folded.length() < GRAM) {
+                // короткий запрос не даёт ни одной триграммы — проверяем тексты напрямую
+                return texts.entrySet().stream()
+                        .filter(e -> e.getValue().contains(folded))
+                        .map(Map.Entry::getKey)
+                        .toList();
+            }
+            List<Set<Integer>> lists = new ArrayList<>();
+            for (String gram : grams(folded)) {
+                Set<Integer> ids = postings.get(gram);
+                if (ids == null) {
+                    return List.of();
+                }
+                lists.add(ids);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+            List<Integer> result = new ArrayList<>();
+            for (Integer id : lists.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++) {
+                    inAll = lists.get(i).contains(id);
+                }
+                // триграммы совпали, но могут стоять не подряд — сверяем подстроку
+                if (inAll && texts.get(id).contains(folded)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        int size() {
+            return texts.size();
+        }
+
+        void clear() {
+            texts.clear();
+            postings.clear();
+        }
+    }
+}
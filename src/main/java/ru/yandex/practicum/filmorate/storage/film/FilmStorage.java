@@ -21,7 +21,9 @@ public interface FilmStorage {
 
     List<Film> getFilmsByDirector(int directorId, String sortBy);
 
-    public List<Film> search(String query, String by);
+    List<Film> findPopular(int count, Integer genreId, Integer year);
+
+    List<Film> search(String query, String by, int from, int count);
 
     List<Film> getCommonFilms(int userId, int friendId);
 }
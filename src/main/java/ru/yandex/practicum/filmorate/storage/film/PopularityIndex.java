@@ -0,0 +1,250 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndexListener;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Рейтинги популярности фильмов в памяти: общий, по жанру, по году и по паре жанр+год.
+// Каждый рейтинг упорядочен по числу лайков (по убыванию), при равенстве — по id,
+// поэтому топ-N читается первыми N элементами без обращения к базе.
+// Число лайков при построении берётся из LikeIndex, а не из films.like_count: при отложенной
+// записи счётчик в базе отстаёт. Дальше индекс следит за LikeIndex как подписчик и меняется
+// только на лайки, которые действительно применены после фиксации (или отброшены отложенной записью).
+@Component
+@RequiredArgsConstructor
+public class PopularityIndex implements LikeIndexListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PopularityIndex.class);
+
+    private static final Comparator<Entry> BY_POPULARITY = Comparator
+            .comparingInt((Entry e) -> e.likes).reversed()
+            .thenComparingInt(e -> e.filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LikeIndex likeIndex;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Key, NavigableSet<Entry>> rankings = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        likeIndex.addListener(this);
+        rebuild();
+    }
+
+    public void rebuild() {
+        Map<Integer, Entry> loaded = new HashMap<>();
+        jdbcTemplate.query("/* PopularityIndex.rebuild */ SELECT id, release_date FROM films", rs -> {
+            Date releaseDate = rs.getDate("release_date");
+            Integer year = releaseDate != null ? releaseDate.toLocalDate().getYear() : null;
+            int filmId = rs.getInt("id");
+            loaded.put(filmId, new Entry(filmId, likeIndex.likeCount(filmId), year, new int[0]));
+        });
+        Map<Integer, List<Integer>> genresByFilm = new HashMap<>();
+        jdbcTemplate.query("/* PopularityIndex.rebuild */ SELECT film_id, genre_id FROM film_genre", rs -> {
+            genresByFilm.computeIfAbsent(rs.getInt("film_id"), k -> new ArrayList<>()).add(rs.getInt("genre_id"));
+        });
+
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            rankings.clear();
+            for (Entry entry : loaded.values()) {
+                entry.genreIds = distinct(genresByFilm.getOrDefault(entry.filmId, List.of()));
+                entries.put(entry.filmId, entry);
+                link(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс популярности построен: {} фильмов", loaded.size());
+    }
+
+    public List<Integer> top(int count, Integer genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> ranking = rankings.get(new Key(genreId, year));
+            if (ranking == null || count <= 0) {
+                return List.of();
+            }
+            List<Integer> ids = new ArrayList<>(Math.min(count, ranking.size()));
+            Iterator<Entry> iterator = ranking.iterator();
+            while (iterator.hasNext() && ids.size() < count) {
+                ids.add(iterator.next().filmId);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int likes(int filmId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            return entry != null ? entry.likes : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void onFilmSaved(int filmId, LocalDate releaseDate, Collection<Integer> genreIds, int likes) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.remove(filmId);
+            if (old != null) {
+                unlink(old);
+            }
+            Entry entry = new Entry(filmId, likes, releaseDate != null ? releaseDate.getYear() : null,
+                    distinct(genreIds));
+            entries.put(filmId, entry);
+            link(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onFilmDeleted(int filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.remove(filmId);
+            if (old != null) {
+                unlink(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onLikeAdded(int filmId, int userId) {
+        changeLikes(filmId, 1);
+    }
+
+    @Override
+    public void onLikeRemoved(int filmId, int userId) {
+        changeLikes(filmId, -1);
+    }
+
+    @Override
+    public void onUserDeleted(int userId, RoaringBitmap films) {
+        films.forEach((int filmId) -> changeLikes(filmId, -1));
+    }
+
+    // LikeIndex перечитан из базы — счётчики берутся из него заново
+    @Override
+    public void onRebuilt() {
+        lock.writeLock().lock();
+        try {
+            for (Entry entry : List.copyOf(entries.values())) {
+                int likes = likeIndex.likeCount(entry.filmId);
+                if (likes != entry.likes) {
+                    unlink(entry);
+                    entry.likes = likes;
+                    link(entry);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void changeLikes(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry == null) {
+                return;
+            }
+            // Элемент TreeSet нельзя менять на месте: сначала вынимаем его из всех рейтингов
+            unlink(entry);
+            entry.likes = Math.max(0, entry.likes + delta);
+            link(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(Entry entry) {
+        for (Key key : keysOf(entry)) {
+            rankings.computeIfAbsent(key, k -> new TreeSet<>(BY_POPULARITY)).add(entry);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        for (Key key : keysOf(entry)) {
+            NavigableSet<Entry> ranking = rankings.get(key);
+            if (ranking != null) {
+                ranking.remove(entry);
+                if (ranking.isEmpty()) {
+                    rankings.remove(key);
+                }
+            }
+        }
+    }
+
+    private static List<Key> keysOf(Entry entry) {
+        List<Key> keys = new ArrayList<>(2 + entry.genreIds.length * 2);
+        keys.add(Key.ALL);
+        if (entry.year != null) {
+            keys.add(new Key(null, entry.year));
+        }
+        for (int genreId : entry.genreIds) {
+            keys.add(new Key(genreId, null));
+            if (entry.year != null) {
+                keys.add(new Key(genreId, entry.year));
+            }
+        }
+        return keys;
+    }
+
+    private static int[] distinct(Collection<Integer> genreIds) {
+        if (genreIds == null) {
+            return new int[0];
+        }
+        Set<Integer> unique = new LinkedHashSet<>(genreIds);
+        unique.remove(null);
+        return unique.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private record Key(Integer genreId, Integer year) {
+        static final Key ALL = new Key(null, null);
+    }
+
+    private static final class Entry {
+        private final int filmId;
+        private final Integer year;
+        private int likes;
+        private int[] genreIds;
+
+        private Entry(int filmId, int likes, Integer year, int[] genreIds) {
+            this.filmId = filmId;
+            this.likes = likes;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+    }
+}
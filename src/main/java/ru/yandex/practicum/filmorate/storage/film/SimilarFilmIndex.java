@@ -0,0 +1,357 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndexListener;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+// Похожие фильмы («с этим фильмом лайкают») по косинусной мере совместных лайков:
+// |A ∩ B| / sqrt(|A| · |B|), где A и B — множества лайкнувших фильмы. Для каждого фильма
+// хранятся top-n соседей по убыванию сходства, при равенстве — по id. Полная матрица
+// совместных лайков считается fork/join по строкам на снимке лайков в массивах int в своём
+// пуле, чтобы не занимать общий пул fork/join и потоки планировщика.
+// Лайк или его снятие помечает строку фильма и не больше max-fan-out фильмов пользователя —
+// самые малолайкнутые, у которых один совместный лайк сильнее всего меняет сходство; фоновая
+// задача пересчитывает их точно. Остальные строки поправляет периодическая полная перестройка.
+@Component
+@RequiredArgsConstructor
+public class SimilarFilmIndex implements LikeIndexListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SimilarFilmIndex.class);
+    private static final int[] NONE = new int[0];
+    private static final int ROWS_PER_TASK = 64;
+
+    private final LikeIndex likeIndex;
+
+    @Value("${filmorate.similar-films.top-n:50}")
+    private final int topN;
+
+    @Value("${filmorate.similar-films.batch-size:500}")
+    private final int batchSize;
+
+    @Value("${filmorate.similar-films.max-fan-out:200}")
+    private final int maxFanOut;
+
+    @Value("${filmorate.similar-films.threads:0}")
+    private final int threads;
+
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    // перестройка, пересчёт строк и удаление фильма не должны перезаписывать результаты друг друга
+    private final Lock computeLock = new ReentrantLock();
+    private volatile Map<Integer, int[]> similar = new ConcurrentHashMap<>();
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("similar-films-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        likeIndex.addListener(this);
+        rebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public List<Integer> similar(int filmId, int count) {
+        int[] filmIds = similar.getOrDefault(filmId, NONE);
+        return Arrays.stream(filmIds, 0, Math.min(Math.max(count, 0), filmIds.length)).boxed().toList();
+    }
+
+    // Планировщик только ставит перестройку в свой пул: она идёт секунды и не должна занимать его поток
+    @Scheduled(initialDelayString = "${filmorate.similar-films.rebuild-interval-ms:600000}",
+            fixedDelayString = "${filmorate.similar-films.rebuild-interval-ms:600000}")
+    public void scheduleRebuild() {
+        pool.execute(this::rebuild);
+    }
+
+    public void rebuild() {
+        computeLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            LikeSnapshot snapshot = likeIndex.read(() -> LikeSnapshot.of(likeIndex, null));
+            Map<Integer, int[]> built = new ConcurrentHashMap<>();
+            compute(snapshot, built);
+            similar = built;
+            log.info("Индекс похожих фильмов построен: {} фильмов за {} мс", built.size(),
+                    System.currentTimeMillis() - started);
+        } finally {
+            computeLock.unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.similar-films.refresh-interval-ms:1000}",
+            fixedDelayString = "${filmorate.similar-films.refresh-interval-ms:1000}")
+    public void refresh() {
+        // во время перестройки не ждём: помеченные строки пересчитает следующий запуск
+        if (dirty.isEmpty() || !computeLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Integer> batch = dirty.stream().limit(batchSize).toList();
+            // пометки снимаем до снимка: лайк во время расчёта поставит их заново
+            batch.forEach(dirty::remove);
+            LikeSnapshot snapshot = likeIndex.read(() -> LikeSnapshot.of(likeIndex, batch));
+            compute(snapshot, similar);
+            log.debug("Пересчитаны похожие фильмы для {} фильмов, в очереди {}", batch.size(), dirty.size());
+        } finally {
+            computeLock.unlock();
+        }
+    }
+
+    public int backlog() {
+        return dirty.size();
+    }
+
+    @Override
+    public void onLikeAdded(int filmId, int userId) {
+        markFilmsOf(filmId, userId);
+    }
+
+    @Override
+    public void onLikeRemoved(int filmId, int userId) {
+        markFilmsOf(filmId, userId);
+    }
+
+    @Override
+    public void onUserDeleted(int userId, RoaringBitmap films) {
+        films.forEach((int filmId) -> dirty.add(filmId));
+    }
+
+    @Override
+    public void onFilmDeleted(int filmId, RoaringBitmap users) {
+        computeLock.lock();
+        try {
+            similar.remove(filmId);
+        } finally {
+            computeLock.unlock();
+        }
+        likeIndex.read(() -> {
+            users.forEach((int userId) -> markLeastLiked(userId));
+            return null;
+        });
+    }
+
+    @Override
+    public void onRebuilt() {
+        rebuild();
+    }
+
+    private void markFilmsOf(int filmId, int userId) {
+        dirty.add(filmId);
+        likeIndex.read(() -> {
+            markLeastLiked(userId);
+            return null;
+        });
+    }
+
+    // Помечает не больше maxFanOut фильмов пользователя с наименьшим числом лайков; вызывать внутри read
+    private void markLeastLiked(int userId) {
+        RoaringBitmap films = likeIndex.filmsOf(userId);
+        if (films.getCardinality() <= maxFanOut) {
+            films.forEach((int id) -> dirty.add(id));
+            return;
+        }
+        if (maxFanOut <= 0) {
+            return;
+        }
+        // куча-максимум по числу лайков (старшие биты), младшие — id фильма
+        PriorityQueue<Long> least = new PriorityQueue<>(maxFanOut, Comparator.reverseOrder());
+        films.forEach((int id) -> {
+            long key = (long) likeIndex.usersOf(id).getCardinality() << 32 | id;
+            if (least.size() < maxFanOut) {
+                least.add(key);
+            } else if (key < least.peek()) {
+                least.poll();
+                least.add(key);
+            }
+        });
+        least.forEach(key -> dirty.add((int) (long) key));
+    }
+
+    private void compute(LikeSnapshot snapshot, Map<Integer, int[]> target) {
+        int[][] rows = new int[snapshot.filmIds.length][];
+        pool.invoke(new RowsTask(snapshot, rows, 0, rows.length));
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i].length == 0) {
+                target.remove(snapshot.filmIds[i]);
+            } else {
+                target.put(snapshot.filmIds[i], rows[i]);
+            }
+        }
+    }
+
+    // Строки матрицы для пересчёта и всё, что нужно для них: лайкнувшие эти фильмы, их лайки
+    // и число лайков каждого фильма. Массивы не меняются после построения.
+    private record LikeSnapshot(int[] filmIds, int[][] fans, int[][] filmsByUser, int[] likes) {
+
+        // filmIds == null — все фильмы с лайками; вызывать внутри LikeIndex.read
+        static LikeSnapshot of(LikeIndex likeIndex, Collection<Integer> filmIds) {
+            int[] likes = new int[likeIndex.maxFilmId() + 1];
+            likeIndex.forEachFilm((filmId, users) -> likes[filmId] = users.getCardinality());
+            int[] rows = filmIds == null
+                    ? IntStream.range(0, likes.length).filter(filmId -> likes[filmId] > 0).toArray()
+                    : filmIds.stream().mapToInt(Integer::intValue).toArray();
+            int[][] fans = new int[rows.length][];
+            int[][] filmsByUser = new int[likeIndex.maxUserId() + 1][];
+            for (int i = 0; i < rows.length; i++) {
+                fans[i] = likeIndex.usersOf(rows[i]).toArray();
+                for (int userId : fans[i]) {
+                    if (filmsByUser[userId] == null) {
+                        filmsByUser[userId] = likeIndex.filmsOf(userId).toArray();
+                    }
+                }
+            }
+            return new LikeSnapshot(rows, fans, filmsByUser, likes);
+        }
+    }
+
+    private final class RowsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final LikeSnapshot snapshot;
+        private final int[][] rows;
+        private final int from;
+        private final int to;
+
+        RowsTask(LikeSnapshot snapshot, int[][] rows, int from, int to) {
+            this.snapshot = snapshot;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowsTask(snapshot, rows, from, middle), new RowsTask(snapshot, rows, middle, to));
+                return;
+            }
+            // счётчики совместных лайков и список задетых фильмов — свои у каждой задачи
+            int[] common = new int[snapshot.likes.length];
+            int[] touched = new int[snapshot.likes.length];
+            for (int i = from; i < to; i++) {
+                rows[i] = row(snapshot.filmIds[i], snapshot.fans[i], common, touched);
+            }
+        }
+
+        private int[] row(int filmId, int[] fans, int[] common, int[] touched) {
+            int touchedCount = 0;
+            for (int userId : fans) {
+                for (int otherId : snapshot.filmsByUser[userId]) {
+                    if (otherId != filmId && common[otherId]++ == 0) {
+                        touched[touchedCount++] = otherId;
+                    }
+                }
+            }
+            TopN best = new TopN(topN);
+            for (int t = 0; t < touchedCount; t++) {
+                int otherId = touched[t];
+                double similarity = common[otherId] / Math.sqrt((double) fans.length * snapshot.likes[otherId]);
+                best.offer(similarity, otherId);
+                common[otherId] = 0;
+            }
+            return best.filmIds();
+        }
+    }
+
+    // n лучших в куче-минимуме из long: старшие 32 бита — сходство (float), младшие — инвертированный
+    // id, чтобы при равном сходстве больший ключ был у меньшего id
+    private static final class TopN {
+        private final long[] heap;
+        private int size;
+
+        TopN(int n) {
+            this.heap = new long[n];
+        }
+
+        void offer(double similarity, int filmId) {
+            if (heap.length == 0) {
+                return;
+            }
+            long key = (long) Float.floatToIntBits((float) similarity) << 32 | (Integer.MAX_VALUE - filmId);
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(size++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown();
+            }
+        }
+
+        int[] filmIds() {
+            long[] keys = Arrays.copyOf(heap, size);
+            Arrays.sort(keys);
+            int[] filmIds = new int[size];
+            for (int i = 0; i < size; i++) {
+                filmIds[i] = Integer.MAX_VALUE - (int) keys[size - 1 - i];
+            }
+            return filmIds;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent] <= heap[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown() {
+            int index = 0;
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && heap[left] < heap[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && heap[right] < heap[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(smallest, index);
+                index = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
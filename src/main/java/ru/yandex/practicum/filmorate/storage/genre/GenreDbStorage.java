@@ -1,10 +1,9 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.dto.GenreDto;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.util.List;
 
@@ -12,23 +11,15 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceData;
 
     @Override
     public List<GenreDto> findAll() {
-        String sql = "SELECT id, name FROM genres ORDER BY id";
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-            new GenreDto(rs.getInt("id"), rs.getString("name")));
+        return referenceData.genres();
     }
 
     @Override
     public GenreDto findById(int id) {
-        String sql = "SELECT id, name FROM genres WHERE id = ?";
-        List<GenreDto> list = jdbcTemplate.query(sql, (rs, rowNum) ->
-            new GenreDto(rs.getInt("id"), rs.getString("name")), id);
-        if (list.isEmpty()) {
-            throw new NotFoundException("Жанр с ID " + id + " не найден");
-        }
-        return list.get(0);
+        return referenceData.getGenre(id);
     }
 }
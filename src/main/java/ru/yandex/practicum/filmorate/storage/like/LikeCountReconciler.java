@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Сворачивает полосы film_like_counts в films.like_count и периодически сверяет счётчики с film_likes,
+// исправляя расхождения (например, после ручных правок в базе или сбоя посреди записи).
+@Component
+@RequiredArgsConstructor
+public class LikeCountReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeCountReconciler.class);
+    // ещё не свёрнутые изменения счётчика фильма f
+    private static final String PENDING = "COALESCE((SELECT SUM(c.delta) FROM film_like_counts c " +
+            "WHERE c.film_id = f.id), 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Полосы блокируются на время свёртки, поэтому лайки, пришедшие тем временем, ждут только её конца;
+    // строка фильма обновляется одним оператором на интервал, сколько бы лайков ни пришло
+    @Transactional
+    @Scheduled(initialDelayString = "${filmorate.like-count.fold-interval-ms:1000}",
+            fixedDelayString = "${filmorate.like-count.fold-interval-ms:1000}")
+    public int fold() {
+        List<Object[]> stripes = new ArrayList<>();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        jdbcTemplate.query("/* LikeCountReconciler.fold */ " +
+                "SELECT film_id, stripe, delta FROM film_like_counts WHERE delta <> 0 FOR UPDATE", rs -> {
+                    int filmId = rs.getInt("film_id");
+                    int delta = rs.getInt("delta");
+                    stripes.add(new Object[]{delta, filmId, rs.getInt("stripe")});
+                    deltas.merge(filmId, delta, Integer::sum);
+                });
+        if (stripes.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate("/* LikeCountReconciler.fold */ " +
+                "UPDATE films SET like_count = like_count + ? WHERE id = ?", deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .toList());
+        jdbcTemplate.batchUpdate("/* LikeCountReconciler.fold */ " +
+                "UPDATE film_like_counts SET delta = delta - ? WHERE film_id = ? AND stripe = ?", stripes);
+        return deltas.size();
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.like-count.reconcile-interval-ms:600000}",
+            fixedDelayString = "${filmorate.like-count.reconcile-interval-ms:600000}")
+    public int reconcile() {
+        String count = "(SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)";
+        String sql = "/* LikeCountReconciler.reconcile */ UPDATE films f SET like_count = " +
+                count + " - " + PENDING + " WHERE like_count + " + PENDING + " <> " + count;
+        int repaired = jdbcTemplate.update(sql);
+        if (repaired > 0) {
+            log.warn("Исправлены счётчики лайков у {} фильмов", repaired);
+        }
+        return repaired;
+    }
+}
@@ -1,39 +1,80 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
 
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
+// Пишет лайки в базу и отражает их в LikeIndex после фиксации транзакции; чтения обслуживает индекс
 @Component
 @RequiredArgsConstructor
 public class LikeDbStorage implements LikeStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final LikeIndex likeIndex;
 
+    @Value("${filmorate.like-count.stripes:16}")
+    private final int stripes;
+
+    // Лайк не трогает строку фильма: изменение счётчика ложится в одну из stripes строк
+    // film_like_counts, выбранную случайно, поэтому одновременные лайки популярного фильма почти
+    // никогда не ждут одну блокировку. В films.like_count полосы сворачивает LikeCountReconciler.fold.
     @Override
+    @Transactional
     public void addLike(int filmId, int userId) {
-        String sql = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+        String sql = "/* LikeDbStorage.addLike */ INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
         jdbcTemplate.update(sql, filmId, userId);
+        changeLikeCount(filmId, 1);
+        AfterCommit.run(() -> likeIndex.onLikeAdded(filmId, userId));
     }
 
     @Override
+    @Transactional
     public void removeLike(int filmId, int userId) {
-        String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+        String sql = "/* LikeDbStorage.removeLike */ DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+        if (jdbcTemplate.update(sql, filmId, userId) > 0) {
+            changeLikeCount(filmId, -1);
+        }
+        AfterCommit.run(() -> likeIndex.onLikeRemoved(filmId, userId));
     }
 
     @Override
     public Set<Integer> getLikes(int filmId) {
-        String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
-        return new HashSet<>(jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("user_id"), filmId));
+        return likeIndex.likesOf(filmId);
     }
 
     @Override
     public boolean isLikeExists(int filmId, int userId) {
-        String sql = "SELECT COUNT(*) FROM film_likes WHERE film_id = ? AND user_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, filmId, userId);
-        return count != null && count > 0;
+        return likeIndex.contains(filmId, userId);
+    }
+
+    @Override
+    public List<Integer> getLikedFilmIds(int userId) {
+        return likeIndex.likedFilmIds(userId);
+    }
+
+    private void changeLikeCount(int filmId, int delta) {
+        int stripe = ThreadLocalRandom.current().nextInt(stripes);
+        try {
+            mergeStripe(filmId, stripe, delta);
+        } catch (DuplicateKeyException e) {
+            // полосу одновременно создал другой лайк — теперь она есть, и повтор её обновит
+            mergeStripe(filmId, stripe, delta);
+        }
+    }
+
+    private void mergeStripe(int filmId, int stripe, int delta) {
+        jdbcTemplate.update("/* LikeDbStorage.changeLikeCount */ " +
+                "MERGE INTO film_like_counts c USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER), " +
+                "CAST(? AS INTEGER))) d (film_id, stripe, delta) ON c.film_id = d.film_id AND c.stripe = d.stripe " +
+                "WHEN MATCHED THEN UPDATE SET delta = c.delta + d.delta " +
+                "WHEN NOT MATCHED THEN INSERT (film_id, stripe, delta) VALUES (d.film_id, d.stripe, d.delta)",
+                filmId, stripe, delta);
     }
 }
@@ -0,0 +1,268 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+// Матрица лайков пользователь × фильм в памяти: для каждого пользователя — сжатое множество
+// понравившихся фильмов, для каждого фильма — множество поставивших лайк.
+// Строится из film_likes при старте и обновляется хранилищами лайков и фильмов сразу после
+// записи в базу; проверки лайка, списки лайков, их число и общие фильмы читаются отсюда.
+@Component
+@RequiredArgsConstructor
+public class LikeIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeIndex.class);
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, RoaringBitmap> filmsByUser = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> usersByFilm = new HashMap<>();
+    private int maxUserId;
+    private int maxFilmId;
+    private final List<LikeIndexListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(LikeIndexListener listener) {
+        listeners.add(listener);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, RoaringBitmap> films = new HashMap<>();
+        Map<Integer, RoaringBitmap> users = new HashMap<>();
+        jdbcTemplate.query("/* LikeIndex.rebuild */ " +
+                "SELECT film_id, user_id FROM film_likes", (RowCallbackHandler) rs -> {
+            int filmId = rs.getInt("film_id");
+            int userId = rs.getInt("user_id");
+            films.computeIfAbsent(userId, id -> new RoaringBitmap()).add(filmId);
+            users.computeIfAbsent(filmId, id -> new RoaringBitmap()).add(userId);
+        });
+        films.values().forEach(RoaringBitmap::runOptimize);
+        users.values().forEach(RoaringBitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            filmsByUser.putAll(films);
+            usersByFilm.clear();
+            usersByFilm.putAll(users);
+            maxUserId = films.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            maxFilmId = users.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс лайков построен: {} пользователей, {} фильмов", films.size(), users.size());
+        listeners.forEach(LikeIndexListener::onRebuilt);
+    }
+
+    // Выполняет чтение под блокировкой: множества из filmsOf/usersOf действительны только внутри
+    public <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public RoaringBitmap filmsOf(int userId) {
+        return filmsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    public RoaringBitmap usersOf(int filmId) {
+        return usersByFilm.getOrDefault(filmId, EMPTY);
+    }
+
+    public int maxUserId() {
+        return maxUserId;
+    }
+
+    public int maxFilmId() {
+        return maxFilmId;
+    }
+
+    public boolean contains(int filmId, int userId) {
+        return read(() -> filmsOf(userId).contains(filmId));
+    }
+
+    public int likeCount(int filmId) {
+        return read(() -> usersOf(filmId).getCardinality());
+    }
+
+    // Снимок лайкнувших фильм: не меняется при последующих лайках
+    public Set<Integer> likesOf(int filmId) {
+        return new LikeSet(read(() -> usersOf(filmId).clone()));
+    }
+
+    public List<Integer> likedFilmIds(int userId) {
+        return read(() -> toList(filmsOf(userId)));
+    }
+
+    // Фильмы, лайкнутые обоими пользователями, по возрастанию id
+    public List<Integer> commonFilmIds(int userId, int otherUserId) {
+        return read(() -> toList(RoaringBitmap.and(filmsOf(userId), filmsOf(otherUserId))));
+    }
+
+    // Отпечаток всего множества лайков: не зависит от порядка обхода и меняется при любом
+    // добавленном или снятом лайке; вызывать внутри read
+    public long fingerprint() {
+        long hash = 31L * filmsByUser.size() + usersByFilm.size();
+        for (Map.Entry<Integer, RoaringBitmap> entry : usersByFilm.entrySet()) {
+            long filmId = entry.getKey();
+            IntIterator users = entry.getValue().getIntIterator();
+            while (users.hasNext()) {
+                hash += mix(filmId << 32 | users.next());
+            }
+        }
+        return hash;
+    }
+
+    // Обходит пользователей с их лайками; вызывать внутри read
+    public void forEachUser(BiConsumer<Integer, RoaringBitmap> action) {
+        filmsByUser.forEach(action);
+    }
+
+    // Обходит фильмы с лайкнувшими их; вызывать внутри read
+    public void forEachFilm(BiConsumer<Integer, RoaringBitmap> action) {
+        usersByFilm.forEach(action);
+    }
+
+    // Подписчики узнают только о действительно изменившихся парах: повторный лайк или снятие
+    // отсутствующего не сдвигают производные счётчики
+    public void onLikeAdded(int filmId, int userId) {
+        boolean added;
+        lock.writeLock().lock();
+        try {
+            added = filmsByUser.computeIfAbsent(userId, id -> new RoaringBitmap()).checkedAdd(filmId);
+            usersByFilm.computeIfAbsent(filmId, id -> new RoaringBitmap()).add(userId);
+            maxUserId = Math.max(maxUserId, userId);
+            maxFilmId = Math.max(maxFilmId, filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (added) {
+            listeners.forEach(listener -> listener.onLikeAdded(filmId, userId));
+        }
+    }
+
+    public void onLikeRemoved(int filmId, int userId) {
+        boolean removed;
+        lock.writeLock().lock();
+        try {
+            removed = remove(filmsByUser, userId, filmId);
+            remove(usersByFilm, filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (removed) {
+            listeners.forEach(listener -> listener.onLikeRemoved(filmId, userId));
+        }
+    }
+
+    // Лайки фильма целиком заменены (создание или обновление фильма с полем likes)
+    public void onFilmLikesReplaced(int filmId, Collection<Integer> userIds) {
+        RoaringBitmap replacement = new RoaringBitmap();
+        userIds.forEach(replacement::add);
+        RoaringBitmap added;
+        RoaringBitmap removed;
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap current = usersOf(filmId);
+            added = RoaringBitmap.andNot(replacement, current);
+            removed = RoaringBitmap.andNot(current, replacement);
+            removed.forEach((int userId) -> {
+                remove(filmsByUser, userId, filmId);
+                remove(usersByFilm, filmId, userId);
+            });
+            added.forEach((int userId) -> {
+                filmsByUser.computeIfAbsent(userId, id -> new RoaringBitmap()).add(filmId);
+                usersByFilm.computeIfAbsent(filmId, id -> new RoaringBitmap()).add(userId);
+                maxUserId = Math.max(maxUserId, userId);
+            });
+            if (!added.isEmpty()) {
+                maxFilmId = Math.max(maxFilmId, filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        removed.forEach((int userId) -> listeners.forEach(listener -> listener.onLikeRemoved(filmId, userId)));
+        added.forEach((int userId) -> listeners.forEach(listener -> listener.onLikeAdded(filmId, userId)));
+    }
+
+    public void onUserDeleted(int userId) {
+        RoaringBitmap films;
+        lock.writeLock().lock();
+        try {
+            films = filmsByUser.remove(userId);
+            if (films != null) {
+                films.forEach((int filmId) -> remove(usersByFilm, filmId, userId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (films != null) {
+            listeners.forEach(listener -> listener.onUserDeleted(userId, films));
+        }
+    }
+
+    public void onFilmDeleted(int filmId) {
+        RoaringBitmap users;
+        lock.writeLock().lock();
+        try {
+            users = usersByFilm.remove(filmId);
+            if (users != null) {
+                users.forEach((int userId) -> remove(filmsByUser, userId, filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (users != null) {
+            listeners.forEach(listener -> listener.onFilmDeleted(filmId, users));
+        }
+    }
+
+    private static List<Integer> toList(RoaringBitmap ids) {
+        List<Integer> list = new ArrayList<>(ids.getCardinality());
+        ids.forEach((int id) -> list.add(id));
+        return list;
+    }
+
+    // Финализатор SplitMix64: пары с близкими id дают далёкие слагаемые
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static boolean remove(Map<Integer, RoaringBitmap> bitmaps, int key, int value) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null) {
+            return false;
+        }
+        boolean removed = bitmap.checkedRemove(value);
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(key);
+        }
+        return removed;
+    }
+}
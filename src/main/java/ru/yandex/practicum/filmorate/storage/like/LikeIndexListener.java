@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import org.roaringbitmap.RoaringBitmap;
+
+// Подписчик на изменения LikeIndex: производные индексы обновляются вслед за матрицей лайков.
+// Вызывается после изменения, вне блокировки записи.
+public interface LikeIndexListener {
+
+    default void onLikeAdded(int filmId, int userId) {
+    }
+
+    default void onLikeRemoved(int filmId, int userId) {
+    }
+
+    default void onUserDeleted(int userId, RoaringBitmap films) {
+    }
+
+    default void onFilmDeleted(int filmId, RoaringBitmap users) {
+    }
+
+    // Индекс перестроен целиком
+    default void onRebuilt() {
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+// Неизменяемое множество id поверх сжатого RoaringBitmap: лайки фильма без упаковки каждого id
+// в Integer и без HashSet на каждый загруженный фильм
+public final class LikeSet extends AbstractSet<Integer> {
+
+    private final RoaringBitmap ids;
+
+    LikeSet(RoaringBitmap ids) {
+        this.ids = ids;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer id && ids.contains(id);
+    }
+
+    @Override
+    public int size() {
+        return ids.getCardinality();
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        Iterator<Integer> iterator = ids.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                return iterator.next();
+            }
+        };
+    }
+}
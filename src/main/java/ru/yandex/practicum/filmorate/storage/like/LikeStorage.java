@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
+import java.util.List;
 import java.util.Set;
 
 public interface LikeStorage {
@@ -10,4 +11,6 @@ public interface LikeStorage {
     Set<Integer> getLikes(int filmId);
 
     boolean isLikeExists(int filmId, int userId);
+
+    List<Integer> getLikedFilmIds(int userId);
 }
@@ -0,0 +1,283 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Отложенная запись лайков (включается filmorate.likes.write-behind.enabled=true).
+// Команды like/unlike копятся в ограниченной очереди, где для пары (фильм, пользователь)
+// остаётся только последняя команда, и раз в flush-interval-ms пишутся в базу одной
+// транзакцией: вставка отсутствующих лайков, DELETE для снятых и сдвиг like_count на разницу.
+// LikeIndex обновляется сразу при постановке команды в очередь, поэтому чтения (они идут
+// через индекс) видят ещё не записанные команды.
+//
+// Надёжность: лайк подтверждается клиенту до записи в базу. Несохранённая из-за сбоя пачка
+// возвращается в очередь и повторяется с растущей паузой; отбрасываются только команды,
+// нарушающие ограничения (фильм или пользователь удалён). При аварийном завершении процесса
+// теряются команды из очереди — не больше capacity штук; при штатной остановке очередь
+// дописывается полностью, если база доступна.
+// Событие ленты при этом уже записано, а индекс популярности сверяется с базой при старте.
+@Component
+@Primary
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class WriteBehindLikeStorage implements LikeStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindLikeStorage.class);
+    private static final long MIN_BACKOFF_MS = 10;
+    private static final long MAX_BACKOFF_MS = 5_000;
+
+    private final LikeDbStorage likeDbStorage;
+    private final LikeIndex likeIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${filmorate.likes.write-behind.capacity:10000}")
+    private final int capacity;
+
+    @Value("${filmorate.likes.write-behind.batch-size:1000}")
+    private final int batchSize;
+
+    // pending защищена своим монитором; flushLock не даёт двум сбросам идти одновременно
+    private final Map<Key, Boolean> pending = new LinkedHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // пауза перед повтором после сбоя записи, растёт вдвое до MAX_BACKOFF_MS; под flushLock
+    private long backoffMs;
+    private long retryAt;
+    private TransactionTemplate batchTransaction;
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        enqueue(new Key(filmId, userId), true);
+        likeIndex.onLikeAdded(filmId, userId);
+    }
+
+    @Override
+    public void removeLike(int filmId, int userId) {
+        enqueue(new Key(filmId, userId), false);
+        likeIndex.onLikeRemoved(filmId, userId);
+    }
+
+    @Override
+    public Set<Integer> getLikes(int filmId) {
+        return likeDbStorage.getLikes(filmId);
+    }
+
+    @Override
+    public boolean isLikeExists(int filmId, int userId) {
+        return likeDbStorage.isLikeExists(filmId, userId);
+    }
+
+    @Override
+    public List<Integer> getLikedFilmIds(int userId) {
+        return likeDbStorage.getLikedFilmIds(userId);
+    }
+
+    public int queueSize() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.likes.write-behind.flush-interval-ms:5}",
+            fixedDelayString = "${filmorate.likes.write-behind.flush-interval-ms:5}")
+    public void flush() {
+        flushBatch(false);
+    }
+
+    @PreDestroy
+    public void drain() {
+        int size = queueSize();
+        // при остановке не ждём паузы между повторами, но и не крутимся, если база недоступна
+        while (queueSize() > 0) {
+            if (!flushBatch(true)) {
+                log.error("Очередь лайков не дописана при остановке, потеряно {} команд", queueSize());
+                return;
+            }
+        }
+        if (size > 0) {
+            log.info("Очередь лайков дописана при остановке: {} команд", size);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        // NESTED: своя транзакция, если её нет, и точка сохранения внутри чужой —
+        // сбой пачки не помечает внешнюю транзакцию на откат
+        batchTransaction = new TransactionTemplate(transactionManager);
+        batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    private void enqueue(Key key, boolean liked) {
+        while (true) {
+            synchronized (pending) {
+                if (pending.size() < capacity || pending.containsKey(key)) {
+                    pending.put(key, liked);
+                    return;
+                }
+            }
+            // очередь заполнена: пишущий поток сам сбрасывает пачку в базу, а пока база
+            // недоступна — ждёт, это и есть обратное давление на клиентов
+            if (!flushBatch(false)) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+    }
+
+    // false — ничего не записано: очередь пуста, идёт пауза после сбоя или запись снова не удалась
+    private boolean flushBatch(boolean ignoreBackoff) {
+        flushLock.lock();
+        try {
+            if (!ignoreBackoff && System.nanoTime() - retryAt < 0) {
+                return false;
+            }
+            Map<Key, Boolean> batch = new LinkedHashMap<>();
+            synchronized (pending) {
+                Iterator<Map.Entry<Key, Boolean>> iterator = pending.entrySet().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    Map.Entry<Key, Boolean> command = iterator.next();
+                    batch.put(command.getKey(), command.getValue());
+                    iterator.remove();
+                }
+            }
+            if (batch.isEmpty()) {
+                return false;
+            }
+            if (write(batch)) {
+                backoffMs = 0;
+                return true;
+            }
+            backoffMs = backoffMs == 0 ? MIN_BACKOFF_MS : Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+            retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+            return false;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Команды подтверждены клиенту, поэтому отбрасываются только нарушающие ограничения
+    // (фильм или пользователь уже удалён); при остальных сбоях пачка возвращается в очередь
+    private boolean write(Map<Key, Boolean> batch) {
+        try {
+            batchTransaction.executeWithoutResult(status -> writeBatch(batch));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пачка из {} лайков нарушает ограничения, пишем по одному: {}", batch.size(), e.getMessage());
+        } catch (RuntimeException e) {
+            requeue(batch);
+            log.warn("Пачка из {} лайков не записана, вернём в очередь: {}", batch.size(), e.getMessage());
+            return false;
+        }
+        Map<Key, Boolean> failed = new LinkedHashMap<>();
+        batch.forEach((key, liked) -> {
+            if (!failed.isEmpty()) {
+                failed.put(key, liked);
+                return;
+            }
+            try {
+                batchTransaction.executeWithoutResult(status -> writeBatch(Map.of(key, liked)));
+            } catch (DataIntegrityViolationException ex) {
+                log.warn("Команда лайка фильму {} от пользователя {} отброшена: {}",
+                        key.filmId(), key.userId(), ex.getMessage());
+                // индекс уже показывает команду выполненной — откатываем
+                if (liked) {
+                    likeIndex.onLikeRemoved(key.filmId(), key.userId());
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Команда лайка фильму {} от пользователя {} не записана, вернём в очередь: {}",
+                        key.filmId(), key.userId(), ex.getMessage());
+                failed.put(key, liked);
+            }
+        });
+        if (failed.isEmpty()) {
+            return true;
+        }
+        requeue(failed);
+        return false;
+    }
+
+    // Более новая команда для той же пары, пришедшая во время записи, остаётся в силе
+    private void requeue(Map<Key, Boolean> commands) {
+        synchronized (pending) {
+            Map<Key, Boolean> merged = new LinkedHashMap<>(commands);
+            merged.putAll(pending);
+            pending.clear();
+            pending.putAll(merged);
+        }
+    }
+
+    // Счётчик правится на фактическое число вставленных и удалённых строк: вставка идёт только
+    // при отсутствии пары, поэтому повтор той же команды не меняет ни строки, ни like_count
+    private void writeBatch(Map<Key, Boolean> batch) {
+        List<Key> likeKeys = new ArrayList<>();
+        List<Object[]> likes = new ArrayList<>();
+        List<Key> unlikeKeys = new ArrayList<>();
+        List<Object[]> unlikes = new ArrayList<>();
+        batch.forEach((key, liked) -> {
+            if (liked) {
+                likeKeys.add(key);
+                likes.add(new Object[]{key.filmId(), key.userId(), key.filmId(), key.userId()});
+            } else {
+                unlikeKeys.add(key);
+                unlikes.add(new Object[]{key.filmId(), key.userId()});
+            }
+        });
+        Map<Integer, Integer> deltas = new HashMap<>();
+        if (!likes.isEmpty()) {
+            int[] inserted = jdbcTemplate.batchUpdate("/* WriteBehindLikeStorage.writeBatch */ " +
+                    "INSERT INTO film_likes (film_id, user_id) SELECT ?, ? " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)", likes);
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i] > 0) {
+                    deltas.merge(likeKeys.get(i).filmId(), 1, Integer::sum);
+                }
+            }
+        }
+        if (!unlikes.isEmpty()) {
+            int[] deleted = jdbcTemplate.batchUpdate("/* WriteBehindLikeStorage.writeBatch */ " +
+                    "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?",
+                    unlikes);
+            for (int i = 0; i < deleted.length; i++) {
+                if (deleted[i] > 0) {
+                    deltas.merge(unlikeKeys.get(i).filmId(), -1, Integer::sum);
+                }
+            }
+        }
+        List<Object[]> counts = new ArrayList<>();
+        deltas.forEach((filmId, delta) -> {
+            if (delta != 0) {
+                counts.add(new Object[]{delta, filmId});
+            }
+        });
+        if (!counts.isEmpty()) {
+            jdbcTemplate.batchUpdate("/* WriteBehindLikeStorage.writeBatch */ " +
+                    "UPDATE films SET like_count = like_count + ? WHERE id = ?", counts);
+        }
+    }
+
+    private record Key(int filmId, int userId) {
+    }
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+// Векторы пользователей и фильмов после матричного разложения. Id отсортированы по возрастанию,
+// вектор i-го id занимает factors чисел начиная с i * factors.
+// fingerprint — отпечаток лайков из LikeIndex, на которых модель обучена.
+// Файл: сигнатура, factors, fingerprint, число пользователей и фильмов, их id, затем векторы (float).
+public final class AlsModel {
+
+    private static final int MAGIC = 0x414C5332;
+
+    private final int factors;
+    private final long fingerprint;
+    private final int[] userIds;
+    private final int[] filmIds;
+    private final float[] userFactors;
+    private final float[] filmFactors;
+
+    public AlsModel(int factors, long fingerprint, int[] userIds, int[] filmIds, float[] userFactors,
+                    float[] filmFactors) {
+        this.factors = factors;
+        this.fingerprint = fingerprint;
+        this.userIds = userIds;
+        this.filmIds = filmIds;
+        this.userFactors = userFactors;
+        this.filmFactors = filmFactors;
+    }
+
+    public int factors() {
+        return factors;
+    }
+
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public int films() {
+        return filmIds.length;
+    }
+
+    public int users() {
+        return userIds.length;
+    }
+
+    public int filmId(int index) {
+        return filmIds[index];
+    }
+
+    public int userId(int index) {
+        return userIds[index];
+    }
+
+    public float[] filmFactors() {
+        return filmFactors;
+    }
+
+    public float[] userFactors() {
+        return userFactors;
+    }
+
+    // Вектор пользователя или null, если его не было при обучении
+    public float[] userVector(int userId) {
+        return vector(userFactors, Arrays.binarySearch(userIds, userId));
+    }
+
+    public float[] filmVector(int filmId) {
+        return vector(filmFactors, Arrays.binarySearch(filmIds, filmId));
+    }
+
+    public long sizeBytes() {
+        return 4L * (userIds.length + filmIds.length + userFactors.length + filmFactors.length);
+    }
+
+    // Пишет во временный файл и подменяет им прежний, чтобы читатель не увидел файл наполовину
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(factors);
+            out.writeLong(fingerprint);
+            out.writeInt(userIds.length);
+            out.writeInt(filmIds.length);
+            for (int id : userIds) {
+                out.writeInt(id);
+            }
+            for (int id : filmIds) {
+                out.writeInt(id);
+            }
+            for (float value : userFactors) {
+                out.writeFloat(value);
+            }
+            for (float value : filmFactors) {
+                out.writeFloat(value);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static AlsModel read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Файл " + path + " не является моделью рекомендаций");
+            }
+            int factors = in.readInt();
+            long fingerprint = in.readLong();
+            int[] userIds = new int[in.readInt()];
+            int[] filmIds = new int[in.readInt()];
+            for (int i = 0; i < userIds.length; i++) {
+                userIds[i] = in.readInt();
+            }
+            for (int i = 0; i < filmIds.length; i++) {
+                filmIds[i] = in.readInt();
+            }
+            float[] userFactors = new float[userIds.length * factors];
+            float[] filmFactors = new float[filmIds.length * factors];
+            for (int i = 0; i < userFactors.length; i++) {
+                userFactors[i] = in.readFloat();
+            }
+            for (int i = 0; i < filmFactors.length; i++) {
+                filmFactors[i] = in.readFloat();
+            }
+            return new AlsModel(factors, fingerprint, userIds, filmIds, userFactors, filmFactors);
+        }
+    }
+
+    private float[] vector(float[] data, int index) {
+        return index < 0 ? null : Arrays.copyOfRange(data, index * factors, (index + 1) * factors);
+    }
+}
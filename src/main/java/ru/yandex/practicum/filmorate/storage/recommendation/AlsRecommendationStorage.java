@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Рекомендации по матричному разложению лайков: фильмы с наибольшим скалярным произведением
+// векторов пользователя и фильма, которых пользователь ещё не лайкал. Модель обучается по
+// расписанию (AlsTrainer) в своём пуле, сохраняется в файл и подхватывается из него при старте;
+// поиск идёт по графу HNSW над векторами фильмов. Пока первой модели нет (файла нет, он
+// обучен с другим числом факторов или на других лайках — например, до пересоздания базы),
+// рекомендации строятся по ближайшему соседу в LikeIndex.
+// Лайки после обучения учитываются только как исключение уже лайкнутых фильмов, новые
+// пользователи получают рекомендации после следующего обучения.
+@Component
+@ConditionalOnProperty(name = "filmorate.recommendations.engine", havingValue = "als")
+@RequiredArgsConstructor
+public class AlsRecommendationStorage implements RecommendationStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(AlsRecommendationStorage.class);
+    private static final long SEED = 42;
+
+    private final LikeIndex likeIndex;
+
+    @Value("${filmorate.recommendations.als.factors:32}")
+    private final int factors;
+
+    @Value("${filmorate.recommendations.als.iterations:10}")
+    private final int iterations;
+
+    @Value("${filmorate.recommendations.als.regularization:0.1}")
+    private final double regularization;
+
+    @Value("${filmorate.recommendations.als.alpha:40}")
+    private final double alpha;
+
+    @Value("${filmorate.recommendations.als.model-path:./db/als-model.bin}")
+    private final Path modelPath;
+
+    @Value("${filmorate.recommendations.als.count:20}")
+    private final int count;
+
+    @Value("${filmorate.recommendations.als.hnsw.m:16}")
+    private final int m;
+
+    @Value("${filmorate.recommendations.als.hnsw.ef-construction:100}")
+    private final int efConstruction;
+
+    @Value("${filmorate.recommendations.als.hnsw.ef-search:64}")
+    private final int efSearch;
+
+    @Value("${filmorate.recommendations.als.threads:0}")
+    private final int threads;
+
+    private final AtomicBoolean training = new AtomicBoolean();
+    private volatile Serving serving;
+    private RecommendationStorage fallback;
+    // параллельные шаги AlsTrainer выполняются в пуле задачи, которая их запустила
+    private ForkJoinPool trainer;
+
+    @PostConstruct
+    public void load() {
+        fallback = new BitsetRecommendationStorage(likeIndex, 1, "overlap");
+        trainer = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("als-trainer-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        if (Files.exists(modelPath)) {
+            try {
+                AlsModel model = AlsModel.read(modelPath);
+                if (model.factors() != factors) {
+                    log.info("Модель рекомендаций в {} обучена с {} факторами вместо {}, переобучаем",
+                            modelPath, model.factors(), factors);
+                } else if (model.fingerprint() != likeIndex.read(likeIndex::fingerprint)) {
+                    log.info("Модель рекомендаций в {} обучена на других лайках, переобучаем", modelPath);
+                } else {
+                    serve(model);
+                    log.info("Модель рекомендаций загружена из {}", modelPath);
+                    return;
+                }
+            } catch (IOException e) {
+                log.warn("Модель рекомендаций не прочитана из {}: {}", modelPath, e.getMessage());
+            }
+        }
+        scheduleTraining();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trainer.shutdownNow();
+    }
+
+    // Планировщик только ставит обучение в свой пул; повторно, пока идёт предыдущее, не ставит
+    @Scheduled(initialDelayString = "${filmorate.recommendations.als.train-interval-ms:3600000}",
+            fixedDelayString = "${filmorate.recommendations.als.train-interval-ms:3600000}")
+    public void scheduleTraining() {
+        if (training.compareAndSet(false, true)) {
+            trainer.execute(() -> {
+                try {
+                    train();
+                } catch (RuntimeException e) {
+                    log.error("Модель рекомендаций не обучена", e);
+                } finally {
+                    training.set(false);
+                }
+            });
+        }
+    }
+
+    public void train() {
+        long started = System.currentTimeMillis();
+        AlsModel model = new AlsTrainer(factors, iterations, regularization, alpha, SEED).train(likeIndex);
+        long trained = System.currentTimeMillis();
+        try {
+            model.write(modelPath);
+        } catch (IOException e) {
+            log.warn("Модель рекомендаций не сохранена в {}: {}", modelPath, e.getMessage());
+        }
+        serve(model);
+        log.info("Модель рекомендаций обучена: {} пользователей, {} фильмов, обучение {} мс, индекс {} мс",
+                model.users(), model.films(), trained - started, System.currentTimeMillis() - trained);
+    }
+
+    @Override
+    public Optional<Integer> findMostSimilarUserId(int userId) {
+        Serving current = serving;
+        if (current == null) {
+            return fallback.findMostSimilarUserId(userId);
+        }
+        AlsModel model = current.model();
+        int modelFactors = model.factors();
+        float[] vector = model.userVector(userId);
+        if (vector == null) {
+            return Optional.empty();
+        }
+        // пользователей с близким вектором ищем перебором: нужен редко и не на горячем пути
+        float[] users = model.userFactors();
+        int best = -1;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (int index = 0; index < model.users(); index++) {
+            int id = model.userId(index);
+            if (id == userId) {
+                continue;
+            }
+            double dot = 0;
+            double norm = 0;
+            for (int i = 0; i < modelFactors; i++) {
+                float value = users[index * modelFactors + i];
+                dot += vector[i] * value;
+                norm += value * value;
+            }
+            double similarity = norm == 0 ? 0 : dot / Math.sqrt(norm);
+            if (similarity > bestSimilarity) {
+                best = id;
+                bestSimilarity = similarity;
+            }
+        }
+        return best < 0 ? Optional.empty() : Optional.of(best);
+    }
+
+    @Override
+    public List<Integer> findRecommendedFilmIds(int userId, int similarUserId) {
+        return likeIndex.read(() -> NeighbourRanking.toList(
+                RoaringBitmap.andNot(likeIndex.filmsOf(similarUserId), likeIndex.filmsOf(userId))));
+    }
+
+    // Рекомендации зависят от модели, а не от соседей
+    @Override
+    public List<Integer> findNeighbourIds(int userId) {
+        return serving == null ? fallback.findNeighbourIds(userId) : List.of();
+    }
+
+    @Override
+    public Recommendations findRecommendations(int userId) {
+        if (serving == null) {
+            return fallback.findRecommendations(userId);
+        }
+        return new Recommendations(List.of(), findRecommendedFilmIds(userId));
+    }
+
+    @Override
+    public List<Integer> findRecommendedFilmIds(int userId) {
+        Serving current = serving;
+        if (current == null) {
+            return fallback.findRecommendedFilmIds(userId);
+        }
+        float[] vector = current.model().userVector(userId);
+        if (vector == null) {
+            return List.of();
+        }
+        RoaringBitmap liked = likeIndex.read(() -> likeIndex.filmsOf(userId).clone());
+        int k = count + liked.getCardinality();
+        List<Integer> filmIds = new ArrayList<>(count);
+        for (int node : current.index().search(vector, k, Math.max(efSearch, k))) {
+            int filmId = current.model().filmId(node);
+            if (!liked.contains(filmId)) {
+                filmIds.add(filmId);
+                if (filmIds.size() == count) {
+                    break;
+                }
+            }
+        }
+        return filmIds;
+    }
+
+    // Кандидаты — ближайшие по скалярному произведению, порядок — по косинусу. Без модели или
+    // для фильма, которого модель не видела, — пусто: тогда похожие берутся из SimilarFilmIndex
+    @Override
+    public Optional<List<Integer>> findSimilarFilmIds(int filmId, int limit) {
+        Serving current = serving;
+        if (current == null) {
+            return Optional.empty();
+        }
+        float[] vector = current.model().filmVector(filmId);
+        if (vector == null) {
+            return Optional.empty();
+        }
+        int ef = Math.max(efSearch, limit + 1);
+        List<Scored> scored = new ArrayList<>(ef);
+        for (int node : current.index().search(vector, ef, ef)) {
+            int id = current.model().filmId(node);
+            if (id != filmId) {
+                double norm = Math.sqrt(current.index().dot(current.model().filmVector(id), node));
+                scored.add(new Scored(id, norm == 0 ? 0 : current.index().dot(vector, node) / norm));
+            }
+        }
+        return Optional.of(scored.stream()
+                .sorted(Comparator.comparingDouble(Scored::score).reversed().thenComparingInt(Scored::filmId))
+                .limit(limit)
+                .map(Scored::filmId)
+                .toList());
+    }
+
+    int servedFactors() {
+        Serving current = serving;
+        return current == null ? 0 : current.model().factors();
+    }
+
+    private void serve(AlsModel model) {
+        serving = new Serving(model, HnswIndex.build(model.filmFactors(), model.factors(), m, efConstruction, SEED));
+    }
+
+    private record Serving(AlsModel model, HnswIndex index) {
+    }
+
+    private record Scored(int filmId, double score) {
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Матричное разложение по неявным оценкам (ALS, Hu, Koren, Volinsky): лайк — предпочтение 1
+// с уверенностью 1 + alpha, отсутствие лайка — 0 с уверенностью 1. Шаг решает для каждой строки
+// систему (YᵀY + alpha · Σ yᵢyᵢᵀ + λI) x = (1 + alpha) · Σ yᵢ, суммы по лайкнутым, поочерёдно для
+// пользователей и фильмов. Строки независимы и решаются параллельно на всех ядрах.
+public final class AlsTrainer {
+
+    private static final int ROWS_PER_CHUNK = 256;
+
+    private final int factors;
+    private final int iterations;
+    private final double regularization;
+    private final double alpha;
+    private final long seed;
+
+    public AlsTrainer(int factors, int iterations, double regularization, double alpha, long seed) {
+        this.factors = factors;
+        this.iterations = iterations;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.seed = seed;
+    }
+
+    public AlsModel train(LikeIndex likeIndex) {
+        Matrix matrix = likeIndex.read(() -> Matrix.of(likeIndex));
+        Random random = new Random(seed);
+        float[] userFactors = new float[matrix.userIds.length * factors];
+        float[] filmFactors = new float[matrix.filmIds.length * factors];
+        for (int i = 0; i < filmFactors.length; i++) {
+            filmFactors[i] = (float) (random.nextGaussian() * 0.01);
+        }
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            solve(userFactors, filmFactors, matrix.filmsByUser);
+            solve(filmFactors, userFactors, matrix.usersByFilm);
+        }
+        return new AlsModel(factors, matrix.fingerprint, matrix.userIds, matrix.filmIds, userFactors, filmFactors);
+    }
+
+    private void solve(float[] target, float[] fixed, int[][] likes) {
+        double[] gram = gram(fixed);
+        int chunks = (likes.length + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            double[] a = new double[factors * factors];
+            double[] b = new double[factors];
+            int to = Math.min(likes.length, (chunk + 1) * ROWS_PER_CHUNK);
+            for (int row = chunk * ROWS_PER_CHUNK; row < to; row++) {
+                System.arraycopy(gram, 0, a, 0, gram.length);
+                Arrays.fill(b, 0);
+                for (int i = 0; i < factors; i++) {
+                    a[i * factors + i] += regularization;
+                }
+                for (int col : likes[row]) {
+                    int offset = col * factors;
+                    for (int i = 0; i < factors; i++) {
+                        double yi = fixed[offset + i];
+                        b[i] += (1 + alpha) * yi;
+                        for (int j = 0; j <= i; j++) {
+                            a[i * factors + j] += alpha * yi * fixed[offset + j];
+                        }
+                    }
+                }
+                choleskySolve(a, b);
+                for (int i = 0; i < factors; i++) {
+                    target[row * factors + i] = (float) b[i];
+                }
+            }
+        });
+    }
+
+    // YᵀY, нижний треугольник
+    private double[] gram(float[] vectors) {
+        int rows = vectors.length / factors;
+        double[] gram = new double[factors * factors];
+        for (int row = 0; row < rows; row++) {
+            int offset = row * factors;
+            for (int i = 0; i < factors; i++) {
+                double yi = vectors[offset + i];
+                for (int j = 0; j <= i; j++) {
+                    gram[i * factors + j] += yi * vectors[offset + j];
+                }
+            }
+        }
+        return gram;
+    }
+
+    // Решает A x = b по нижнему треугольнику симметричной положительно определённой A; x пишется в b
+    private void choleskySolve(double[] a, double[] b) {
+        int n = factors;
+        for (int j = 0; j < n; j++) {
+            double diagonal = a[j * n + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[j * n + k] * a[j * n + k];
+            }
+            diagonal = Math.sqrt(diagonal);
+            a[j * n + j] = diagonal;
+            for (int i = j + 1; i < n; i++) {
+                double sum = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= a[i * n + k] * a[j * n + k];
+                }
+                a[i * n + j] = sum / diagonal;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= a[i * n + k] * b[k];
+            }
+            b[i] = sum / a[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = b[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= a[k * n + i] * b[k];
+            }
+            b[i] = sum / a[i * n + i];
+        }
+    }
+
+    // Лайки в индексах строк: пользователи и фильмы пронумерованы по возрастанию id
+    private record Matrix(long fingerprint, int[] userIds, int[] filmIds, int[][] filmsByUser, int[][] usersByFilm) {
+
+        static Matrix of(LikeIndex likeIndex) {
+            int[] userIndex = new int[likeIndex.maxUserId() + 1];
+            int[] filmIndex = new int[likeIndex.maxFilmId() + 1];
+            Arrays.fill(userIndex, -1);
+            Arrays.fill(filmIndex, -1);
+            likeIndex.forEachUser((userId, films) -> userIndex[userId] = 0);
+            likeIndex.forEachFilm((filmId, users) -> filmIndex[filmId] = 0);
+            int[] userIds = number(userIndex);
+            int[] filmIds = number(filmIndex);
+            int[][] filmsByUser = new int[userIds.length][];
+            int[][] usersByFilm = new int[filmIds.length][];
+            for (int i = 0; i < userIds.length; i++) {
+                filmsByUser[i] = likeIndex.filmsOf(userIds[i]).stream().map(id -> filmIndex[id]).toArray();
+            }
+            for (int i = 0; i < filmIds.length; i++) {
+                usersByFilm[i] = likeIndex.usersOf(filmIds[i]).stream().map(id -> userIndex[id]).toArray();
+            }
+            return new Matrix(likeIndex.fingerprint(), userIds, filmIds, filmsByUser, usersByFilm);
+        }
+
+        // Нумерует отмеченные id по порядку и возвращает их список
+        private static int[] number(int[] index) {
+            int[] ids = IntStream.range(0, index.length).filter(id -> index[id] >= 0).toArray();
+            for (int i = 0; i < ids.length; i++) {
+                index[ids[i]] = i;
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// Приближённый поиск векторов с наибольшим скалярным произведением с запросом: иерархический
+// граф «малого мира» (HNSW, Malkov, Yashunin). Узел попадает на уровни 0..L, где L убывает
+// геометрически; поиск спускается жадно по верхним уровням и ведёт лучевой поиск ширины ef
+// на нулевом. После построения индекс не меняется, поиск потокобезопасен.
+public final class HnswIndex {
+
+    private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(Candidate::distance);
+
+    private final float[] vectors;
+    private final int dimension;
+    private final int m;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final Random random;
+    // узел -> уровень -> соседи; число соседей — в linkCounts
+    private final int[][][] links;
+    private final int[][] linkCounts;
+    private final ThreadLocal<Visited> visited;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private HnswIndex(float[] vectors, int dimension, int m, int efConstruction, long seed) {
+        this.vectors = vectors;
+        this.dimension = dimension;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.random = new Random(seed);
+        int size = dimension == 0 ? 0 : vectors.length / dimension;
+        this.links = new int[size][][];
+        this.linkCounts = new int[size][];
+        this.visited = ThreadLocal.withInitial(() -> new Visited(size));
+    }
+
+    public static HnswIndex build(float[] vectors, int dimension, int m, int efConstruction, long seed) {
+        HnswIndex index = new HnswIndex(vectors, dimension, m, efConstruction, seed);
+        for (int node = 0; node < index.links.length; node++) {
+            index.insert(node);
+        }
+        return index;
+    }
+
+    public int size() {
+        return links.length;
+    }
+
+    // Векторы не считаются: они принадлежат модели
+    public long sizeBytes() {
+        long bytes = 0;
+        for (int[][] levels : links) {
+            for (int[] level : levels) {
+                bytes += 16 + 4L * level.length;
+            }
+            bytes += 2 * (16 + 4L * levels.length);
+        }
+        return bytes;
+    }
+
+    // Номера до k узлов по убыванию скалярного произведения с запросом
+    public int[] search(float[] query, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return new int[0];
+        }
+        int nearest = entryPoint;
+        for (int level = maxLevel; level > 0; level--) {
+            nearest = greedy(query, nearest, level);
+        }
+        List<Candidate> found = searchLevel(query, nearest, Math.max(ef, k), 0);
+        int[] result = new int[Math.min(k, found.size())];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = found.get(i).node();
+        }
+        return result;
+    }
+
+    public float dot(float[] query, int node) {
+        float sum = 0;
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors[offset + i];
+        }
+        return sum;
+    }
+
+    private void insert(int node) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        links[node] = new int[level + 1][];
+        linkCounts[node] = new int[level + 1];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[capacity(l)];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        float[] query = vector(node);
+        int nearest = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            nearest = greedy(query, nearest, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> found = searchLevel(query, nearest, efConstruction, l);
+            for (int i = 0; i < Math.min(m, found.size()); i++) {
+                int neighbour = found.get(i).node();
+                link(node, neighbour, l);
+                link(neighbour, node, l);
+            }
+            nearest = found.getFirst().node();
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    // Добавляет связь from -> to; если соседей больше допустимого, оставляет ближайших к from
+    private void link(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int count = linkCounts[from][level];
+        if (count < neighbours.length) {
+            neighbours[count] = to;
+            linkCounts[from][level] = count + 1;
+            return;
+        }
+        float[] origin = vector(from);
+        int farthest = -1;
+        float farthestDistance = distance(origin, to);
+        for (int i = 0; i < count; i++) {
+            float d = distance(origin, neighbours[i]);
+            if (d > farthestDistance) {
+                farthest = i;
+                farthestDistance = d;
+            }
+        }
+        if (farthest >= 0) {
+            neighbours[farthest] = to;
+        }
+    }
+
+    private int greedy(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 0; i < linkCounts[current][level]; i++) {
+                float d = distance(query, neighbours[i]);
+                if (d < currentDistance) {
+                    current = neighbours[i];
+                    currentDistance = d;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // До ef ближайших к запросу узлов уровня по возрастанию расстояния
+    private List<Candidate> searchLevel(float[] query, int start, int ef, int level) {
+        Visited seen = visited.get();
+        seen.next();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(NEAREST_FIRST.reversed());
+        Candidate first = new Candidate(start, distance(query, start));
+        seen.mark(start);
+        candidates.add(first);
+        results.add(first);
+        while (!candidates.isEmpty()) {
+            Candidate current = candidates.poll();
+            if (results.size() >= ef && current.distance() > results.peek().distance()) {
+                break;
+            }
+            int[] neighbours = links[current.node()][level];
+            for (int i = 0; i < linkCounts[current.node()][level]; i++) {
+                int neighbour = neighbours[i];
+                if (!seen.mark(neighbour)) {
+                    continue;
+                }
+                float d = distance(query, neighbour);
+                if (results.size() < ef || d < results.peek().distance()) {
+                    Candidate candidate = new Candidate(neighbour, d);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(NEAREST_FIRST);
+        return sorted;
+    }
+
+    private int capacity(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    // Расстояние — скалярное произведение со знаком минус: ближе тот, у кого оно больше
+    private float distance(float[] query, int node) {
+        return -dot(query, node);
+    }
+
+    private float[] vector(int node) {
+        float[] vector = new float[dimension];
+        System.arraycopy(vectors, node * dimension, vector, 0, dimension);
+        return vector;
+    }
+
+    private record Candidate(int node, float distance) {
+    }
+
+    // Отметки посещённых узлов без очистки массива: узел посещён, если отметка равна номеру поиска
+    private static final class Visited {
+        private final int[] marks;
+        private int epoch;
+
+        Visited(int size) {
+            this.marks = new int[size];
+        }
+
+        void next() {
+            epoch++;
+        }
+
+        boolean mark(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
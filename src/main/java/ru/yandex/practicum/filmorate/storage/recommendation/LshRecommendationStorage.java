@@ -0,0 +1,305 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndexListener;
+import ru.yandex.practicum.filmorate.storage.recommendation.NeighbourRanking.Neighbour;
+import ru.yandex.practicum.filmorate.storage.recommendation.NeighbourRanking.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Приближённый поиск соседей для большого числа пользователей: MinHash-подпись лайков каждого
+// пользователя (bands × rows минимумов хешей фильмов) раскладывается по корзинам LSH — по одной
+// на каждую полосу из rows значений. Кандидаты в соседи — попавшие с пользователем хотя бы в одну
+// корзину; их сходство затем считается точно по LikeIndex, так что ошибаться поиск может только
+// пропуском соседа. Порог сходства, выше которого сосед почти наверняка найдётся, — около
+// (1 / bands) ^ (1 / rows). Подписи обновляются по событиям LikeIndex: лайк только уменьшает
+// минимумы, снятие лайка пересчитывает подпись пользователя.
+@Component
+@ConditionalOnProperty(name = "filmorate.recommendations.engine", havingValue = "lsh")
+@RequiredArgsConstructor
+public class LshRecommendationStorage implements RecommendationStorage, LikeIndexListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LshRecommendationStorage.class);
+
+    private final LikeIndex likeIndex;
+
+    @Value("${filmorate.recommendations.lsh.bands:64}")
+    private final int bands;
+
+    @Value("${filmorate.recommendations.lsh.rows:3}")
+    private final int rows;
+
+    @Value("${filmorate.recommendations.neighbours:1}")
+    private final int neighbours;
+
+    @Value("${filmorate.recommendations.similarity:overlap}")
+    private final String similarity;
+
+    // Порядок блокировок: сначала чтение LikeIndex, затем lock — как в запросах, так и в обновлениях
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    // (полоса, хеш полосы) -> пользователи: Integer, пока он один (таких корзин большинство),
+    // затем RoaringBitmap
+    private final Map<Long, Object> buckets = new HashMap<>();
+    private long[] seeds;
+
+    @PostConstruct
+    public void init() {
+        seeds = new long[bands * rows];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = mix(0x5DEECE66DL + i);
+        }
+        likeIndex.addListener(this);
+        onRebuilt();
+    }
+
+    @Override
+    public Optional<Integer> findMostSimilarUserId(int userId) {
+        return likeIndex.read(() -> nearest(userId, likeIndex.filmsOf(userId), 1).stream()
+                .findFirst()
+                .map(Neighbour::userId));
+    }
+
+    @Override
+    public List<Integer> findRecommendedFilmIds(int userId, int similarUserId) {
+        return likeIndex.read(() -> NeighbourRanking.toList(
+                RoaringBitmap.andNot(likeIndex.filmsOf(similarUserId), likeIndex.filmsOf(userId))));
+    }
+
+    @Override
+    public List<Integer> findNeighbourIds(int userId) {
+        return likeIndex.read(() -> nearest(userId, likeIndex.filmsOf(userId), neighbours).stream()
+                .map(Neighbour::userId)
+                .toList());
+    }
+
+    @Override
+    public List<Integer> findRecommendedFilmIds(int userId) {
+        return likeIndex.read(() -> {
+            RoaringBitmap liked = likeIndex.filmsOf(userId);
+            return NeighbourRanking.rankFilms(likeIndex, liked, nearest(userId, liked, neighbours));
+        });
+    }
+
+    @Override
+    public Recommendations findRecommendations(int userId) {
+        return likeIndex.read(() -> {
+            RoaringBitmap liked = likeIndex.filmsOf(userId);
+            List<Neighbour> nearest = nearest(userId, liked, neighbours);
+            return new Recommendations(nearest.stream().map(Neighbour::userId).toList(),
+                    NeighbourRanking.rankFilms(likeIndex, liked, nearest));
+        });
+    }
+
+    @Override
+    public void onLikeAdded(int filmId, int userId) {
+        likeIndex.read(() -> {
+            // событие могло прийти после снятия этого же лайка
+            if (!likeIndex.filmsOf(userId).contains(filmId)) {
+                return null;
+            }
+            lock.writeLock().lock();
+            try {
+                int[] old = signatures.get(userId);
+                int[] signature = old == null ? emptySignature() : old.clone();
+                for (int i = 0; i < signature.length; i++) {
+                    signature[i] = Math.min(signature[i], hash(filmId, i));
+                }
+                replace(userId, old, signature);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void onLikeRemoved(int filmId, int userId) {
+        recompute(List.of(userId));
+    }
+
+    @Override
+    public void onUserDeleted(int userId, RoaringBitmap films) {
+        lock.writeLock().lock();
+        try {
+            replace(userId, signatures.get(userId), null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onFilmDeleted(int filmId, RoaringBitmap users) {
+        recompute(NeighbourRanking.toList(users));
+    }
+
+    @Override
+    public void onRebuilt() {
+        likeIndex.read(() -> {
+            Map<Integer, int[]> computed = new HashMap<>();
+            likeIndex.forEachUser((userId, films) -> computed.put(userId, signatureOf(films)));
+            lock.writeLock().lock();
+            try {
+                signatures.clear();
+                buckets.clear();
+                computed.forEach((userId, signature) -> replace(userId, null, signature));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Подписи MinHash построены: {} пользователей, {} корзин", signatures.size(), buckets.size());
+            return null;
+        });
+    }
+
+    private List<Neighbour> nearest(int userId, RoaringBitmap liked, int k) {
+        if (liked.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        RoaringBitmap candidates = candidates(userId);
+        candidates.remove(userId);
+
+        boolean jaccard = "jaccard".equalsIgnoreCase(similarity);
+        int size = liked.getCardinality();
+        TopK best = new TopK(k);
+        for (int id : candidates) {
+            RoaringBitmap films = likeIndex.filmsOf(id);
+            int common = RoaringBitmap.andCardinality(liked, films);
+            if (common > 0) {
+                best.offer(id, jaccard ? NeighbourRanking.jaccard(common, size, films.getCardinality()) : common);
+            }
+        }
+        return best.result();
+    }
+
+    private RoaringBitmap candidates(int userId) {
+        lock.readLock().lock();
+        try {
+            int[] signature = signatures.get(userId);
+            if (signature == null) {
+                return new RoaringBitmap();
+            }
+            List<RoaringBitmap> matched = new ArrayList<>(bands);
+            RoaringBitmap single = new RoaringBitmap();
+            for (int band = 0; band < bands; band++) {
+                Object bucket = buckets.get(bucketKey(band, signature));
+                if (bucket instanceof RoaringBitmap users) {
+                    matched.add(users);
+                } else if (bucket != null) {
+                    single.add((Integer) bucket);
+                }
+            }
+            matched.add(single);
+            return FastAggregation.or(matched.iterator());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Подписи считаются до захвата lock — у фильма могут быть тысячи лайкнувших, и запросы
+    // не должны ждать хеширования; под lock они только подменяются. LikeIndex читается всё
+    // это время, поэтому лайки пользователей между расчётом и подменой не меняются.
+    private void recompute(List<Integer> userIds) {
+        likeIndex.read(() -> {
+            Map<Integer, int[]> updated = new HashMap<>(userIds.size());
+            for (int userId : userIds) {
+                RoaringBitmap films = likeIndex.filmsOf(userId);
+                updated.put(userId, films.isEmpty() ? null : signatureOf(films));
+            }
+            lock.writeLock().lock();
+            try {
+                updated.forEach((userId, signature) -> replace(userId, signatures.get(userId), signature));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return null;
+        });
+    }
+
+    // Переносит пользователя из корзин старой подписи в корзины новой; null — пользователя нет
+    private void replace(int userId, int[] old, int[] signature) {
+        for (int band = 0; band < bands; band++) {
+            long oldKey = old == null ? 0 : bucketKey(band, old);
+            long newKey = signature == null ? 0 : bucketKey(band, signature);
+            if (old != null && (signature == null || oldKey != newKey)) {
+                buckets.computeIfPresent(oldKey, (key, bucket) -> without(bucket, userId));
+            }
+            if (signature != null && (old == null || oldKey != newKey)) {
+                buckets.merge(newKey, userId, (bucket, id) -> with(bucket, userId));
+            }
+        }
+        if (signature == null) {
+            signatures.remove(userId);
+        } else {
+            signatures.put(userId, signature);
+        }
+    }
+
+    private static Object with(Object bucket, int userId) {
+        if (bucket instanceof RoaringBitmap users) {
+            users.add(userId);
+            return users;
+        }
+        return RoaringBitmap.bitmapOf((Integer) bucket, userId);
+    }
+
+    // null удаляет корзину
+    private static Object without(Object bucket, int userId) {
+        if (bucket instanceof RoaringBitmap users) {
+            users.remove(userId);
+            return users.getCardinality() == 1 ? (Object) users.first() : users;
+        }
+        return bucket.equals(userId) ? null : bucket;
+    }
+
+    private int[] signatureOf(RoaringBitmap films) {
+        int[] signature = emptySignature();
+        films.forEach((int filmId) -> {
+            for (int i = 0; i < signature.length; i++) {
+                signature[i] = Math.min(signature[i], hash(filmId, i));
+            }
+        });
+        return signature;
+    }
+
+    private int[] emptySignature() {
+        int[] signature = new int[bands * rows];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+
+    private long bucketKey(int band, int[] signature) {
+        long h = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            h = mix(h * 31 + signature[i]);
+        }
+        // номер полосы в старших битах: одинаковые значения разных полос не смешиваются
+        return (long) band << 48 ^ h >>> 16;
+    }
+
+    private int hash(int filmId, int function) {
+        return (int) mix(filmId ^ seeds[function]);
+    }
+
+    // финальное перемешивание SplitMix64
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+}
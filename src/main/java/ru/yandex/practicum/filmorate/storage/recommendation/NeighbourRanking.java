@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import org.roaringbitmap.RoaringBitmap;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Общие для движков рекомендаций отбор k ближайших соседей и ранжирование их фильмов.
+// Вызывать внутри LikeIndex.read.
+final class NeighbourRanking {
+
+    static final Comparator<Neighbour> BY_SIMILARITY = Comparator
+            .comparingDouble(Neighbour::similarity).reversed()
+            .thenComparingInt(Neighbour::userId);
+
+    private NeighbourRanking() {
+    }
+
+    static double jaccard(int common, int sizeA, int sizeB) {
+        return (double) common / (sizeA + sizeB - common);
+    }
+
+    // Фильмы соседей, которых у пользователя нет, по убыванию суммы сходства лайкнувших соседей,
+    // при равенстве — по id. С одним соседом это просто его фильмы по возрастанию id.
+    static List<Integer> rankFilms(LikeIndex likeIndex, RoaringBitmap liked, List<Neighbour> nearest) {
+        if (nearest.size() == 1) {
+            return toList(RoaringBitmap.andNot(likeIndex.filmsOf(nearest.getFirst().userId()), liked));
+        }
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Neighbour neighbour : nearest) {
+            RoaringBitmap.andNot(likeIndex.filmsOf(neighbour.userId()), liked)
+                    .forEach((int filmId) -> scores.merge(filmId, neighbour.similarity(), Double::sum));
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    static List<Integer> toList(RoaringBitmap ids) {
+        List<Integer> list = new ArrayList<>(ids.getCardinality());
+        ids.forEach((int id) -> list.add(id));
+        return list;
+    }
+
+    record Neighbour(int userId, double similarity) {
+    }
+
+    // k лучших соседей: куча, на вершине которой худший из отобранных, вместо сортировки всех
+    static final class TopK {
+        private final int k;
+        private final PriorityQueue<Neighbour> best;
+
+        TopK(int k) {
+            this.k = k;
+            this.best = new PriorityQueue<>(k + 1, BY_SIMILARITY.reversed());
+        }
+
+        void offer(int userId, double similarity) {
+            if (best.size() < k) {
+                best.add(new Neighbour(userId, similarity));
+                return;
+            }
+            Neighbour worst = best.peek();
+            if (similarity > worst.similarity()
+                    || similarity == worst.similarity() && userId < worst.userId()) {
+                best.poll();
+                best.add(new Neighbour(userId, similarity));
+            }
+        }
+
+        List<Neighbour> result() {
+            List<Neighbour> nearest = new ArrayList<>(best);
+            nearest.sort(BY_SIMILARITY);
+            return nearest;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.recommendation;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
@@ -8,6 +9,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.recommendations.engine", havingValue = "sql")
 @RequiredArgsConstructor
 public class RecommendationDbStorage implements RecommendationStorage {
 
@@ -16,6 +18,7 @@ public class RecommendationDbStorage implements RecommendationStorage {
     @Override
     public Optional<Integer> findMostSimilarUserId(int userId) {
         String sql = """
+            /* RecommendationDbStorage.findMostSimilarUserId */
             SELECT fl2.user_id
             FROM film_likes fl1
             JOIN film_likes fl2 ON fl1.film_id = fl2.film_id
@@ -33,6 +36,7 @@ public class RecommendationDbStorage implements RecommendationStorage {
     @Override
     public List<Integer> findRecommendedFilmIds(int userId, int similarUserId) {
         String sql = """
+            /* RecommendationDbStorage.findRecommendedFilmIds */
             SELECT fl.film_id
             FROM film_likes fl
             WHERE fl.user_id = ?
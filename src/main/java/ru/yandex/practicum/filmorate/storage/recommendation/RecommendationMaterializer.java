@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationStorage.Recommendations;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Готовые рекомендации в таблице user_recommendations: запрос читает одну строку по ключу.
+// Лайк или его снятие сразу помечает устаревшими рекомендации пользователя и тех, у кого он
+// среди соседей. Остальных лайкнувших тот же фильм не помечаем: у популярного фильма их тысячи,
+// и очередь на пересчёт росла бы без предела, а их сходство с пользователем меняется на один лайк.
+// Фоновая задача пересчитывает помеченных в порядке пометки. Если пометка старше max-staleness-ms
+// или строки ещё нет, рекомендации считаются сразу при запросе; строки старше max-age-ms
+// тоже пересчитываются — так доходят и изменения, для которых пометки не было.
+@Component
+@RequiredArgsConstructor
+public class RecommendationMaterializer {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationMaterializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RecommendationStorage recommendationStorage;
+    private final LikeIndex likeIndex;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${filmorate.recommendations.materialized.batch-size:200}")
+    private final int batchSize;
+
+    @Value("${filmorate.recommendations.materialized.max-staleness-ms:5000}")
+    private final long maxStalenessMs;
+
+    @Value("${filmorate.recommendations.materialized.max-age-ms:600000}")
+    private final long maxAgeMs;
+
+    // пользователь -> момент, с которого его рекомендации устарели
+    private final Map<Integer, Long> dirtySince = new ConcurrentHashMap<>();
+    // те же пометки в порядке появления; запись, чьё время уже не совпадает с dirtySince, устарела
+    private final Queue<Dirty> dirtyQueue = new ConcurrentLinkedQueue<>();
+    // сосед -> пользователи, чьи рекомендации построены по его лайкам; защищены монитором neighbours
+    private final Map<Integer, Set<Integer>> dependents = new HashMap<>();
+    private final Map<Integer, List<Integer>> neighbours = new HashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("filmorate.recommendations.backlog", dirtySince, Map::size)
+                .description("Пользователи, ожидающие пересчёта рекомендаций")
+                .register(meterRegistry);
+    }
+
+    public List<Integer> getRecommendedFilmIds(int userId) {
+        long now = System.currentTimeMillis();
+        Long since = dirtySince.get(userId);
+        if (since == null || now - since <= maxStalenessMs) {
+            List<StoredRow> rows = jdbcTemplate.query(
+                    "/* RecommendationMaterializer.getRecommendedFilmIds */ " +
+                            "SELECT film_ids, computed_at FROM user_recommendations WHERE user_id = ?",
+                    (rs, rowNum) -> new StoredRow(toList(rs.getArray("film_ids")), rs.getLong("computed_at")),
+                    userId);
+            if (!rows.isEmpty() && now - rows.getFirst().computedAt() <= maxAgeMs) {
+                return rows.getFirst().filmIds();
+            }
+        }
+        return recompute(userId);
+    }
+
+    public void onLikeChanged(int filmId, int userId) {
+        long now = System.currentTimeMillis();
+        markDirty(userId, now);
+        synchronized (neighbours) {
+            dependents.getOrDefault(userId, Set.of()).forEach(id -> markDirty(id, now));
+        }
+    }
+
+    // Вызывать до удаления фильма из LikeIndex: рекомендации всех лайкнувших его устаревают
+    public void onFilmDeleted(int filmId) {
+        long now = System.currentTimeMillis();
+        likeIndex.read(() -> {
+            likeIndex.usersOf(filmId).forEach((int id) -> markDirty(id, now));
+            return null;
+        });
+    }
+
+    public void onUserDeleted(int userId) {
+        dirtySince.remove(userId);
+        // запись в dirtyQueue отсеется при разборе: пометки для неё больше нет
+        long now = System.currentTimeMillis();
+        synchronized (neighbours) {
+            dependents.getOrDefault(userId, Set.of()).forEach(id -> markDirty(id, now));
+            link(userId, List.of());
+            dependents.remove(userId);
+        }
+    }
+
+    public int backlog() {
+        return dirtySince.size();
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.recommendations.materialized.refresh-interval-ms:1000}",
+            fixedDelayString = "${filmorate.recommendations.materialized.refresh-interval-ms:1000}")
+    public void refresh() {
+        int recomputed = 0;
+        Dirty dirty;
+        while (recomputed < batchSize && (dirty = dirtyQueue.poll()) != null) {
+            // пользователя уже пересчитали по запросу (и, может быть, пометили заново — тогда
+            // в очереди есть более поздняя запись)
+            if (dirty.since().equals(dirtySince.get(dirty.userId()))) {
+                recompute(dirty.userId());
+                recomputed++;
+            }
+        }
+        if (recomputed > 0) {
+            log.debug("Пересчитаны рекомендации {} пользователей, в очереди {}", recomputed, dirtySince.size());
+        }
+    }
+
+    private List<Integer> recompute(int userId) {
+        // пометку снимаем до расчёта: лайк во время расчёта поставит её заново
+        dirtySince.remove(userId);
+        Recommendations recommendations = recommendationStorage.findRecommendations(userId);
+        List<Integer> neighbourIds = recommendations.neighbourIds();
+        List<Integer> filmIds = recommendations.filmIds();
+        try {
+            jdbcTemplate.update("/* RecommendationMaterializer.recompute */ " +
+                    "MERGE INTO user_recommendations (user_id, film_ids, computed_at) KEY (user_id) " +
+                    "VALUES (?, ?, ?)", userId, filmIds.toArray(new Integer[0]), System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            // обычно пользователь удалён во время расчёта
+            log.debug("Рекомендации пользователя {} не сохранены: {}", userId, e.getMessage());
+            return filmIds;
+        }
+        synchronized (neighbours) {
+            link(userId, neighbourIds);
+        }
+        return filmIds;
+    }
+
+    private void link(int userId, List<Integer> neighbourIds) {
+        List<Integer> old = neighbourIds.isEmpty() ? neighbours.remove(userId) : neighbours.put(userId, neighbourIds);
+        if (old != null) {
+            for (int neighbourId : old) {
+                Set<Integer> users = dependents.get(neighbourId);
+                if (users != null && users.remove(userId) && users.isEmpty()) {
+                    dependents.remove(neighbourId);
+                }
+            }
+        }
+        for (int neighbourId : neighbourIds) {
+            dependents.computeIfAbsent(neighbourId, id -> new HashSet<>()).add(userId);
+        }
+    }
+
+    private void markDirty(int userId, long now) {
+        Long since = now;
+        if (dirtySince.putIfAbsent(userId, since) == null) {
+            dirtyQueue.add(new Dirty(userId, since));
+        }
+    }
+
+    private static List<Integer> toList(Array array) throws SQLException {
+        Object[] values = (Object[]) array.getArray();
+        List<Integer> ids = new ArrayList<>(values.length);
+        for (Object value : values) {
+            ids.add(((Number) value).intValue());
+        }
+        return ids;
+    }
+
+    private record StoredRow(List<Integer> filmIds, long computedAt) {
+    }
+
+    private record Dirty(int userId, Long since) {
+    }
+}
@@ -8,4 +8,32 @@ public interface RecommendationStorage {
     Optional<Integer> findMostSimilarUserId(int userId);
 
     List<Integer> findRecommendedFilmIds(int userId, int similarUserId);
+
+    // Пользователи, по чьим лайкам строятся рекомендации пользователю
+    default List<Integer> findNeighbourIds(int userId) {
+        return findMostSimilarUserId(userId).map(List::of).orElse(List.of());
+    }
+
+    // Фильмы для рекомендации пользователю, от более подходящих к менее
+    default List<Integer> findRecommendedFilmIds(int userId) {
+        return findMostSimilarUserId(userId)
+                .map(similarUserId -> findRecommendedFilmIds(userId, similarUserId))
+                .orElse(List.of());
+    }
+
+    // Рекомендации вместе с соседями, по которым они построены, — за один поиск соседей
+    default Recommendations findRecommendations(int userId) {
+        return findMostSimilarUserId(userId)
+                .map(similarUserId -> new Recommendations(List.of(similarUserId),
+                        findRecommendedFilmIds(userId, similarUserId)))
+                .orElse(new Recommendations(List.of(), List.of()));
+    }
+
+    // Фильмы, похожие на данный, если движок умеет их искать; иначе пусто
+    default Optional<List<Integer>> findSimilarFilmIds(int filmId, int count) {
+        return Optional.empty();
+    }
+
+    record Recommendations(List<Integer> neighbourIds, List<Integer> filmIds) {
+    }
 }
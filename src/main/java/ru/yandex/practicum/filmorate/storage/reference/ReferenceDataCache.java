@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate.storage.reference;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaaRating;
+import ru.yandex.practicum.filmorate.model.dto.DirectorDto;
+import ru.yandex.practicum.filmorate.model.dto.GenreDto;
+import ru.yandex.practicum.filmorate.model.dto.MpaaDto;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Снимок справочников (жанры, рейтинги MPA, режиссёры) для чтения без обращения к базе.
+// Жанры и рейтинги меняются только вместе со схемой: их снимок неизменяемый и подменяется
+// целиком, читатели не берут блокировок. Режиссёров пишут через API, поэтому они лежат
+// в отдельной карте, где запись режиссёра меняет только его элемент.
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    // загружается целиком при первом обращении, дальше меняется по одному элементу под монитором this
+    private final Map<Integer, DirectorDto> directors = new ConcurrentHashMap<>();
+    private volatile boolean directorsLoaded;
+
+    public List<GenreDto> genres() {
+        return snapshot().genres;
+    }
+
+    public List<MpaaDto> mpaRatings() {
+        return snapshot().mpaRatings;
+    }
+
+    public GenreDto findGenre(int id) {
+        return at(snapshot().genresById, id);
+    }
+
+    public GenreDto getGenre(int id) {
+        GenreDto genre = findGenre(id);
+        if (genre == null) {
+            throw new NotFoundException("Жанр с ID " + id + " не найден");
+        }
+        return genre;
+    }
+
+    public Genre findGenreEnum(int id) {
+        return at(snapshot().genreEnumsById, id);
+    }
+
+    public Integer findGenreId(Genre genre) {
+        return snapshot().genreIdsByName.get(genre.getName());
+    }
+
+    public MpaaDto getMpa(int id) {
+        MpaaDto mpa = at(snapshot().mpaById, id);
+        if (mpa == null) {
+            throw new NotFoundException("Рейтинг MPA с ID " + id + " не найден");
+        }
+        return mpa;
+    }
+
+    public MpaaRating findMpaEnum(int id) {
+        return at(snapshot().mpaEnumsById, id);
+    }
+
+    public Integer findMpaId(MpaaRating rating) {
+        return snapshot().mpaIdsByCode.get(rating.getCode());
+    }
+
+    public DirectorDto findDirector(int id) {
+        DirectorDto director = directors().get(id);
+        return director != null ? director : loadDirector(id);
+    }
+
+    public DirectorDto getDirector(int id) {
+        DirectorDto director = findDirector(id);
+        if (director == null) {
+            throw new NotFoundException("Режиссёр с ID " + id + " не найден");
+        }
+        return director;
+    }
+
+    public synchronized void putDirector(int id, String name) {
+        directors().put(id, new DirectorDto(id, name));
+    }
+
+    public synchronized void removeDirector(int id) {
+        directors().remove(id);
+    }
+
+    private Map<Integer, DirectorDto> directors() {
+        if (!directorsLoaded) {
+            loadDirectors();
+        }
+        return directors;
+    }
+
+    private synchronized void loadDirectors() {
+        if (directorsLoaded) {
+            return;
+        }
+        jdbcTemplate.query("/* ReferenceDataCache.loadDirectors */ " +
+                "SELECT id, name FROM directors", (RowCallbackHandler) rs ->
+                directors.put(rs.getInt("id"), new DirectorDto(rs.getInt("id"), rs.getString("name"))));
+        directorsLoaded = true;
+        log.debug("Справочник режиссёров загружен: {}", directors.size());
+    }
+
+    // Промах означает, что режиссёр добавлен мимо кэша: читаем только его строку.
+    // Под монитором, чтобы не вернуть в карту режиссёра, удалённого параллельно.
+    private synchronized DirectorDto loadDirector(int id) {
+        DirectorDto director = directors.get(id);
+        if (director != null) {
+            return director;
+        }
+        List<DirectorDto> rows = jdbcTemplate.query("/* ReferenceDataCache.loadDirector */ " +
+                "SELECT id, name FROM directors WHERE id = ?",
+                (rs, rowNum) -> new DirectorDto(rs.getInt("id"), rs.getString("name")), id);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        directors.put(id, rows.getFirst());
+        return rows.getFirst();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            current = load();
+            // при гонке первой загрузки остаётся уже установленный снимок
+            if (!snapshot.compareAndSet(null, current)) {
+                current = snapshot.get();
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        List<GenreDto> genres = jdbcTemplate.query("/* ReferenceDataCache.load */ " +
+                "SELECT id, name FROM genres ORDER BY id",
+                (rs, rowNum) -> new GenreDto(rs.getInt("id"), rs.getString("name")));
+        List<MpaaDto> mpaRatings = jdbcTemplate.query("/* ReferenceDataCache.load */ " +
+                "SELECT id, code AS name FROM mpaa_ratings ORDER BY id",
+                (rs, rowNum) -> new MpaaDto(rs.getInt("id"), rs.getString("name")));
+        log.debug("Справочники загружены: {} жанров, {} рейтингов", genres.size(), mpaRatings.size());
+        return new Snapshot(genres, mpaRatings);
+    }
+
+    private static <T> T at(T[] byId, int id) {
+        return id >= 0 && id < byId.length ? byId[id] : null;
+    }
+
+    private static final class Snapshot {
+        private final List<GenreDto> genres;
+        private final List<MpaaDto> mpaRatings;
+        private final GenreDto[] genresById;
+        private final Genre[] genreEnumsById;
+        private final Map<String, Integer> genreIdsByName = new HashMap<>();
+        private final MpaaDto[] mpaById;
+        private final MpaaRating[] mpaEnumsById;
+        private final Map<String, Integer> mpaIdsByCode = new HashMap<>();
+
+        private Snapshot(List<GenreDto> genres, List<MpaaDto> mpaRatings) {
+            this.genres = List.copyOf(genres);
+            this.mpaRatings = List.copyOf(mpaRatings);
+
+            Map<String, Genre> genreEnums = new HashMap<>();
+            for (Genre genre : Genre.values()) {
+                genreEnums.put(genre.getName(), genre);
+            }
+            genresById = new GenreDto[genres.stream().mapToInt(GenreDto::getId).max().orElse(0) + 1];
+            genreEnumsById = new Genre[genresById.length];
+            for (GenreDto genre : genres) {
+                genresById[genre.getId()] = genre;
+                genreEnumsById[genre.getId()] = genreEnums.get(genre.getName());
+                genreIdsByName.put(genre.getName(), genre.getId());
+            }
+
+            Map<String, MpaaRating> mpaEnums = new HashMap<>();
+            for (MpaaRating rating : MpaaRating.values()) {
+                mpaEnums.put(rating.getCode(), rating);
+            }
+            mpaById = new MpaaDto[mpaRatings.stream().mapToInt(MpaaDto::getId).max().orElse(0) + 1];
+            mpaEnumsById = new MpaaRating[mpaById.length];
+            for (MpaaDto mpa : mpaRatings) {
+                mpaById[mpa.getId()] = mpa;
+                mpaEnumsById[mpa.getId()] = mpaEnums.get(mpa.getName());
+                mpaIdsByCode.put(mpa.getName(), mpa.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.ReviewSummary;
+
+import java.util.List;
+import java.util.Map;
+
+// Сводка отзывов фильма в film_review_stats: число положительных и отрицательных отзывов и
+// суммарная полезность. Счётчики меняются на разницу в той же транзакции, что и отзыв; голос меняет
+// только total_useful обычным UPDATE по ключу. Самый полезный отзыв не хранится, чтобы голоса его
+// не пересчитывали: при чтении он берётся первой строкой индекса (film_id, useful DESC, id), без сортировки.
+@Component
+@RequiredArgsConstructor
+public class FilmReviewStats {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Подзапрос лучшего отзыва фильма, id которого лежит в столбце filmIdColumn
+    public static String topReviewId(String filmIdColumn) {
+        return "(SELECT r.id FROM reviews r USE INDEX (idx_reviews_film_useful) WHERE r.film_id = " + filmIdColumn +
+                " ORDER BY r.film_id, r.useful DESC, r.id LIMIT 1)";
+    }
+
+    public void change(int filmId, int positive, int negative, int useful) {
+        jdbcTemplate.update("/* FilmReviewStats.change */ " +
+                "MERGE INTO film_review_stats s USING (VALUES (CAST(? AS INTEGER), " +
+                        "CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS INTEGER))) " +
+                        "d (film_id, positive, negative, useful) ON s.film_id = d.film_id " +
+                        "WHEN MATCHED THEN UPDATE SET positive_count = s.positive_count + d.positive, " +
+                        "negative_count = s.negative_count + d.negative, total_useful = s.total_useful + d.useful " +
+                        "WHEN NOT MATCHED THEN INSERT (film_id, positive_count, negative_count, total_useful) " +
+                        "VALUES (d.film_id, d.positive, d.negative, d.useful)",
+                filmId, positive, negative, useful);
+    }
+
+    // Голос за отзыв: строка сводки уже создана при добавлении отзыва
+    public void changeUseful(int filmId, int delta) {
+        jdbcTemplate.update("/* FilmReviewStats.changeUseful */ " +
+                "UPDATE film_review_stats SET total_useful = total_useful + ? WHERE film_id = ?",
+                delta, filmId);
+    }
+
+    // Изменения полезности, уже сложенные по фильмам, одним пакетом
+    public void changeUseful(Map<Integer, Integer> deltasByFilm) {
+        List<Object[]> args = deltasByFilm.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate("/* FilmReviewStats.changeUseful */ " +
+                "UPDATE film_review_stats SET total_useful = total_useful + ? WHERE film_id = ?",
+                args);
+    }
+
+    public ReviewSummary find(int filmId) {
+        List<ReviewSummary> summaries = jdbcTemplate.query("/* FilmReviewStats.find */ " +
+                "SELECT s.positive_count, s.negative_count, " +
+                        "s.total_useful, " + topReviewId("s.film_id") + " AS top_review_id " +
+                        "FROM film_review_stats s WHERE s.film_id = ?",
+                (rs, rowNum) -> new ReviewSummary(filmId, rs.getInt("positive_count"), rs.getInt("negative_count"),
+                        rs.getInt("total_useful"), (Integer) rs.getObject("top_review_id")),
+                filmId);
+        return summaries.isEmpty() ? new ReviewSummary(filmId, 0, 0, 0, null) : summaries.getFirst();
+    }
+
+    // Пересчитывает расходящиеся строки по reviews; возвращает число исправленных
+    public int reconcile() {
+        int repaired = jdbcTemplate.update("/* FilmReviewStats.reconcile */ " +
+                "MERGE INTO film_review_stats s USING (SELECT film_id, " +
+                "SUM(CASE WHEN is_positive THEN 1 ELSE 0 END) AS positive, " +
+                "SUM(CASE WHEN is_positive THEN 0 ELSE 1 END) AS negative, " +
+                "SUM(useful) AS useful FROM reviews GROUP BY film_id) d ON s.film_id = d.film_id " +
+                "WHEN MATCHED AND (s.positive_count <> d.positive OR s.negative_count <> d.negative " +
+                "OR s.total_useful <> d.useful) " +
+                "THEN UPDATE SET positive_count = d.positive, negative_count = d.negative, total_useful = d.useful " +
+                "WHEN NOT MATCHED THEN INSERT (film_id, positive_count, negative_count, total_useful) " +
+                "VALUES (d.film_id, d.positive, d.negative, d.useful)");
+        // у фильма не осталось отзывов (например, удалён их автор)
+        repaired += jdbcTemplate.update("/* FilmReviewStats.reconcile */ " +
+                "UPDATE film_review_stats s SET positive_count = 0, negative_count = 0, " +
+                "total_useful = 0 WHERE (positive_count <> 0 OR negative_count <> 0 OR total_useful <> 0) " +
+                "AND NOT EXISTS (SELECT 1 FROM reviews r WHERE r.film_id = s.film_id)");
+        return repaired;
+    }
+}
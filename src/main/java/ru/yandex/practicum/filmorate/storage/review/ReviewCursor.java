@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Позиция в списке отзывов: последний отданный отзыв (useful, id) при порядке useful DESC, id.
+// Клиент получает её непрозрачной строкой и возвращает как есть.
+public record ReviewCursor(int useful, int reviewId) {
+
+    public static ReviewCursor after(Review review) {
+        return new ReviewCursor(review.getUseful(), review.getReviewId());
+    }
+
+    public static ReviewCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new ReviewCursor(Integer.parseInt(raw.substring(0, separator)),
+                    Integer.parseInt(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Некорректный курсор отзывов: " + cursor);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((useful + ":" + reviewId).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,11 +2,17 @@ package ru.yandex.practicum.filmorate.storage.review;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewSummary;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry.Kind;
 import ru.yandex.practicum.filmorate.validation.ValidationUtils;
 
 import java.sql.PreparedStatement;
@@ -18,6 +24,9 @@ public class ReviewDbStorage implements ReviewStorage {
 
     private final JdbcTemplate jdbcTemplate;
     private final ValidationUtils validationUtils;
+    private final EntityIdRegistry idRegistry;
+    private final ReviewUsefulBuffer usefulBuffer;
+    private final FilmReviewStats reviewStats;
 
     private final RowMapper<Review> reviewRowMapper = (rs, rowNum) -> {
         Review review = new Review();
@@ -31,11 +40,13 @@ public class ReviewDbStorage implements ReviewStorage {
     };
 
     @Override
+    @Transactional
     public Review add(Review review) {
         //проверок мало не бывает
         validationUtils.validateUser(review.getUserId());
         validationUtils.validateFilm(review.getFilmId());
-        String sql = "INSERT INTO reviews (content, is_positive, user_id, film_id, useful) VALUES (?, ?, ?, ?, 0)";
+        String sql = "/* ReviewDbStorage.add */ " +
+                "INSERT INTO reviews (content, is_positive, user_id, film_id, useful) VALUES (?, ?, ?, ?, 0)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
@@ -53,17 +64,28 @@ public class ReviewDbStorage implements ReviewStorage {
         }
         review.setReviewId(id);
         review.setUseful(0);
+        idRegistry.add(Kind.REVIEW, id);
+        boolean positive = review.getIsPositive();
+        reviewStats.change(review.getFilmId(), positive ? 1 : 0, positive ? 0 : 1, 0);
 
         return findById(id);
     }
 
     @Override
+    @Transactional
     public Review update(Review review) {
         validationUtils.validateUser(review.getUserId());
         validationUtils.validateFilm(review.getFilmId());
         validationUtils.validateReview(review.getReviewId());
-        String sql = "UPDATE reviews SET content = ?, is_positive = ? WHERE id = ?";
-        jdbcTemplate.update(sql,
+        // прежний тип отзыва возвращается тем же оператором через OLD TABLE
+        String sql = "/* ReviewDbStorage.update */ SELECT film_id, is_positive FROM OLD TABLE (" +
+            "UPDATE reviews SET content = ?, is_positive = ? WHERE id = ?)";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            if (rs.getBoolean("is_positive") != review.getIsPositive()) {
+                int shift = review.getIsPositive() ? 1 : -1;
+                reviewStats.change(rs.getInt("film_id"), shift, -shift, 0);
+            }
+        },
             review.getContent(),
             review.getIsPositive(),
             review.getReviewId());
@@ -72,77 +94,127 @@ public class ReviewDbStorage implements ReviewStorage {
     }
 
     @Override
+    @Transactional
     public void delete(int id) {
         validationUtils.validateReview(id);
-        String sql = "DELETE FROM reviews WHERE id = ?";
-        jdbcTemplate.update(sql, id);
+        String sql = "/* ReviewDbStorage.delete */ " +
+                "SELECT film_id, is_positive, useful FROM OLD TABLE (DELETE FROM reviews WHERE id = ?)";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            boolean positive = rs.getBoolean("is_positive");
+            reviewStats.change(rs.getInt("film_id"), positive ? -1 : 0, positive ? 0 : -1, -rs.getInt("useful"));
+        }, id);
+        idRegistry.remove(Kind.REVIEW, id);
+        usefulBuffer.discard(id);
     }
 
     @Override
     public Review findById(int id) {
         validationUtils.validateReview(id);
-        String sql = "SELECT id, content, is_positive, user_id, film_id, useful FROM reviews WHERE id = ?";
+        String sql = "/* ReviewDbStorage.findById */ " +
+                "SELECT id, content, is_positive, user_id, film_id, useful FROM reviews WHERE id = ?";
         List<Review> reviews = jdbcTemplate.query(sql, reviewRowMapper, id);
-        return reviews.get(0);
+        if (reviews.isEmpty()) {
+            throw new NotFoundException("Отзыв с ID " + id + " не найден");
+        }
+        // с учётом ещё не сброшенных голосов горячего отзыва; списки отдают сохранённое значение,
+        // по которому они упорядочены и строится курсор
+        Review review = reviews.get(0);
+        review.setUseful(review.getUseful() + usefulBuffer.pending(id));
+        return review;
     }
 
+    // Страница читается из индекса в порядке его столбцов, поэтому ORDER BY повторяет индекс целиком,
+    // а условие useful <= ? задаёт начало диапазона; без подсказки H2 берёт индекс внешнего ключа
     @Override
-    public List<Review> findByFilmId(Integer filmId, int count) {
+    public List<Review> findByFilmId(Integer filmId, ReviewCursor after, int count) {
         validationUtils.validateFilm(filmId);
-        String sql = "SELECT id, content, is_positive, user_id, film_id, useful " +
-            "FROM reviews WHERE film_id = ? ORDER BY useful DESC LIMIT ?";
-        return jdbcTemplate.query(sql, reviewRowMapper, filmId, count);
+        if (after == null) {
+            return jdbcTemplate.query("/* ReviewDbStorage.findByFilmId */ " +
+                    "SELECT id, content, is_positive, user_id, film_id, useful " +
+                    "FROM reviews USE INDEX (idx_reviews_film_useful) WHERE film_id = ? " +
+                    "ORDER BY film_id, useful DESC, id LIMIT ?", reviewRowMapper, filmId, count);
+        }
+        return jdbcTemplate.query("/* ReviewDbStorage.findByFilmId */ " +
+                "SELECT id, content, is_positive, user_id, film_id, useful " +
+                        "FROM reviews USE INDEX (idx_reviews_film_useful) WHERE film_id = ? " +
+                        "AND useful <= ? AND (useful < ? OR id > ?) ORDER BY film_id, useful DESC, id LIMIT ?",
+                reviewRowMapper, filmId, after.useful(), after.useful(), after.reviewId(), count);
+    }
+
+    @Override
+    public List<Review> findAll(ReviewCursor after, int count) {
+        if (after == null) {
+            return jdbcTemplate.query("/* ReviewDbStorage.findAll */ " +
+                    "SELECT id, content, is_positive, user_id, film_id, useful " +
+                    "FROM reviews USE INDEX (idx_reviews_useful) ORDER BY useful DESC, id LIMIT ?",
+                    reviewRowMapper, count);
+        }
+        return jdbcTemplate.query("/* ReviewDbStorage.findAll */ " +
+                "SELECT id, content, is_positive, user_id, film_id, useful " +
+                        "FROM reviews USE INDEX (idx_reviews_useful) WHERE useful <= ? AND (useful < ? OR id > ?) " +
+                        "ORDER BY useful DESC, id LIMIT ?",
+                reviewRowMapper, after.useful(), after.useful(), after.reviewId(), count);
     }
 
     @Override
-    public List<Review> findAll(int count) {
-        String sql = "SELECT id, content, is_positive, user_id, film_id, useful " +
-            "FROM reviews ORDER BY useful DESC LIMIT ?";
-        return jdbcTemplate.query(sql, reviewRowMapper, count);
+    public ReviewSummary findSummary(int filmId) {
+        validationUtils.validateFilm(filmId);
+        return reviewStats.find(filmId);
     }
 
+    @Override
+    @Transactional
     public void addLike(int reviewId, int userId) {
-        String checkSql = "SELECT COUNT(*) FROM review_likes WHERE review_id = ? AND user_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, reviewId, userId);
-
-        String sql = (count != null && count > 0)
-                ? "UPDATE review_likes SET is_positive = true WHERE review_id = ? AND user_id = ?"
-                : "INSERT INTO review_likes (review_id, user_id, is_positive) VALUES (?, ?, true)";
-        jdbcTemplate.update(sql, reviewId, userId);
-        updateUseful(reviewId);
+        vote(reviewId, userId, true);
     }
 
+    @Override
+    @Transactional
     public void addDislike(int reviewId, int userId) {
-        String checkSql = "SELECT COUNT(*) FROM review_likes WHERE review_id = ? AND user_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, reviewId, userId);
-
-        String sql = (count != null && count > 0)
-                ? "UPDATE review_likes SET is_positive = false WHERE review_id = ? AND user_id = ?"
-                : "INSERT INTO review_likes (review_id, user_id, is_positive) VALUES (?, ?, false)";
-        jdbcTemplate.update(sql, reviewId, userId);
-        updateUseful(reviewId);
+        vote(reviewId, userId, false);
     }
 
+    @Override
+    @Transactional
     public void removeLike(int reviewId, int userId) {
-        String sql = "DELETE FROM review_likes WHERE review_id = ? AND user_id = ?";
-        int rowsAffected = jdbcTemplate.update(sql, reviewId, userId);
-        if (rowsAffected > 0) {
-            updateUseful(reviewId);
-        }
+        unvote("DELETE FROM review_likes WHERE review_id = ? AND user_id = ?", reviewId, userId);
     }
 
+    @Override
+    @Transactional
     public void removeDislike(int reviewId, int userId) {
-        String sql = "DELETE FROM review_likes WHERE review_id = ? AND user_id = ? AND is_positive = false";
-        int rowsAffected = jdbcTemplate.update(sql, reviewId, userId);
-        if (rowsAffected > 0) {
-            updateUseful(reviewId);
+        unvote("DELETE FROM review_likes WHERE review_id = ? AND user_id = ? AND is_positive = false",
+                reviewId, userId);
+    }
+
+    // MERGE возвращает прежний голос через OLD TABLE: рейтинг меняется на разницу голосов
+    private void vote(int reviewId, int userId, boolean positive) {
+        List<Boolean> previous = jdbcTemplate.queryForList("/* ReviewDbStorage.vote */ " +
+                "SELECT is_positive FROM OLD TABLE (" +
+                "MERGE INTO review_likes (review_id, user_id, is_positive) KEY (review_id, user_id) VALUES (?, ?, ?))",
+                Boolean.class, reviewId, userId, positive);
+        changeUseful(reviewId, weight(positive) - (previous.isEmpty() ? 0 : weight(previous.get(0))));
+    }
+
+    private void unvote(String deleteSql, int reviewId, int userId) {
+        List<Boolean> removed = jdbcTemplate.queryForList("/* ReviewDbStorage.unvote */ " +
+                "SELECT is_positive FROM OLD TABLE (" + deleteSql + ")",
+                Boolean.class, reviewId, userId);
+        if (!removed.isEmpty()) {
+            changeUseful(reviewId, -weight(removed.get(0)));
+        }
+    }
+
+    private void changeUseful(int reviewId, int delta) {
+        if (delta != 0 && !usefulBuffer.offer(reviewId, delta)) {
+            List<Integer> filmIds = jdbcTemplate.queryForList("/* ReviewDbStorage.changeUseful */ " +
+                    "SELECT film_id FROM FINAL TABLE (" +
+                    "UPDATE reviews SET useful = useful + ? WHERE id = ?)", Integer.class, delta, reviewId);
+            filmIds.forEach(filmId -> reviewStats.changeUseful(filmId, delta));
         }
     }
 
-    private void updateUseful(int reviewId) {
-        String sql = "UPDATE reviews SET useful = " +
-            "(SELECT COALESCE(SUM(CASE WHEN is_positive THEN 1 ELSE -1 END), 0) FROM review_likes WHERE review_id = ?) " +
-            "WHERE id = ?";
-        jdbcTemplate.update(sql, reviewId, reviewId);
+    private static int weight(boolean positive) {
+        return positive ? 1 : -1;
     }
 }
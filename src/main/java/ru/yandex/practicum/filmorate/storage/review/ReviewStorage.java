@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.review;
 
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewSummary;
 
 import java.util.List;
 
@@ -14,9 +15,12 @@ public interface ReviewStorage {
 
     Review findById(int id);
 
-    List<Review> findByFilmId(Integer filmId, int count);
+    // Отзывы по убыванию полезности, при равенстве — по id; after == null — с начала
+    List<Review> findByFilmId(Integer filmId, ReviewCursor after, int count);
 
-    List<Review> findAll(int count);
+    List<Review> findAll(ReviewCursor after, int count);
+
+    ReviewSummary findSummary(int filmId);
 
     void addLike(int reviewId, int userId);
 
@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+// Накопитель изменений рейтинга для «горячих» отзывов. Отзыв, набравший за интервал сброса больше
+// hot-threshold голосов, перестаёт обновлять строку reviews на каждый голос: изменения копятся в
+// памяти и при сбросе одной суммой прибавляются к useful и к сводке фильма. И голоса за интервал, и
+// изменения отзыва лежат в LongAdder, поэтому голоса даже за один отзыв не ждут друг друга.
+// Изменение попадает в накопитель после фиксации транзакции голоса, но запись об отзыве появляется
+// ещё до неё. Сверка с review_likes пропускает отзывы, записи о которых есть в накопителе, а если за
+// время сверки появилась новая запись, откатывает сверку: голос мог быть уже виден ей, но ещё не сброшен.
+// Выключен по умолчанию; без него каждый голос сразу меняет useful в своей транзакции.
+@Component
+@RequiredArgsConstructor
+public class ReviewUsefulBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewUsefulBuffer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FilmReviewStats reviewStats;
+
+    @Value("${filmorate.reviews.useful-buffer.enabled:false}")
+    private final boolean enabled;
+
+    @Value("${filmorate.reviews.useful-buffer.hot-threshold:50}")
+    private final int hotThreshold;
+
+    // голоса за текущий интервал — по ним отзыв признаётся горячим
+    private final Map<Integer, LongAdder> votes = new ConcurrentHashMap<>();
+    // несброшенные изменения useful и голоса, чьи транзакции ещё не завершены
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    // растёт, когда в накопителе появляется запись об отзыве
+    private final AtomicLong epoch = new AtomicLong();
+
+    // true — изменение принято в накопитель, false — его нужно записать в базу сразу
+    public boolean offer(int reviewId, int delta) {
+        if (!enabled || countVote(reviewId) <= hotThreshold) {
+            return false;
+        }
+        Pending entry = enter(reviewId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entry.complete(delta);
+            return true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                entry.complete(status == STATUS_COMMITTED ? delta : 0);
+            }
+        });
+        return true;
+    }
+
+    // Изменение, ещё не записанное в reviews.useful
+    public int pending(int reviewId) {
+        Pending entry = pending.get(reviewId);
+        return entry == null ? 0 : (int) entry.delta.sum();
+    }
+
+    // Выполняет сверку в транзакции; action получает отзывы из накопителя, их сверять нельзя.
+    // Если за время сверки в накопитель попал новый отзыв, сверка откатывается до следующего раза
+    public int reconcile(ToIntFunction<Set<Integer>> action) {
+        Integer repaired = transactionTemplate.execute(status -> {
+            long started = epoch.get();
+            int result = action.applyAsInt(Set.copyOf(pending.keySet()));
+            if (epoch.get() != started) {
+                status.setRollbackOnly();
+                log.debug("Сверка рейтинга отменена: во время неё отзыв попал в накопитель");
+                return 0;
+            }
+            return result;
+        });
+        return repaired == null ? 0 : repaired;
+    }
+
+    public void discard(int reviewId) {
+        pending.remove(reviewId);
+        votes.remove(reviewId);
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.reviews.useful-buffer.flush-interval-ms:1000}",
+            fixedDelayString = "${filmorate.reviews.useful-buffer.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        votes.clear();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        pending.forEach((reviewId, entry) -> {
+            long delta = entry.delta.sumThenReset();
+            if (delta != 0) {
+                deltas.put(reviewId, (int) delta);
+            }
+        });
+        int flushed = deltas.size();
+        if (!deltas.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(deltas));
+                log.debug("Сброшены изменения рейтинга {} отзывов", deltas.size());
+            } catch (RuntimeException e) {
+                // транзакция откатилась целиком: изменения возвращаются к голосам, пришедшим за время сброса
+                deltas.forEach((reviewId, delta) -> {
+                    Pending entry = pending.get(reviewId);
+                    if (entry != null) {
+                        entry.delta.add(delta);
+                    }
+                });
+                log.error("Изменения рейтинга {} отзывов не сброшены, повтор при следующем сбросе", deltas.size(), e);
+                flushed = 0;
+            }
+        }
+        pending.forEach((reviewId, entry) -> {
+            if (entry.retire()) {
+                pending.remove(reviewId, entry);
+            }
+        });
+        return flushed;
+    }
+
+    private long countVote(int reviewId) {
+        LongAdder counter = votes.get(reviewId);
+        if (counter == null) {
+            counter = votes.computeIfAbsent(reviewId, id -> new LongAdder());
+        }
+        counter.increment();
+        return counter.sum();
+    }
+
+    // Запись об отзыве с отмеченным голосом в полёте; запись, которую сброс успел убрать, не годится
+    private Pending enter(int reviewId) {
+        while (true) {
+            Pending entry = pending.get(reviewId);
+            if (entry == null) {
+                Pending created = new Pending();
+                entry = pending.putIfAbsent(reviewId, created);
+                if (entry == null) {
+                    entry = created;
+                    // после публикации: сверка, не увидевшая запись, увидит новую эпоху
+                    epoch.incrementAndGet();
+                }
+            }
+            if (entry.start()) {
+                return entry;
+            }
+        }
+    }
+
+    // Одним пакетом обновляет useful, одним запросом узнаёт фильмы отзывов и одним пакетом
+    // прибавляет сложенные по фильмам изменения к сводкам
+    private void write(Map<Integer, Integer> deltas) {
+        List<Object[]> args = deltas.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate("/* ReviewUsefulBuffer.write */ " +
+                "UPDATE reviews SET useful = useful + ? WHERE id = ?", args);
+
+        String placeholders = String.join(",", Collections.nCopies(deltas.size(), "?"));
+        Map<Integer, Integer> deltasByFilm = new HashMap<>();
+        jdbcTemplate.query("/* ReviewUsefulBuffer.write */ " +
+                "SELECT id, film_id FROM reviews WHERE id IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> deltasByFilm.merge(rs.getInt("film_id"), deltas.get(rs.getInt("id")),
+                        Integer::sum),
+                deltas.keySet().toArray());
+        deltasByFilm.values().removeIf(delta -> delta == 0);
+        if (!deltasByFilm.isEmpty()) {
+            reviewStats.changeUseful(deltasByFilm);
+        }
+    }
+
+    private static final class Pending {
+        private final LongAdder delta = new LongAdder();
+        // голоса в полёте; -1 — запись убрана сбросом
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        boolean start() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current < 0) {
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void complete(int change) {
+            if (change != 0) {
+                delta.add(change);
+            }
+            inFlight.decrementAndGet();
+        }
+
+        // Убирает запись без голосов в полёте и несброшенных изменений
+        boolean retire() {
+            if (!inFlight.compareAndSet(0, -1)) {
+                return false;
+            }
+            if (delta.sum() != 0) {
+                inFlight.set(0);
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+// Периодически сверяет reviews.useful с review_likes, а film_review_stats — с reviews, и исправляет
+// расхождения (ручные правки в базе, откат транзакции после записи в накопитель, каскадное удаление
+// отзывов и голосов вместе с пользователем). Отзывы с несброшенными изменениями пропускаются
+// до следующей сверки; голоса за горячие отзывы её не ждут (ReviewUsefulBuffer.reconcile).
+@Component
+@RequiredArgsConstructor
+public class ReviewUsefulReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewUsefulReconciler.class);
+    private static final String USEFUL = "(SELECT COALESCE(SUM(CASE WHEN rl.is_positive THEN 1 ELSE -1 END), 0) " +
+            "FROM review_likes rl WHERE rl.review_id = r.id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReviewUsefulBuffer usefulBuffer;
+    private final FilmReviewStats reviewStats;
+
+    @Scheduled(initialDelayString = "${filmorate.reviews.useful-reconcile-interval-ms:600000}",
+            fixedDelayString = "${filmorate.reviews.useful-reconcile-interval-ms:600000}")
+    public int reconcile() {
+        usefulBuffer.flush();
+        String sql = "/* ReviewUsefulReconciler.reconcile */ " +
+                "UPDATE reviews r SET useful = " + USEFUL + " WHERE useful <> " + USEFUL;
+        int repaired = usefulBuffer.reconcile(skipped -> {
+            if (skipped.isEmpty()) {
+                return jdbcTemplate.update(sql);
+            }
+            String placeholders = String.join(",", Collections.nCopies(skipped.size(), "?"));
+            return jdbcTemplate.update(sql + " AND r.id NOT IN (" + placeholders + ")", skipped.toArray());
+        });
+        if (repaired > 0) {
+            log.warn("Исправлен рейтинг полезности у {} отзывов", repaired);
+        }
+        int films = reviewStats.reconcile();
+        if (films > 0) {
+            log.warn("Исправлена сводка отзывов у {} фильмов", films);
+        }
+        return repaired + films;
+    }
+}
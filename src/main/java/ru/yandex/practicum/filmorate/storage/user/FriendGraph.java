@@ -0,0 +1,189 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FriendLink;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Граф дружбы в памяти: для каждого пользователя — отсортированный массив id друзей и
+// параллельный массив признаков подтверждения. Опубликованные массивы не меняются: запись
+// собирает новую пару и подменяет ссылку (copy-on-write), поэтому чтение идёт без блокировок.
+// Строится из user_friends при старте и обновляется хранилищем пользователей после фиксации записи.
+@Component
+@RequiredArgsConstructor
+public class FriendGraph {
+
+    private static final Logger log = LoggerFactory.getLogger(FriendGraph.class);
+    private static final Adjacency EMPTY = new Adjacency(new int[0], new boolean[0]);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Map<Integer, Adjacency> adjacency = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, List<FriendLink>> links = new HashMap<>();
+        jdbcTemplate.query("/* FriendGraph.rebuild */ SELECT user_id, friend_id, status FROM user_friends",
+                (RowCallbackHandler) rs -> links.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>())
+                        .add(new FriendLink(rs.getInt("friend_id"), FriendshipStatus.valueOf(rs.getString("status")))));
+        Map<Integer, Adjacency> graph = new ConcurrentHashMap<>();
+        links.forEach((userId, friendLinks) -> graph.put(userId, Adjacency.of(friendLinks)));
+        adjacency = graph;
+        log.info("Граф дружбы построен: {} пользователей, {} связей", graph.size(),
+                links.values().stream().mapToInt(List::size).sum());
+    }
+
+    // Друзья пользователя по возрастанию id
+    public List<Integer> friendIds(int userId) {
+        return toList(adjacencyOf(userId).friendIds());
+    }
+
+    // Опубликованный массив друзей без копирования, для обходов графа; менять его нельзя
+    int[] friendArray(int userId) {
+        return adjacencyOf(userId).friendIds();
+    }
+
+    // Общие друзья двух пользователей по возрастанию id: слияние двух отсортированных массивов
+    public List<Integer> commonFriendIds(int userId, int otherUserId) {
+        int[] first = adjacencyOf(userId).friendIds();
+        int[] second = adjacencyOf(otherUserId).friendIds();
+        List<Integer> common = new ArrayList<>(Math.min(first.length, second.length));
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common.add(first[i]);
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    public Optional<FriendshipStatus> status(int userId, int friendId) {
+        Adjacency friends = adjacencyOf(userId);
+        int index = Arrays.binarySearch(friends.friendIds(), friendId);
+        if (index < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(friends.confirmed()[index] ? FriendshipStatus.CONFIRMED : FriendshipStatus.UNCONFIRMED);
+    }
+
+    public void onLinkSet(int userId, int friendId, FriendshipStatus status) {
+        boolean confirmed = status == FriendshipStatus.CONFIRMED;
+        adjacency.compute(userId, (id, friends) -> (friends == null ? EMPTY : friends).with(friendId, confirmed));
+    }
+
+    public void onLinkRemoved(int userId, int friendId) {
+        adjacency.computeIfPresent(userId, (id, friends) -> friends.without(friendId));
+    }
+
+    // Связи пользователя целиком заменены (создание или обновление пользователя)
+    public void onLinksReplaced(int userId, Collection<FriendLink> links) {
+        if (links == null || links.isEmpty()) {
+            adjacency.remove(userId);
+        } else {
+            adjacency.put(userId, Adjacency.of(links));
+        }
+    }
+
+    // Пользователь удалён: пропадают его связи и он сам из списков друзей других. Обходятся только
+    // его собственные друзья (подтверждённые связи взаимны) и linkedFromIds — добавившие его в друзья
+    public void onUserDeleted(int userId, Collection<Integer> linkedFromIds) {
+        Map<Integer, Adjacency> graph = adjacency;
+        Adjacency own = graph.remove(userId);
+        if (own != null) {
+            for (int friendId : own.friendIds()) {
+                graph.computeIfPresent(friendId, (id, friends) -> friends.without(userId));
+            }
+        }
+        for (int linkedFromId : linkedFromIds) {
+            graph.computeIfPresent(linkedFromId, (id, friends) -> friends.without(userId));
+        }
+    }
+
+    private Adjacency adjacencyOf(int userId) {
+        return adjacency.getOrDefault(userId, EMPTY);
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        List<Integer> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    // friendIds отсортирован по возрастанию, confirmed[i] — статус связи с friendIds[i]
+    private record Adjacency(int[] friendIds, boolean[] confirmed) {
+
+        static Adjacency of(Collection<FriendLink> links) {
+            FriendLink[] sorted = links.toArray(new FriendLink[0]);
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a.getFriendId(), b.getFriendId()));
+            int[] ids = new int[sorted.length];
+            boolean[] confirmed = new boolean[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                ids[i] = sorted[i].getFriendId();
+                confirmed[i] = sorted[i].getStatus() == FriendshipStatus.CONFIRMED;
+            }
+            return new Adjacency(ids, confirmed);
+        }
+
+        Adjacency with(int friendId, boolean status) {
+            int index = Arrays.binarySearch(friendIds, friendId);
+            if (index >= 0) {
+                if (confirmed[index] == status) {
+                    return this;
+                }
+                boolean[] flags = confirmed.clone();
+                flags[index] = status;
+                return new Adjacency(friendIds, flags);
+            }
+            int insertAt = -index - 1;
+            int[] ids = new int[friendIds.length + 1];
+            boolean[] flags = new boolean[friendIds.length + 1];
+            System.arraycopy(friendIds, 0, ids, 0, insertAt);
+            System.arraycopy(friendIds, insertAt, ids, insertAt + 1, friendIds.length - insertAt);
+            System.arraycopy(confirmed, 0, flags, 0, insertAt);
+            System.arraycopy(confirmed, insertAt, flags, insertAt + 1, confirmed.length - insertAt);
+            ids[insertAt] = friendId;
+            flags[insertAt] = status;
+            return new Adjacency(ids, flags);
+        }
+
+        Adjacency without(int friendId) {
+            int index = Arrays.binarySearch(friendIds, friendId);
+            if (index < 0) {
+                return this;
+            }
+            if (friendIds.length == 1) {
+                return null;
+            }
+            int[] ids = new int[friendIds.length - 1];
+            boolean[] flags = new boolean[friendIds.length - 1];
+            System.arraycopy(friendIds, 0, ids, 0, index);
+            System.arraycopy(friendIds, index + 1, ids, index, ids.length - index);
+            System.arraycopy(confirmed, 0, flags, 0, index);
+            System.arraycopy(confirmed, index + 1, flags, index, flags.length - index);
+            return new Adjacency(ids, flags);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+// «Возможно, вы знакомы»: пользователи, не являющиеся друзьями, по убыванию числа общих друзей,
+// при равенстве — по id. Обход в два шага по FriendGraph: друзья пользователя (фронтир) и их друзья.
+// Фронтир больше max-frontier прореживается равномерно; у пользователей с числом друзей больше
+// parallel-threshold фронтир делится между задачами fork/join со своими счётчиками в отдельном пуле
+// (threads потоков, 0 — по числу ядер), чтобы не занимать общий пул. По истечении
+// budget-ms обход останавливается и ранжируется то, что успели посчитать.
+@Component
+@RequiredArgsConstructor
+public class FriendSuggestions {
+
+    private static final Logger log = LoggerFactory.getLogger(FriendSuggestions.class);
+
+    private final FriendGraph friendGraph;
+
+    @Value("${filmorate.friend-suggestions.max-frontier:10000}")
+    private final int maxFrontier;
+
+    @Value("${filmorate.friend-suggestions.parallel-threshold:512}")
+    private final int parallelThreshold;
+
+    @Value("${filmorate.friend-suggestions.budget-ms:50}")
+    private final long budgetMs;
+
+    @Value("${filmorate.friend-suggestions.threads:0}")
+    private final int threads;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("friend-suggestions-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public List<Integer> suggest(int userId, int count) {
+        int[] friends = friendGraph.friendArray(userId);
+        if (friends.length == 0 || count <= 0) {
+            return List.of();
+        }
+        int[] frontier = sample(friends, maxFrontier);
+        long deadline = System.nanoTime() + budgetMs * 1_000_000;
+        CountTask task = new CountTask(frontier, 0, frontier.length, deadline, parallelThreshold);
+        IntCounter mutual = frontier.length > parallelThreshold
+                ? pool.invoke(task)
+                : task.compute();
+        if (System.nanoTime() > deadline) {
+            log.debug("Подбор друзей для пользователя {} прерван по времени: {} кандидатов", userId, mutual.size());
+        }
+
+        TopK best = new TopK(Math.min(count, mutual.size()));
+        mutual.forEach((candidateId, common) -> {
+            if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                best.offer(common, candidateId);
+            }
+        });
+        return best.result();
+    }
+
+    // Каждый step-й элемент, чтобы осталось не больше limit
+    private static int[] sample(int[] ids, int limit) {
+        if (ids.length <= limit) {
+            return ids;
+        }
+        int[] sampled = new int[limit];
+        double step = (double) ids.length / limit;
+        for (int i = 0; i < limit; i++) {
+            sampled[i] = ids[(int) (i * step)];
+        }
+        return sampled;
+    }
+
+    private final class CountTask extends RecursiveTask<IntCounter> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final long deadline;
+        private final int chunk;
+
+        CountTask(int[] frontier, int from, int to, long deadline, int chunk) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected IntCounter compute() {
+            if (to - from > chunk) {
+                int middle = (from + to) >>> 1;
+                CountTask left = new CountTask(frontier, from, middle, deadline, chunk);
+                left.fork();
+                IntCounter right = new CountTask(frontier, middle, to, deadline, chunk).compute();
+                IntCounter counts = left.join();
+                counts.addAll(right);
+                return counts;
+            }
+            IntCounter counts = new IntCounter(16);
+            for (int i = from; i < to && System.nanoTime() <= deadline; i++) {
+                for (int candidateId : friendGraph.friendArray(frontier[i])) {
+                    counts.increment(candidateId, 1);
+                }
+            }
+            return counts;
+        }
+    }
+
+    // Счётчики int -> int с открытой адресацией; ключи — id пользователей, 0 означает пустую ячейку
+    static final class IntCounter {
+        private int[] keys;
+        private int[] values;
+        private int size;
+
+        IntCounter(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void increment(int key, int delta) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    values[slot] = delta;
+                    grow();
+                    return;
+                }
+            }
+            values[slot] += delta;
+        }
+
+        void addAll(IntCounter other) {
+            other.forEach(this::increment);
+        }
+
+        void forEach(IntBiConsumer action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    action.accept(keys[i], values[i]);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    increment(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    @FunctionalInterface
+    interface IntBiConsumer {
+        void accept(int key, int value);
+    }
+
+    // k лучших в куче-минимуме из long: старшие 32 бита — число общих друзей, младшие —
+    // инвертированный id, чтобы при равенстве больший ключ был у меньшего id
+    private static final class TopK {
+        private final long[] heap;
+        private int size;
+
+        TopK(int k) {
+            this.heap = new long[k];
+        }
+
+        void offer(int common, int userId) {
+            long key = (long) common << 32 | (Integer.MAX_VALUE - userId);
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(size++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown();
+            }
+        }
+
+        List<Integer> result() {
+            long[] keys = Arrays.copyOf(heap, size);
+            Arrays.sort(keys);
+            Integer[] userIds = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                userIds[i] = Integer.MAX_VALUE - (int) keys[size - 1 - i];
+            }
+            return List.of(userIds);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent] <= heap[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown() {
+            int index = 0;
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && heap[left] < heap[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && heap[right] < heap[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(smallest, index);
+                index = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
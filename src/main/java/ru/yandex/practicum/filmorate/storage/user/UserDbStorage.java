@@ -6,10 +6,14 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.FriendLink;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry.Kind;
 import ru.yandex.practicum.filmorate.validation.ValidationUtils;
 
 import java.sql.Date;
@@ -31,6 +35,8 @@ public class UserDbStorage implements UserStorage {
 
     private final JdbcTemplate jdbcTemplate;
     private final ValidationUtils validationUtils;
+    private final EntityIdRegistry idRegistry;
+    private final FriendGraph friendGraph;
 
     private final RowMapper<User> userRowMapper = (rs, rowNum) -> {
         User user = new User();
@@ -48,12 +54,12 @@ public class UserDbStorage implements UserStorage {
     @Override
     public User add(User user) {
         //проверка на существующий email
-        String checkEmailSql = "SELECT COUNT(*) FROM users WHERE email = ?";
+        String checkEmailSql = "/* UserDbStorage.add */ SELECT COUNT(*) FROM users WHERE email = ?";
         Integer emailCount = jdbcTemplate.queryForObject(checkEmailSql, Integer.class, user.getEmail());
         if (emailCount != null && emailCount > 0) {
             throw new ru.yandex.practicum.filmorate.exception.ValidationException("Пользователь с email " + user.getEmail() + " уже существует");
         }
-        String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+        String sql = "/* UserDbStorage.add */ INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
@@ -68,14 +74,19 @@ public class UserDbStorage implements UserStorage {
             throw new RuntimeException("Не удалось получить ID созданного пользователя");
         }
         user.setId(id);
+        idRegistry.add(Kind.USER, id);
         saveFriendLinks(user.getId(), user.getFriendLinks());
+        Set<FriendLink> links = user.getFriendLinks() != null ? Set.copyOf(user.getFriendLinks()) : Set.of();
+        AfterCommit.run(() -> friendGraph.onLinksReplaced(id, links));
         return findById(id);
     }
 
     @Override
+    @Transactional
     public User update(User user) {
         validationUtils.validateUser(user.getId());
-        String sql = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
+        String sql = "/* UserDbStorage.update */ " +
+                "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
         int rowsAffected = jdbcTemplate.update(sql,
             user.getEmail(),
             user.getLogin(),
@@ -87,29 +98,54 @@ public class UserDbStorage implements UserStorage {
             throw new NotFoundException("Пользователь с ID " + user.getId() + " не найден");
         }
 
-        deleteFriendLinks(user.getId());
-        saveFriendLinks(user.getId(), user.getFriendLinks());
+        // связи дружбы меняются, только если переданы и отличаются от сохранённых
+        if (user.getFriendLinks() != null) {
+            syncFriendLinks(user.getId(), user.getFriendLinks());
+        }
 
         return findById(user.getId());
     }
 
     @Override
+    @Transactional
     public void deleteById(int id) {
         validationUtils.validateUser(id);
-        String sql = "DELETE FROM users WHERE id = ?";
+        // film_likes удаляются каскадно, счётчики лайков фильмов нужно уменьшить вручную
+        jdbcTemplate.update("/* UserDbStorage.deleteById */ UPDATE films SET like_count = like_count - 1 " +
+                "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)", id);
+        // отзывы пользователя удаляются каскадно вместе с ним
+        List<Integer> reviewIds = jdbcTemplate.queryForList("/* UserDbStorage.deleteById */ " +
+                "SELECT id FROM reviews WHERE user_id = ?",
+                Integer.class, id);
+        // связи, где пользователь — друг, тоже удаляются каскадно; граф хранит только исходящие
+        List<Integer> linkedFromIds = jdbcTemplate.queryForList("/* UserDbStorage.deleteById */ " +
+                "SELECT user_id FROM user_friends WHERE friend_id = ?",
+                Integer.class, id);
+        String sql = "/* UserDbStorage.deleteById */ DELETE FROM users WHERE id = ?";
         jdbcTemplate.update(sql, id);
+        idRegistry.remove(Kind.USER, id);
+        AfterCommit.run(() -> friendGraph.onUserDeleted(id, linkedFromIds));
+        idRegistry.removeAll(Kind.REVIEW, reviewIds);
     }
 
     @Override
     public User findById(int id) {
         validationUtils.validateUser(id);
-        String sql = "SELECT id, email, login, name, birthday FROM users WHERE id = ?";
+        String sql = "/* UserDbStorage.findById */ SELECT id, email, login, name, birthday FROM users WHERE id = ?";
         List<User> users = jdbcTemplate.query(sql, userRowMapper, id);
+        if (users.isEmpty()) {
+            throw new NotFoundException("Пользователь с ID " + id + " не найден");
+        }
         User user = users.get(0);
         user.setFriendLinks(loadFriendLinks(id));
         return user;
     }
 
+    @Override
+    public boolean exists(int id) {
+        return idRegistry.contains(Kind.USER, id);
+    }
+
     @Override
     public List<User> findByIds(Collection<Integer> ids) {
         if (ids == null || ids.isEmpty()) {
@@ -117,7 +153,8 @@ public class UserDbStorage implements UserStorage {
         }
         List<Integer> idList = new ArrayList<>(ids);
         String placeholders = String.join(",", Collections.nCopies(idList.size(), "?"));
-        String sql = "SELECT id, email, login, name, birthday FROM users WHERE id IN (" + placeholders + ")";
+        String sql = "/* UserDbStorage.findByIds */ " +
+                "SELECT id, email, login, name, birthday FROM users WHERE id IN (" + placeholders + ")";
         List<User> users = jdbcTemplate.query(sql, userRowMapper, idList.toArray());
         if (users.isEmpty()) {
             return List.of();
@@ -133,9 +170,28 @@ public class UserDbStorage implements UserStorage {
                 .toList();
     }
 
+    @Override
+    public void addFriendLink(int userId, int friendId) {
+        mergeFriendLink(userId, friendId, FriendshipStatus.UNCONFIRMED);
+    }
+
+    @Override
+    @Transactional
+    public void confirmFriendLink(int userId, int friendId) {
+        mergeFriendLink(userId, friendId, FriendshipStatus.CONFIRMED);
+        mergeFriendLink(friendId, userId, FriendshipStatus.CONFIRMED);
+    }
+
+    @Override
+    public void removeFriendLink(int userId, int friendId) {
+        jdbcTemplate.update("/* UserDbStorage.removeFriendLink */ " +
+                "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?", userId, friendId);
+        AfterCommit.run(() -> friendGraph.onLinkRemoved(userId, friendId));
+    }
+
     @Override
     public List<User> findAll() {
-        String sql = "SELECT id, email, login, name, birthday FROM users";
+        String sql = "/* UserDbStorage.findAll */ SELECT id, email, login, name, birthday FROM users";
         List<User> users = jdbcTemplate.query(sql, userRowMapper);
         Map<Integer, Set<FriendLink>> linksByUser = loadAllFriendLinks();
         for (User user : users) {
@@ -145,7 +201,7 @@ public class UserDbStorage implements UserStorage {
     }
 
     private Map<Integer, Set<FriendLink>> loadAllFriendLinks() {
-        String sql = "SELECT user_id, friend_id, status FROM user_friends";
+        String sql = "/* UserDbStorage.loadAllFriendLinks */ SELECT user_id, friend_id, status FROM user_friends";
         Map<Integer, Set<FriendLink>> result = new HashMap<>();
         jdbcTemplate.query(sql, (rs, rowNum) -> {
             int userId = rs.getInt("user_id");
@@ -159,7 +215,7 @@ public class UserDbStorage implements UserStorage {
 
     private Set<FriendLink> loadFriendLinks(int userId) {
         validationUtils.validateUser(userId);
-        String sql = "SELECT friend_id, status FROM user_friends WHERE user_id = ?";
+        String sql = "/* UserDbStorage.loadFriendLinks */ SELECT friend_id, status FROM user_friends WHERE user_id = ?";
         List<FriendLink> links = jdbcTemplate.query(sql,
             (rs, rowNum) -> {
                 int friendId = rs.getInt("friend_id");
@@ -176,7 +232,8 @@ public class UserDbStorage implements UserStorage {
             return Map.of();
         }
         String placeholders = String.join(",", Collections.nCopies(userIds.size(), "?"));
-        String sql = "SELECT user_id, friend_id, status FROM user_friends WHERE user_id IN (" + placeholders + ")";
+        String sql = "/* UserDbStorage.loadFriendLinksForUserIds */ " +
+                "SELECT user_id, friend_id, status FROM user_friends WHERE user_id IN (" + placeholders + ")";
         Map<Integer, Set<FriendLink>> result = new HashMap<>();
         jdbcTemplate.query(sql, userIds.toArray(), rs -> {
             int userId = rs.getInt("user_id");
@@ -192,7 +249,8 @@ public class UserDbStorage implements UserStorage {
         if (friendLinks == null || friendLinks.isEmpty()) {
             return;
         }
-        String sql = "INSERT INTO user_friends (user_id, friend_id, status) VALUES (?, ?, ?)";
+        String sql = "/* UserDbStorage.saveFriendLinks */ " +
+                "INSERT INTO user_friends (user_id, friend_id, status) VALUES (?, ?, ?)";
         List<Object[]> batchArgs = new ArrayList<>(friendLinks.size());
         for (FriendLink link : friendLinks) {
             batchArgs.add(new Object[]{userId, link.getFriendId(), link.getStatus().name()});
@@ -200,9 +258,36 @@ public class UserDbStorage implements UserStorage {
         jdbcTemplate.batchUpdate(sql, batchArgs);
     }
 
-    private void deleteFriendLinks(int userId) {
-        validationUtils.validateUser(userId);
-        String sql = "DELETE FROM user_friends WHERE user_id = ?";
-        jdbcTemplate.update(sql, userId);
+    private void mergeFriendLink(int userId, int friendId, FriendshipStatus status) {
+        jdbcTemplate.update("/* UserDbStorage.mergeFriendLink */ " +
+                "MERGE INTO user_friends (user_id, friend_id, status) KEY (user_id, friend_id) " +
+                "VALUES (?, ?, ?)", userId, friendId, status.name());
+        AfterCommit.run(() -> friendGraph.onLinkSet(userId, friendId, status));
+    }
+
+    // Приводит связи пользователя к переданным: пишутся только добавленные, изменённые и удалённые
+    private void syncFriendLinks(int userId, Set<FriendLink> friendLinks) {
+        Map<Integer, FriendshipStatus> current = new HashMap<>();
+        loadFriendLinks(userId).forEach(link -> current.put(link.getFriendId(), link.getStatus()));
+        List<Object[]> merged = new ArrayList<>();
+        for (FriendLink link : friendLinks) {
+            if (current.remove(link.getFriendId()) != link.getStatus()) {
+                merged.add(new Object[]{userId, link.getFriendId(), link.getStatus().name()});
+            }
+        }
+        if (!merged.isEmpty()) {
+            jdbcTemplate.batchUpdate("/* UserDbStorage.syncFriendLinks */ " +
+                    "MERGE INTO user_friends (user_id, friend_id, status) KEY (user_id, friend_id) " +
+                    "VALUES (?, ?, ?)", merged);
+        }
+        if (!current.isEmpty()) {
+            jdbcTemplate.batchUpdate("/* UserDbStorage.syncFriendLinks */ " +
+                    "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?",
+                    current.keySet().stream().map(friendId -> new Object[]{userId, friendId}).toList());
+        }
+        if (!merged.isEmpty() || !current.isEmpty()) {
+            Set<FriendLink> links = Set.copyOf(friendLinks);
+            AfterCommit.run(() -> friendGraph.onLinksReplaced(userId, links));
+        }
     }
 }
@@ -15,8 +15,18 @@ public interface UserStorage {
 
     User findById(int id);
 
+    boolean exists(int id);
+
     List<User> findByIds(Collection<Integer> ids);
 
     List<User> findAll();
+
+    // Заявка в друзья: связь userId -> friendId без подтверждения
+    void addFriendLink(int userId, int friendId);
+
+    // Встречная заявка: связи в обе стороны становятся подтверждёнными
+    void confirmFriendLink(int userId, int friendId);
+
+    void removeFriendLink(int userId, int friendId);
 }
 
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Множества существующих id пользователей, фильмов и отзывов в сжатых битовых картах.
+// Проверка существования сводится к чтению из памяти вместо SELECT COUNT(*) на каждый вызов.
+// Карты пополняются и очищаются в тех же местах, где хранилища вставляют и удаляют строки;
+// при откате транзакции изменение отменяется.
+@Component
+@RequiredArgsConstructor
+public class EntityIdRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(EntityIdRegistry.class);
+
+    public enum Kind {
+        USER("users"),
+        FILM("films"),
+        REVIEW("reviews");
+
+        private final String table;
+
+        Kind(String table) {
+            this.table = table;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Сверка каждого ответа с базой, включается в тестах: расхождение — ошибка в хранилище
+    @Value("${filmorate.id-registry.verify:false}")
+    private final boolean verify;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Kind, RoaringBitmap> bitmaps = new EnumMap<>(Kind.class);
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Kind, RoaringBitmap> loaded = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            RoaringBitmap ids = new RoaringBitmap();
+            jdbcTemplate.query("/* EntityIdRegistry.rebuild */ SELECT id FROM " + kind.table, rs -> {
+                ids.add(rs.getInt("id"));
+            });
+            ids.runOptimize();
+            loaded.put(kind, ids);
+        }
+        lock.writeLock().lock();
+        try {
+            bitmaps.clear();
+            bitmaps.putAll(loaded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Реестр id загружен: {} пользователей, {} фильмов, {} отзывов",
+                loaded.get(Kind.USER).getCardinality(), loaded.get(Kind.FILM).getCardinality(),
+                loaded.get(Kind.REVIEW).getCardinality());
+    }
+
+    public boolean contains(Kind kind, Integer id) {
+        if (id == null) {
+            return false;
+        }
+        boolean present;
+        lock.readLock().lock();
+        try {
+            present = bitmaps.get(kind).contains(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return verify ? verified(kind, id, present) : present;
+    }
+
+    public void add(Kind kind, int id) {
+        apply(kind, id, true);
+        afterRollback(() -> apply(kind, id, false));
+    }
+
+    public void remove(Kind kind, int id) {
+        apply(kind, id, false);
+        afterRollback(() -> apply(kind, id, true));
+    }
+
+    public void removeAll(Kind kind, Collection<Integer> ids) {
+        ids.forEach(id -> remove(kind, id));
+    }
+
+    private boolean verified(Kind kind, int id, boolean present) {
+        Integer count = jdbcTemplate.queryForObject(
+                "/* EntityIdRegistry.verified */ " +
+                        "SELECT COUNT(*) FROM " + kind.table + " WHERE id = ?", Integer.class, id);
+        boolean exists = count != null && count > 0;
+        if (exists != present) {
+            throw new IllegalStateException("Реестр id разошёлся с базой: " + kind + " " + id + " "
+                    + (exists ? "отсутствует в реестре" : "удалён из базы в обход хранилища"));
+        }
+        return present;
+    }
+
+    private void apply(Kind kind, int id, boolean present) {
+        lock.writeLock().lock();
+        try {
+            if (present) {
+                bitmaps.get(kind).add(id);
+            } else {
+                bitmaps.get(kind).remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    undo.run();
+                }
+            }
+        });
+    }
+}
@@ -1,14 +1,13 @@
 package ru.yandex.practicum.filmorate.validation;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.ForbiddenException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry.Kind;
 
 import java.time.LocalDate;
 
@@ -17,19 +16,16 @@ import java.time.LocalDate;
 public class ValidationUtils {
 
     private final JdbcTemplate jdbcTemplate;
+    private final EntityIdRegistry idRegistry;
 
     public void validateUser(Integer id) {
-        String sql = "SELECT COUNT(*) FROM users WHERE id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
-        if (count == null || count == 0) {
+        if (!idRegistry.contains(Kind.USER, id)) {
             throw new NotFoundException("Пользователь с ID " + id + " не найден");
         }
     }
 
     public void validateFilm(Integer id) {
-        String sql = "SELECT COUNT(*) FROM films WHERE id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
-        if (count == null || count == 0) {
+        if (!idRegistry.contains(Kind.FILM, id)) {
             throw new NotFoundException("Фильм с ID " + id + " не найден");
         }
     }
@@ -42,30 +38,16 @@ public class ValidationUtils {
         }
     }
 
-    //проверка существования пользователя
-    public Review validateReview(Integer id) {
-        String sql = "SELECT id, content, is_positive, user_id, film_id, useful " +
-                "FROM reviews WHERE id = ?";
-
-        try {
-            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
-                Review review = new Review();
-                review.setReviewId(rs.getInt("id"));
-                review.setContent(rs.getString("content"));
-                review.setIsPositive(rs.getBoolean("is_positive"));
-                review.setUserId(rs.getInt("user_id"));
-                review.setFilmId(rs.getInt("film_id"));
-                review.setUseful(rs.getInt("useful"));
-                return review;
-            }, id);
-        } catch (EmptyResultDataAccessException e) {
+    //проверка существования отзыва
+    public void validateReview(Integer id) {
+        if (!idRegistry.contains(Kind.REVIEW, id)) {
             throw new NotFoundException("Отзыв с ID " + id + " не найден");
         }
     }
 
     //проверка прав пользователя на редактирование/удаление отзыва
     public void validateReviewOwnership(Integer reviewId, Integer userId) {
-        String sql = "SELECT user_id FROM reviews WHERE id = ?";
+        String sql = "/* ValidationUtils.validateReviewOwnership */ SELECT user_id FROM reviews WHERE id = ?";
         Integer ownerId = jdbcTemplate.queryForObject(sql, Integer.class, reviewId);
 
         if (!ownerId.equals(userId)) {
@@ -34,7 +34,8 @@ CREATE TABLE IF NOT EXISTS films
     description    VARCHAR(200),
     release_date   DATE         NOT NULL,
     duration       INTEGER      NOT NULL,
-    mpaa_rating_id INTEGER REFERENCES mpaa_ratings (id)
+    mpaa_rating_id INTEGER REFERENCES mpaa_ratings (id),
+    like_count     INTEGER DEFAULT 0 NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS film_genre
@@ -66,6 +67,15 @@ CREATE TABLE IF NOT EXISTS film_likes
     PRIMARY KEY (film_id, user_id)
 );
 
+-- Несвёрнутые изменения films.like_count, разложенные по полосам, чтобы лайки одного фильма не ждали одну строку
+CREATE TABLE IF NOT EXISTS film_like_counts
+(
+    film_id INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    stripe  INTEGER NOT NULL,
+    delta   INTEGER DEFAULT 0 NOT NULL,
+    PRIMARY KEY (film_id, stripe)
+);
+
 CREATE TABLE IF NOT EXISTS reviews
 (
     id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -84,6 +94,15 @@ CREATE TABLE IF NOT EXISTS review_likes
     PRIMARY KEY (review_id, user_id)
 );
 
+-- Сводка отзывов фильма, поддерживается хранилищем отзывов при каждом изменении
+CREATE TABLE IF NOT EXISTS film_review_stats
+(
+    film_id        INTEGER PRIMARY KEY REFERENCES films (id) ON DELETE CASCADE,
+    positive_count INTEGER DEFAULT 0 NOT NULL,
+    negative_count INTEGER DEFAULT 0 NOT NULL,
+    total_useful   INTEGER DEFAULT 0 NOT NULL
+);
+
 CREATE TABLE IF NOT EXISTS events
 (
     event_id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -94,16 +113,25 @@ CREATE TABLE IF NOT EXISTS events
     timestamp  BIGINT      NOT NULL
 );
 
+-- Готовые рекомендации: список id фильмов в порядке выдачи и время расчёта
+CREATE TABLE IF NOT EXISTS user_recommendations
+(
+    user_id     INTEGER PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    film_ids    INTEGER ARRAY NOT NULL,
+    computed_at BIGINT        NOT NULL
+);
+
 CREATE INDEX IF NOT EXISTS idx_films_mpaa_rating_id ON films (mpaa_rating_id);
+CREATE INDEX IF NOT EXISTS idx_films_like_count ON films (like_count DESC, id);
 CREATE INDEX IF NOT EXISTS idx_film_genre_film_id ON film_genre (film_id);
 CREATE INDEX IF NOT EXISTS idx_film_genre_genre_id ON film_genre (genre_id);
 CREATE INDEX IF NOT EXISTS idx_user_friends_user_id ON user_friends (user_id);
 CREATE INDEX IF NOT EXISTS idx_user_friends_friend_id ON user_friends (friend_id);
 CREATE INDEX IF NOT EXISTS idx_film_likes_film_id ON film_likes (film_id);
 CREATE INDEX IF NOT EXISTS idx_film_likes_user_id ON film_likes (user_id);
-CREATE INDEX IF NOT EXISTS idx_reviews_film_id ON reviews (film_id);
+CREATE INDEX IF NOT EXISTS idx_reviews_film_useful ON reviews (film_id, useful DESC, id);
 CREATE INDEX IF NOT EXISTS idx_reviews_user_id ON reviews (user_id);
-CREATE INDEX IF NOT EXISTS idx_reviews_useful ON reviews (useful DESC);
+CREATE INDEX IF NOT EXISTS idx_reviews_useful ON reviews (useful DESC, id);
 CREATE INDEX IF NOT EXISTS idx_review_likes_review_id ON review_likes (review_id);
 CREATE INDEX IF NOT EXISTS idx_review_likes_user_id ON review_likes (user_id);
-CREATE INDEX IF NOT EXISTS idx_events_user_id ON events (user_id);
+CREATE INDEX IF NOT EXISTS idx_events_user_timestamp ON events (user_id, timestamp, event_id);
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import ru.yandex.practicum.filmorate.storage.review.FilmReviewStats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest(properties = "filmorate.metrics.log-interval-ms=3600000")
+@AutoConfigureTestDatabase
+@Import({InstrumentedJdbcTemplate.class, QueryMetrics.class, FilmReviewStats.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryMetricsTest {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryMetrics queryMetrics;
+    private final FilmReviewStats reviewStats;
+
+    @Test
+    void recordQuery_shouldGroupQueriesByNameGivenInStorageMethod() {
+        assertThat(jdbcTemplate).isInstanceOf(InstrumentedJdbcTemplate.class);
+        int filmId = jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE (INSERT INTO films " +
+                "(name, release_date, duration) VALUES ('Фильм', DATE '2000-01-01', 100))", Integer.class);
+
+        reviewStats.find(filmId);
+        reviewStats.find(filmId);
+        reviewStats.change(filmId, 1, 0, 3);
+        reviewStats.find(filmId);
+
+        List<LatencySummary> queries = queryMetrics.queries();
+        assertThat(queries).extracting(LatencySummary::name)
+                .contains("FilmReviewStats.find", "FilmReviewStats.change", "unnamed");
+        LatencySummary find = summary("FilmReviewStats.find");
+        assertThat(find.calls()).isEqualTo(3);
+        assertThat(find.maxCount()).isEqualTo(1);
+        assertThat(find.maxMicros()).isGreaterThanOrEqualTo(find.p50Micros());
+    }
+
+    @Test
+    void recordQuery_shouldNameQueriesWithInListsAndStatementCreatorsByComment() {
+        for (int size = 1; size <= 5; size++) {
+            String placeholders = String.join(",", Collections.nCopies(size, "?"));
+            jdbcTemplate.queryForList("/* QueryMetricsTest.inList */ SELECT id FROM films WHERE id IN (" +
+                    placeholders + ")", Integer.class, IntStream.range(0, size).boxed().toArray());
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        for (int i = 0; i < 2; i++) {
+            jdbcTemplate.update(connection -> connection.prepareStatement("/* QueryMetricsTest.insert */ " +
+                    "INSERT INTO films (name, release_date, duration) VALUES ('Фильм', DATE '2000-01-01', 100)",
+                    new String[]{"id"}), keyHolder);
+        }
+
+        assertThat(summary("QueryMetricsTest.inList").calls()).isEqualTo(5);
+        assertThat(summary("QueryMetricsTest.insert").calls()).isEqualTo(2);
+        assertThat(keyHolder.getKey()).isNotNull();
+    }
+
+    @Test
+    void recordQuery_shouldCountRowsPassedToRowCallbackHandler() {
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("INSERT INTO films (name, release_date, duration) VALUES (?, DATE '2000-01-01', 100)",
+                    "Фильм " + i);
+        }
+        List<Integer> ids = new ArrayList<>();
+        jdbcTemplate.query("/* QueryMetricsTest.callback */ SELECT id FROM films",
+                (RowCallbackHandler) rs -> ids.add(rs.getInt("id")));
+        jdbcTemplate.query("/* QueryMetricsTest.callbackWithArgs */ SELECT id FROM films WHERE name <> ?",
+                (RowCallbackHandler) rs -> ids.add(rs.getInt("id")), "Фильм 0");
+
+        assertThat(ids).hasSize(5);
+        assertThat(summary("QueryMetricsTest.callback").maxCount()).isEqualTo(3);
+        assertThat(summary("QueryMetricsTest.callbackWithArgs").maxCount()).isEqualTo(2);
+    }
+
+    private LatencySummary summary(String name) {
+        return queryMetrics.queries().stream().filter(s -> s.name().equals(name)).findFirst().orElseThrow();
+    }
+}
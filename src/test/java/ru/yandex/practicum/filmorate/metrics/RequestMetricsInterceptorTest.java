@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestMetricsInterceptorTest {
+
+    private final QueryMetrics metrics = new QueryMetrics(10);
+    private final RequestMetricsInterceptor interceptor = new RequestMetricsInterceptor(metrics);
+    private final Handlers handlers = new Handlers();
+
+    @Test
+    void afterCompletion_shouldRecordEndpointByPatternWithItsQueryCount() throws NoSuchMethodException {
+        handle(handler("findById"), "GET", "/films/1", "/films/{id}", 2);
+        handle(handler("findById"), "GET", "/films/2", "/films/{id}", 1);
+        handle(handler("findAll"), "GET", "/films", "/films", 0);
+
+        List<LatencySummary> endpoints = metrics.endpoints();
+        assertThat(endpoints).extracting(LatencySummary::name)
+                .containsExactlyInAnyOrder("GET /films/{id}", "GET /films");
+        LatencySummary findById = endpoints.stream()
+                .filter(s -> s.name().equals("GET /films/{id}"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(findById.calls()).isEqualTo(2);
+        assertThat(findById.maxCount()).isEqualTo(2);
+        assertThat(findById.meanCount()).isEqualTo(1.5);
+    }
+
+    @Test
+    void afterCompletion_shouldIgnoreRequestsNotHandledByController() {
+        handle(new Object(), "GET", "/favicon.ico", null, 1);
+
+        assertThat(metrics.endpoints()).isEmpty();
+    }
+
+    private void handle(Object handler, String method, String uri, String pattern, int queries) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request, response, handler)).isTrue();
+        for (int i = 0; i < queries; i++) {
+            metrics.recordQuery("/* Handlers.query */ SELECT 1", 1_000, 1);
+        }
+        if (pattern != null) {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        }
+        interceptor.afterCompletion(request, response, handler, null);
+    }
+
+    private HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(handlers, name);
+    }
+
+    static class Handlers {
+        public void findById() {
+        }
+
+        public void findAll() {
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.model.event.Operation;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.event.FeedCursor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeedStreamServiceTest {
+
+    private static final long STALL_TIMEOUT_MS = 50;
+
+    private final InMemoryEventStorage storage = new InMemoryEventStorage();
+    // emitter-ы для подписок в порядке вызова subscribe
+    private final Queue<RecordingEmitter> emitters = new ConcurrentLinkedQueue<>();
+    private final List<RecordingEmitter> created = new ArrayList<>();
+    private final long now = System.currentTimeMillis();
+    private FeedStreamService service;
+
+    @AfterEach
+    void tearDown() {
+        created.forEach(emitter -> emitter.release.countDown());
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void subscribe_shouldReplayAfterLastEventIdThenDeliverLiveEvents() throws InterruptedException {
+        start();
+        for (int id = 1; id <= 5; id++) {
+            storage.events.add(event(id, 1, now + id));
+        }
+        RecordingEmitter emitter = nextEmitter();
+
+        service.subscribe(1, FeedCursor.after(storage.events.get(1)).encode());
+        assertThat(emitter.take(3)).extracting(Event::getEventId).containsExactly(3, 4, 5);
+
+        // событие 5 уже отдано при дочитывании; 6 зафиксировано позже 7, но всё равно доходит
+        service.onFeedEvent(event(5, 1, now + 5));
+        service.onFeedEvent(event(7, 1, now + 7));
+        service.onFeedEvent(event(6, 1, now + 6));
+        service.onFeedEvent(event(8, 2, now + 8));
+
+        assertThat(emitter.take(2)).extracting(Event::getEventId).containsExactly(7, 6);
+        assertThat(emitter.received.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void onFeedEvent_shouldUnsubscribeClientWhoseConnectionFailed() throws InterruptedException {
+        start();
+        RecordingEmitter emitter = nextEmitter();
+        emitter.failing = true;
+        service.subscribe(1, null);
+        assertThat(service.connections()).isEqualTo(1);
+
+        service.onFeedEvent(event(1, 1, now));
+
+        awaitConnections(0);
+    }
+
+    @Test
+    void stalledClient_shouldNotDelayOthersAndShouldBeUnsubscribed() throws InterruptedException {
+        start();
+        RecordingEmitter stalled = nextEmitter();
+        stalled.blocking = true;
+        RecordingEmitter healthy = nextEmitter();
+        service.subscribe(1, null);
+        service.subscribe(2, null);
+
+        // отправки первому клиенту повисают, а второй получает события, сколько бы их ни было
+        for (int id = 1; id <= 10; id++) {
+            service.onFeedEvent(event(id * 2 - 1, 1, now + id));
+            service.onFeedEvent(event(id * 2, 2, now + id));
+        }
+        assertThat(healthy.take(10)).hasSize(10);
+
+        Thread.sleep(STALL_TIMEOUT_MS * 2);
+        service.heartbeat();
+        awaitConnections(1);
+    }
+
+    @Test
+    void subscribe_shouldDropClientWhenSendCannotStartRightAway() throws InterruptedException {
+        start(1, 1);
+        RecordingEmitter stalled = nextEmitter();
+        stalled.blocking = true;
+        service.subscribe(1, null);
+        service.onFeedEvent(event(1, 1, now));
+        // единственный поток пула повис на отправке
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // задача второго подписчика встаёт в очередь, для третьего места уже нет
+        nextEmitter();
+        service.subscribe(2, null);
+        nextEmitter();
+        service.subscribe(3, null);
+
+        assertThat(service.connections()).isEqualTo(2);
+    }
+
+    private void start() {
+        start(2, 64);
+    }
+
+    private void start(int threads, int queueCapacity) {
+        service = new FeedStreamService(storage, 16, 60_000, STALL_TIMEOUT_MS, threads, queueCapacity) {
+            @Override
+            SseEmitter createEmitter() {
+                return emitters.remove();
+            }
+        };
+        service.start();
+    }
+
+    private RecordingEmitter nextEmitter() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitters.add(emitter);
+        created.add(emitter);
+        return emitter;
+    }
+
+    private void awaitConnections(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.connections() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(service.connections()).isEqualTo(expected);
+    }
+
+    private static Event event(int eventId, int userId, long timestamp) {
+        return new Event(eventId, userId, eventId, EventType.LIKE, Operation.ADD, timestamp);
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Event> received = new LinkedBlockingQueue<>();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private volatile boolean failing;
+        private volatile boolean blocking;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Соединение разорвано");
+            }
+            if (blocking) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (ResponseBodyEmitter.DataWithMediaType item : builder.build()) {
+                if (item.getData() instanceof Event event) {
+                    received.add(event);
+                }
+            }
+        }
+
+        private List<Event> take(int count) throws InterruptedException {
+            List<Event> events = new ArrayList<>();
+            while (events.size() < count) {
+                Event event = received.poll(5, TimeUnit.SECONDS);
+                if (event == null) {
+                    break;
+                }
+                events.add(event);
+            }
+            return events;
+        }
+    }
+
+    private static final class InMemoryEventStorage implements EventStorage {
+        private final List<Event> events = new ArrayList<>();
+
+        @Override
+        public List<Event> getUserFeed(int userId) {
+            return getUserFeed(userId, null, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public List<Event> getUserFeed(int userId, FeedCursor after, int limit) {
+            return events.stream()
+                    .filter(e -> e.getUserId() == userId)
+                    .filter(e -> after == null || e.getTimestamp() > after.timestamp()
+                            || e.getTimestamp() == after.timestamp() && e.getEventId() > after.eventId())
+                    .sorted(Comparator.comparingLong(Event::getTimestamp).thenComparingInt(Event::getEventId))
+                    .limit(limit)
+                    .toList();
+        }
+
+        @Override
+        public void createLikeEvent(int userId, int entityId, Operation operation) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void createFriendEvent(int userId, int entityId, Operation operation) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void createReviewEvent(int userId, int entityId, Operation operation) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean deleteEventByUserId(int userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void createEvent(int userId, int entityId, EventType eventType, Operation operation) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
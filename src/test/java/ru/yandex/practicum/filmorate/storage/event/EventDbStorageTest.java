@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.ValidationUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({EventDbStorage.class, UserDbStorage.class, FriendGraph.class, ValidationUtils.class, EntityIdRegistry.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class EventDbStorageTest {
+
+    private final EventDbStorage eventStorage;
+    private final UserDbStorage userStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void getUserFeed_shouldPageByCursorWithoutGapsOrDuplicates() {
+        User user = new User();
+        user.setEmail("feed@mail.ru");
+        user.setLogin("feed");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        int userId = userStorage.add(user).getId();
+        // одинаковые timestamp у соседних событий: порядок внутри них задаёт event_id
+        for (int i = 0; i < 7; i++) {
+            jdbcTemplate.update("INSERT INTO events (user_id, entity_id, event_type, operation, timestamp) " +
+                    "VALUES (?, ?, 'LIKE', 'ADD', ?)", userId, i, 1000L + i / 2);
+        }
+
+        List<Event> paged = new ArrayList<>();
+        FeedCursor cursor = null;
+        List<Event> page;
+        do {
+            page = eventStorage.getUserFeed(userId, cursor, 3);
+            paged.addAll(page);
+            if (!page.isEmpty()) {
+                cursor = FeedCursor.decode(FeedCursor.after(page.getLast()).encode());
+            }
+        } while (page.size() == 3);
+
+        assertThat(paged).extracting(Event::getEntityId).containsExactly(0, 1, 2, 3, 4, 5, 6);
+        assertThat(paged).isEqualTo(eventStorage.getUserFeed(userId));
+        assertThatThrownBy(() -> FeedCursor.decode("не-курсор")).isInstanceOf(ValidationException.class);
+    }
+}
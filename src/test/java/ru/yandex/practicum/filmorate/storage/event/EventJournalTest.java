@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.model.event.Operation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Писатель журнала работает в своём потоке и не видит тестовую транзакцию, поэтому тесты
+// работают без неё: строки фиксируются сразу, пользователи у каждого теста свои
+@JdbcTest(properties = {
+        "filmorate.events.journal.enabled=true",
+        "filmorate.events.journal.capacity=64",
+        "filmorate.events.journal.batch-size=16"
+})
+@AutoConfigureTestDatabase
+@Import({EventJournal.class, EventDbStorage.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class EventJournalTest {
+
+    private final EventJournal eventJournal;
+    private final EventDbStorage eventDbStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void getUserFeed_shouldSeeEveryEventAddedBeforeTheCall() {
+        int userId = createUser("barrier");
+
+        for (int i = 0; i < 200; i++) {
+            eventJournal.createLikeEvent(userId, i, Operation.ADD);
+            // барьер внутри чтения дожидается и событий, ещё лежащих в буфере
+            assertThat(eventJournal.getUserFeed(userId)).hasSize(i + 1);
+        }
+    }
+
+    @Test
+    void createEvent_shouldKeepOrderOfEachUserUnderConcurrentWriters() throws InterruptedException {
+        int[] userIds = IntStream.range(0, 4).map(i -> createUser("order" + i)).toArray();
+        int perUser = 300;
+
+        List<Thread> writers = new ArrayList<>();
+        for (int userId : userIds) {
+            // больше событий, чем вмещает буфер: писатели упираются в заполненный буфер
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < perUser; i++) {
+                    eventJournal.createEvent(userId, i, EventType.FRIEND, Operation.ADD);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        for (int userId : userIds) {
+            List<Event> feed = eventJournal.getUserFeed(userId);
+            assertThat(feed).extracting(Event::getEntityId)
+                    .containsExactlyElementsOf(IntStream.range(0, perUser).boxed().toList());
+            assertThat(feed).extracting(Event::getEventId).isSorted();
+        }
+    }
+
+    @Test
+    void stop_shouldWriteEventsStillInBuffer() throws InterruptedException {
+        int userId = createUser("drain");
+        // отдельный журнал, чтобы не останавливать общий бин контекста
+        EventJournal journal = new EventJournal(eventDbStorage, jdbcTemplate, transactionTemplate,
+                eventPublisher, 1024, 16);
+        journal.start();
+
+        for (int i = 0; i < 500; i++) {
+            journal.createReviewEvent(userId, i, Operation.UPDATE);
+        }
+        journal.stop();
+
+        assertThat(eventDbStorage.getUserFeed(userId)).hasSize(500);
+    }
+
+    private int createUser(String login) {
+        return jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE (INSERT INTO users (email, login, birthday) " +
+                "VALUES (?, ?, DATE '1990-01-01'))", Integer.class, login + "@journal.ru", login);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventRingBufferTest {
+
+    @Test
+    void offerAndPollShouldKeepInsertionOrder() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(4);
+
+        assertEquals(1, buffer.offer(10));
+        assertEquals(2, buffer.offer(20));
+        assertEquals(10, buffer.poll());
+        assertEquals(3, buffer.offer(30));
+
+        assertEquals(20, buffer.poll());
+        assertEquals(30, buffer.poll());
+        assertNull(buffer.poll());
+        assertEquals(3, buffer.claimed());
+    }
+
+    @Test
+    void offerShouldFailWhenBufferIsFull() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(2);
+
+        buffer.offer(1);
+        buffer.offer(2);
+
+        assertEquals(-1, buffer.offer(3));
+        assertEquals(1, buffer.poll());
+        assertEquals(3, buffer.offer(3));
+    }
+
+    @Test
+    void constructorShouldRejectCapacityNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new EventRingBuffer<Integer>(3));
+    }
+
+    @Test
+    void concurrentProducersShouldNotLoseOrReorderOwnItems() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        EventRingBuffer<int[]> buffer = new EventRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    int[] item = {producer, i};
+                    while (buffer.offer(item) < 0) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        int[] lastSeen = new int[producers];
+        Arrays.fill(lastSeen, -1);
+        int received = 0;
+        while (received < producers * perProducer) {
+            int[] item = buffer.poll();
+            if (item == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertEquals(lastSeen[item[0]] + 1, item[1]);
+            lastSeen[item[0]] = item[1];
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(buffer.poll());
+        assertEquals((long) producers * perProducer, buffer.claimed());
+    }
+}
@@ -6,12 +6,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MpaaRating;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.dto.DirectorDto;
+import ru.yandex.practicum.filmorate.model.dto.GenreDto;
+import ru.yandex.practicum.filmorate.storage.director.DirectorDbStorage;
 import ru.yandex.practicum.filmorate.storage.event.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeCountReconciler;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
 import ru.yandex.practicum.filmorate.validation.ValidationUtils;
 
 import java.time.LocalDate;
@@ -24,12 +35,21 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
 @AutoConfigureTestDatabase
-@Import({FilmDbStorage.class, UserDbStorage.class, EventDbStorage.class, ValidationUtils.class})
+@Import({FilmDbStorage.class, FilmHydrator.class, PopularityIndex.class, FilmSearchIndex.class, LikeIndex.class,
+        DirectorDbStorage.class, ReferenceDataCache.class, UserDbStorage.class, FriendGraph.class, LikeDbStorage.class,
+        LikeCountReconciler.class, EventDbStorage.class, ValidationUtils.class, EntityIdRegistry.class})
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmDbStorageTest {
 
     private final FilmDbStorage filmStorage;
     private final UserDbStorage userStorage;
+    private final PopularityIndex popularityIndex;
+    private final LikeDbStorage likeStorage;
+    private final DirectorDbStorage directorStorage;
+    private final LikeCountReconciler likeCountReconciler;
+    private final LikeIndex likeIndex;
+    private final ReferenceDataCache referenceData;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     void add_shouldCreateFilmAndReturnWithId() {
@@ -78,6 +98,7 @@ class FilmDbStorageTest {
         Film created = filmStorage.add(film);
 
         assertThat(created.getLikes()).containsExactlyInAnyOrder(u1.getId(), u2.getId());
+        commitLikes();
         Film found = filmStorage.findById(created.getId());
         assertThat(found.getLikes()).containsExactlyInAnyOrder(u1.getId(), u2.getId());
     }
@@ -168,6 +189,211 @@ class FilmDbStorageTest {
         assertThat(all).extracting(Film::getName).containsExactlyInAnyOrder("Film A", "Film B");
     }
 
+    @Test
+    void findAll_shouldHydrateGenresAndLikesForEveryFilm() {
+        User user = new User();
+        user.setEmail("fan@mail.ru");
+        user.setLogin("fan");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        userStorage.add(user);
+
+        Film comedy = createFilm("Comedy", "Desc", LocalDate.of(2000, 1, 1), 90);
+        comedy.setGenreIds(List.of(2, 1));
+        comedy.setLikes(Set.of(user.getId()));
+        comedy = filmStorage.add(comedy);
+        Film plain = filmStorage.add(createFilm("Plain", "Desc", LocalDate.of(2001, 1, 1), 100));
+        commitLikes();
+
+        List<Film> all = filmStorage.findAll();
+
+        Film foundComedy = all.stream().filter(f -> f.getName().equals("Comedy")).findFirst().orElseThrow();
+        assertThat(foundComedy.getGenreIds()).containsExactly(1, 2);
+        assertThat(foundComedy.getGenresResponse()).extracting(GenreDto::getName).containsExactly("Комедия", "Драма");
+        assertThat(foundComedy.getLikes()).containsExactly(user.getId());
+        Film foundPlain = all.stream().filter(f -> f.getName().equals("Plain")).findFirst().orElseThrow();
+        assertThat(foundPlain.getGenreIds()).isEmpty();
+        assertThat(foundPlain.getLikes()).isEmpty();
+
+        List<Film> byIds = filmStorage.findByIds(List.of(plain.getId(), comedy.getId()));
+        assertThat(byIds).extracting(Film::getId).containsExactly(plain.getId(), comedy.getId());
+        assertThat(byIds.get(1).getGenreIds()).containsExactly(1, 2);
+    }
+
+    @Test
+    void popularityIndex_shouldRankFilteredFilmsByLikes() {
+        User user = new User();
+        user.setEmail("voter@mail.ru");
+        user.setLogin("voter");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        userStorage.add(user);
+
+        Film quiet = createFilm("Quiet", "Desc", LocalDate.of(1950, 1, 1), 90);
+        quiet.setGenreIds(List.of(1));
+        quiet = filmStorage.add(quiet);
+        Film loud = createFilm("Loud", "Desc", LocalDate.of(1950, 2, 1), 90);
+        loud.setGenreIds(List.of(1));
+        loud.setLikes(Set.of(user.getId()));
+        loud = filmStorage.add(loud);
+        commitLikes();
+        Film otherGenre = createFilm("Other", "Desc", LocalDate.of(1950, 3, 1), 90);
+        otherGenre.setGenreIds(List.of(2));
+        filmStorage.add(otherGenre);
+
+        assertThat(popularityIndex.top(10, 1, 1950)).containsExactly(loud.getId(), quiet.getId());
+
+        likeIndex.onLikeRemoved(loud.getId(), user.getId());
+        likeIndex.onLikeRemoved(loud.getId(), user.getId());
+        assertThat(popularityIndex.likes(loud.getId())).isZero();
+        assertThat(popularityIndex.top(10, 1, 1950)).containsExactly(quiet.getId(), loud.getId());
+
+        filmStorage.deleteById(quiet.getId());
+        assertThat(popularityIndex.top(10, 1, 1950)).containsExactly(loud.getId());
+    }
+
+    @Test
+    void getCommonFilms_shouldOrderByMaintainedLikeCount() {
+        User u1 = userStorage.add(createUser("c1@mail.ru", "c1"));
+        User u2 = userStorage.add(createUser("c2@mail.ru", "c2"));
+        User u3 = userStorage.add(createUser("c3@mail.ru", "c3"));
+        Film less = filmStorage.add(createFilm("Less", "Desc", LocalDate.of(2003, 1, 1), 90));
+        Film more = filmStorage.add(createFilm("More", "Desc", LocalDate.of(2004, 1, 1), 90));
+
+        likeStorage.addLike(less.getId(), u1.getId());
+        likeStorage.addLike(less.getId(), u2.getId());
+        likeStorage.addLike(more.getId(), u1.getId());
+        likeStorage.addLike(more.getId(), u2.getId());
+        likeStorage.addLike(more.getId(), u3.getId());
+        commitLikes();
+
+        assertThat(filmStorage.getCommonFilms(u1.getId(), u2.getId()))
+                .extracting(Film::getId).containsExactly(more.getId(), less.getId());
+
+        likeStorage.removeLike(more.getId(), u3.getId());
+        likeStorage.removeLike(more.getId(), u2.getId());
+        commitLikes();
+        assertThat(filmStorage.getCommonFilms(u1.getId(), u3.getId())).isEmpty();
+        assertThat(likeCount(more.getId())).isEqualTo(1);
+
+        userStorage.deleteById(u1.getId());
+        assertThat(likeCount(less.getId())).isEqualTo(1);
+        assertThat(likeCount(more.getId())).isZero();
+    }
+
+    @Test
+    void addLike_shouldKeepCountInStripesUntilFold() {
+        Film film = filmStorage.add(createFilm("Striped", "Desc", LocalDate.of(2003, 1, 1), 90));
+        for (int i = 0; i < 5; i++) {
+            User user = userStorage.add(createUser("s" + i + "@mail.ru", "s" + i));
+            likeStorage.addLike(film.getId(), user.getId());
+        }
+
+        // строка фильма не менялась, изменения лежат в полосах
+        assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class,
+                film.getId())).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(delta) FROM film_like_counts WHERE film_id = ?",
+                Integer.class, film.getId())).isEqualTo(5);
+
+        assertThat(likeCountReconciler.fold()).isEqualTo(1);
+        assertThat(likeCount(film.getId())).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(delta) FROM film_like_counts WHERE film_id = ?",
+                Integer.class, film.getId())).isZero();
+        assertThat(likeCountReconciler.reconcile()).isZero();
+    }
+
+    @Test
+    void likeCountReconciler_shouldRepairDrift() {
+        User user = userStorage.add(createUser("d1@mail.ru", "d1"));
+        Film film = filmStorage.add(createFilm("Drift", "Desc", LocalDate.of(2003, 1, 1), 90));
+        likeStorage.addLike(film.getId(), user.getId());
+        jdbcTemplate.update("UPDATE films SET like_count = 42 WHERE id = ?", film.getId());
+
+        assertThat(likeCountReconciler.reconcile()).isEqualTo(1);
+        assertThat(likeCount(film.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void search_shouldFindByTitleAndDirectorOrderedByLikes() {
+        Director director = new Director();
+        director.setName("Квентин Тарантиноёв");
+        directorStorage.addDirector(director);
+        User user = userStorage.add(createUser("s1@mail.ru", "s1"));
+
+        Film byTitle = filmStorage.add(createFilm("Ёлки Тарантиноёва", "Desc", LocalDate.of(2010, 1, 1), 90));
+        Film byDirector = createFilm("Криминальное чтиво", "Desc", LocalDate.of(1994, 1, 1), 154);
+        byDirector.setDirectorIds(Set.of(director.getId()));
+        byDirector = filmStorage.add(byDirector);
+        likeStorage.addLike(byDirector.getId(), user.getId());
+        commitLikes();
+
+        assertThat(filmStorage.search("тарантиноев", "title", 0, 10))
+                .extracting(Film::getId).containsExactly(byTitle.getId());
+        assertThat(filmStorage.search("ТАРАНТИНОЁВ", "director,title", 0, 10))
+                .extracting(Film::getId).containsExactly(byDirector.getId(), byTitle.getId());
+        assertThat(filmStorage.search("тарантиноев", "title,director", 1, 10))
+                .extracting(Film::getId).containsExactly(byTitle.getId());
+
+        directorStorage.deleteDirector(director.getId());
+        assertThat(filmStorage.search("тарантиноев", "director", 0, 10)).isEmpty();
+        filmStorage.deleteById(byTitle.getId());
+        assertThat(filmStorage.search("тарантиноев", "title", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void findById_shouldResolveReferenceDataFromSnapshot() {
+        Director director = new Director();
+        director.setName("Старое имя");
+        directorStorage.addDirector(director);
+        Film film = createFilm("Reference", "Desc", LocalDate.of(2001, 1, 1), 90);
+        film.setMpaaRatingId(3);
+        film.setGenreIds(List.of(2, 1));
+        film.setDirectorIds(Set.of(director.getId()));
+        Film created = filmStorage.add(film);
+
+        director.setName("Новое имя");
+        directorStorage.updateDirector(director);
+        Film found = filmStorage.findById(created.getId());
+
+        assertThat(found.getMpaaRating()).isEqualTo(MpaaRating.PG_13);
+        assertThat(found.getGenresResponse()).extracting(GenreDto::getName).containsExactly("Комедия", "Драма");
+        assertThat(found.getDirectors()).extracting(DirectorDto::getName).containsExactly("Новое имя");
+    }
+
+    @Test
+    void findById_shouldLoadDirectorAddedBehindCache() {
+        Film created = filmStorage.add(createFilm("Behind", "Desc", LocalDate.of(2001, 1, 1), 90));
+        int directorId = jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE " +
+                "(INSERT INTO directors (name) VALUES ('Мимо кэша'))", Integer.class);
+        jdbcTemplate.update("INSERT INTO film_director (film_id, director_id) VALUES (?, ?)",
+                created.getId(), directorId);
+
+        assertThat(filmStorage.findById(created.getId()).getDirectors())
+                .extracting(DirectorDto::getName).containsExactly("Мимо кэша");
+        // удалённого параллельно режиссёра гидратор пропускает, а не падает
+        assertThat(referenceData.findDirector(directorId + 1000)).isNull();
+        assertThatThrownBy(() -> referenceData.getDirector(directorId + 1000))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining(String.valueOf(directorId + 1000));
+    }
+
+    // Тестовая транзакция не фиксируется, и LikeIndex не получает изменений из afterCommit:
+    // индекс перечитывается из базы, где они уже видны этой транзакции
+    private void commitLikes() {
+        likeIndex.rebuild();
+    }
+
+    private int likeCount(int filmId) {
+        likeCountReconciler.fold();
+        return jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+
+    private static User createUser(String email, String login) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
     private static Film createFilm(String name, String description, LocalDate releaseDate, int duration) {
         Film film = new Film();
         film.setName(name);
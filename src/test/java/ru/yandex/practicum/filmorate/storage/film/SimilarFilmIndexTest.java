@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest(properties = {
+        // фоновые задачи шли бы вне тестовой транзакции, поэтому тест вызывает refresh сам
+        "filmorate.similar-films.refresh-interval-ms=3600000",
+        "filmorate.similar-films.rebuild-interval-ms=3600000",
+        "filmorate.similar-films.max-fan-out=2"
+})
+@AutoConfigureTestDatabase
+@Import({SimilarFilmIndex.class, LikeIndex.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class SimilarFilmIndexTest {
+
+    private final SimilarFilmIndex similarFilmIndex;
+    private final LikeIndex likeIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void similar_shouldRankFilmsByCosineOfCommonLikes() {
+        int a = film("A");
+        int b = film("B");
+        int c = film("C");
+        int d = film("D");
+        int first = user("first");
+        int second = user("second");
+        int third = user("third");
+        like(first, a, b);
+        like(second, a, b, c);
+        like(third, c, d);
+        likeIndex.rebuild();
+
+        // B: 2 / sqrt(2 · 2) = 1, C: 1 / sqrt(2 · 2) = 0.5
+        assertThat(similarFilmIndex.similar(a, 10)).containsExactly(b, c);
+        assertThat(similarFilmIndex.similar(a, 1)).containsExactly(b);
+        assertThat(similarFilmIndex.similar(d, 10)).containsExactly(c);
+
+        like(third, a);
+        likeIndex.onLikeAdded(a, third);
+        assertThat(similarFilmIndex.backlog()).isEqualTo(3);
+        similarFilmIndex.refresh();
+
+        // B и C: 2 / sqrt(3 · 2), равенство решает id; D: 1 / sqrt(3 · 1)
+        assertThat(similarFilmIndex.backlog()).isZero();
+        assertThat(similarFilmIndex.similar(a, 10)).containsExactly(b, c, d);
+        assertThat(similarFilmIndex.similar(d, 10)).containsExactly(c, a);
+
+        likeIndex.onFilmDeleted(c);
+        similarFilmIndex.refresh();
+        assertThat(similarFilmIndex.similar(c, 10)).isEmpty();
+        assertThat(similarFilmIndex.similar(d, 10)).containsExactly(a);
+    }
+
+    @Test
+    void onLikeAdded_shouldMarkOnlyLeastLikedFilmsOfUser() {
+        int a = film("A");
+        int b = film("B");
+        int c = film("C");
+        int d = film("D");
+        int first = user("first");
+        int second = user("second");
+        int third = user("third");
+        like(first, a, b, c);
+        like(second, b, c);
+        like(third, c);
+        likeIndex.rebuild();
+        similarFilmIndex.refresh();
+
+        // у first четыре фильма, но помечаются лишь два наименее лайкнутых: A и сам D
+        like(first, d);
+        likeIndex.onLikeAdded(d, first);
+        assertThat(similarFilmIndex.backlog()).isEqualTo(2);
+
+        similarFilmIndex.refresh();
+        assertThat(similarFilmIndex.similar(d, 10)).containsExactly(a, b, c);
+    }
+
+    private int user(String login) {
+        jdbcTemplate.update("INSERT INTO users (email, login, birthday) VALUES (?, ?, DATE '1990-01-01')",
+                login + "@mail.ru", login);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, login);
+    }
+
+    private int film(String name) {
+        jdbcTemplate.update("INSERT INTO films (name, release_date, duration) VALUES (?, DATE '2000-01-01', 100)",
+                name);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM films", Integer.class);
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({LikeIndex.class, LikeDbStorage.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class LikeIndexTest {
+
+    private final LikeIndex likeIndex;
+    private final LikeDbStorage likeStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void contains_shouldReflectAddedAndRemovedLikes() {
+        likeIndex.onLikeAdded(1001, 2001);
+        likeIndex.onLikeAdded(1002, 2001);
+
+        assertThat(likeIndex.contains(1001, 2001)).isTrue();
+        assertThat(likeIndex.contains(1001, 2002)).isFalse();
+
+        likeIndex.onLikeRemoved(1001, 2001);
+        assertThat(likeIndex.contains(1001, 2001)).isFalse();
+        assertThat(likeIndex.contains(1002, 2001)).isTrue();
+        assertThat(likeIndex.likeCount(1001)).isZero();
+    }
+
+    @Test
+    void commonFilmIds_shouldReturnFilmsLikedByBothInAscendingOrder() {
+        for (int filmId : new int[]{1105, 1101, 1103, 1104}) {
+            likeIndex.onLikeAdded(filmId, 2101);
+        }
+        for (int filmId : new int[]{1104, 1102, 1101, 1105}) {
+            likeIndex.onLikeAdded(filmId, 2102);
+        }
+
+        assertThat(likeIndex.commonFilmIds(2101, 2102)).containsExactly(1101, 1104, 1105);
+        assertThat(likeIndex.commonFilmIds(2101, 2199)).isEmpty();
+
+        likeIndex.onUserDeleted(2102);
+        assertThat(likeIndex.commonFilmIds(2101, 2102)).isEmpty();
+    }
+
+    @Test
+    void onFilmLikesReplaced_shouldApplyDifferenceAndNotifyOnlyChangedLikes() {
+        likeIndex.onLikeAdded(1201, 2201);
+        likeIndex.onLikeAdded(1201, 2202);
+        List<String> changes = new ArrayList<>();
+        likeIndex.addListener(new LikeIndexListener() {
+            @Override
+            public void onLikeAdded(int filmId, int userId) {
+                changes.add("+" + filmId + ":" + userId);
+            }
+
+            @Override
+            public void onLikeRemoved(int filmId, int userId) {
+                changes.add("-" + filmId + ":" + userId);
+            }
+        });
+
+        likeIndex.onFilmLikesReplaced(1201, Set.of(2202, 2203));
+
+        assertThat(likeIndex.likesOf(1201)).containsExactlyInAnyOrder(2202, 2203);
+        assertThat(likeIndex.likedFilmIds(2201)).isEmpty();
+        assertThat(likeIndex.likedFilmIds(2203)).containsExactly(1201);
+        assertThat(changes).containsExactly("-1201:2201", "+1201:2203");
+
+        likeIndex.onFilmLikesReplaced(1201, Set.of());
+        assertThat(likeIndex.likeCount(1201)).isZero();
+        assertThat(likeIndex.contains(1201, 2202)).isFalse();
+    }
+
+    @Test
+    void addLike_shouldReachIndexOnlyAfterCommit() {
+        int filmId = jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE (INSERT INTO films (name, " +
+                "release_date, duration) VALUES ('Uncommitted', DATE '2000-01-01', 100))", Integer.class);
+        int userId = jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE (INSERT INTO users (email, login, " +
+                "birthday) VALUES ('uncommitted@mail.ru', 'uncommitted', DATE '1990-01-01'))", Integer.class);
+
+        likeStorage.addLike(filmId, userId);
+        assertThat(likeIndex.contains(filmId, userId)).isFalse();
+
+        // откат тестовой транзакции не должен оставить в индексе лайк, которого нет в базе
+        TestTransaction.end();
+        assertThat(likeIndex.contains(filmId, userId)).isFalse();
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.director.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmHydrator;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.ValidationUtils;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.capacity=3",
+        // сброс по расписанию шёл бы вне тестовой транзакции, поэтому тесты вызывают flush сами
+        "filmorate.likes.write-behind.flush-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+@Import({WriteBehindLikeStorage.class, LikeDbStorage.class, FilmDbStorage.class, FilmHydrator.class,
+        PopularityIndex.class, FilmSearchIndex.class, DirectorDbStorage.class, ReferenceDataCache.class,
+        UserDbStorage.class, FriendGraph.class, LikeIndex.class, ValidationUtils.class, EntityIdRegistry.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class WriteBehindLikeStorageTest {
+
+    private final WriteBehindLikeStorage likeStorage;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void queuedLikes_shouldBeVisibleBeforeFlushAndPersistedAfter() {
+        Film film = filmStorage.add(createFilm("Queued"));
+        User u1 = userStorage.add(createUser("wb1@mail.ru", "wb1"));
+        User u2 = userStorage.add(createUser("wb2@mail.ru", "wb2"));
+
+        likeStorage.addLike(film.getId(), u1.getId());
+        likeStorage.addLike(film.getId(), u2.getId());
+        likeStorage.removeLike(film.getId(), u2.getId());
+
+        assertThat(likeStorage.queueSize()).isEqualTo(2);
+        assertThat(likeStorage.isLikeExists(film.getId(), u1.getId())).isTrue();
+        assertThat(likeStorage.isLikeExists(film.getId(), u2.getId())).isFalse();
+        assertThat(filmStorage.findById(film.getId()).getLikes()).containsExactly(u1.getId());
+        assertThat(storedLikes(film.getId())).isZero();
+
+        likeStorage.flush();
+
+        assertThat(likeStorage.queueSize()).isZero();
+        assertThat(storedLikes(film.getId())).isEqualTo(1);
+        assertThat(likeCount(film.getId())).isEqualTo(1);
+        assertThat(likeStorage.getLikes(film.getId())).containsExactly(u1.getId());
+    }
+
+    @Test
+    void fullQueue_shouldBeFlushedByWriter() {
+        Film film = filmStorage.add(createFilm("Backpressure"));
+        for (int i = 0; i < 4; i++) {
+            User user = userStorage.add(createUser("bp" + i + "@mail.ru", "bp" + i));
+            likeStorage.addLike(film.getId(), user.getId());
+        }
+
+        assertThat(likeStorage.queueSize()).isEqualTo(1);
+        assertThat(storedLikes(film.getId())).isEqualTo(3);
+        assertThat(likeStorage.getLikes(film.getId())).hasSize(4);
+
+        likeStorage.drain();
+        assertThat(storedLikes(film.getId())).isEqualTo(4);
+    }
+
+    @Test
+    void flush_shouldDropOnlyLikesViolatingConstraintsAndKeepCountExact() {
+        Film film = filmStorage.add(createFilm("Constraints"));
+        User kept = userStorage.add(createUser("keep@mail.ru", "keep"));
+        User deleted = userStorage.add(createUser("gone@mail.ru", "gone"));
+
+        likeStorage.addLike(film.getId(), kept.getId());
+        likeStorage.addLike(film.getId(), deleted.getId());
+        userStorage.deleteById(deleted.getId());
+        likeStorage.flush();
+
+        assertThat(likeStorage.queueSize()).isZero();
+        assertThat(likeStorage.getLikes(film.getId())).containsExactly(kept.getId());
+        assertThat(likeCount(film.getId())).isEqualTo(1);
+        assertThat(filmStorage.findById(film.getId()).getLikes()).containsExactly(kept.getId());
+
+        // повтор уже записанного лайка не сдвигает счётчик
+        likeStorage.addLike(film.getId(), kept.getId());
+        likeStorage.flush();
+        assertThat(likeCount(film.getId())).isEqualTo(1);
+
+        likeStorage.removeLike(film.getId(), kept.getId());
+        likeStorage.flush();
+        assertThat(likeCount(film.getId())).isZero();
+    }
+
+    private int storedLikes(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private int likeCount(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+
+    private static User createUser(String email, String login) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private static Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Desc");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+}
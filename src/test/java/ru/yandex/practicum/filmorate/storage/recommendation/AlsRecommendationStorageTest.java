@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import(LikeIndex.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class AlsRecommendationStorageTest {
+
+    private final LikeIndex likeIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void findRecommendedFilmIds_shouldRecommendFilmsOfOwnTasteGroupAndSurviveRestart()
+            throws InterruptedException, IOException {
+        // две группы по 10 пользователей, у каждой свои 6 фильмов; каждый лайкает 5 из 6.
+        // Два фактора и сильная регуляризация: на таких данных модель не должна запоминать шум
+        List<Integer> films = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            jdbcTemplate.update("INSERT INTO films (name, release_date, duration) VALUES (?, DATE '2000-01-01', 100)",
+                    "Film " + i);
+            films.add(jdbcTemplate.queryForObject("SELECT MAX(id) FROM films", Integer.class));
+        }
+        List<Integer> users = new ArrayList<>();
+        for (int u = 0; u < 20; u++) {
+            jdbcTemplate.update("INSERT INTO users (email, login, birthday) VALUES (?, ?, DATE '1990-01-01')",
+                    "als" + u + "@mail.ru", "als" + u);
+            int userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, "als" + u);
+            users.add(userId);
+            int group = u < 10 ? 0 : 6;
+            for (int f = 0; f < 6; f++) {
+                if (f != u % 6) {
+                    jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)",
+                            films.get(group + f), userId);
+                }
+            }
+        }
+        likeIndex.rebuild();
+        Path modelPath = tempDir.resolve("als-model.bin");
+        AlsRecommendationStorage trained = storage(modelPath, 2);
+        trained.load();
+        awaitModel(trained, 2);
+
+        // пользователь 0 не лайкал фильм 0 своей группы: он и должен быть первым
+        List<Integer> recommended = trained.findRecommendedFilmIds(users.get(0));
+        assertThat(recommended).first().isEqualTo(films.get(0));
+        assertThat(recommended).doesNotContainAnyElementsOf(films.subList(1, 6));
+        assertThat(trained.findSimilarFilmIds(films.get(7), 4).orElseThrow())
+                .allMatch(filmId -> films.indexOf(filmId) >= 6);
+        assertThat(trained.findSimilarFilmIds(-1, 4)).isEmpty();
+        assertThat(trained.findRecommendedFilmIds(-1)).isEmpty();
+        trained.shutdown();
+
+        AlsRecommendationStorage restarted = storage(modelPath, 2);
+        restarted.load();
+        assertThat(restarted.servedFactors()).isEqualTo(2);
+        assertThat(restarted.findRecommendedFilmIds(users.get(0))).isEqualTo(recommended);
+        restarted.shutdown();
+
+        // модель в файле обучена с другим числом факторов: до переобучения работает сосед из LikeIndex,
+        // и у него, и у модели фильм 4 среди рекомендаций пользователю 4 (пары с теми же лайками у него нет)
+        AlsRecommendationStorage resized = storage(modelPath, 3);
+        resized.load();
+        assertThat(resized.findRecommendedFilmIds(users.get(4))).contains(films.get(4));
+        awaitModel(resized, 3);
+        assertThat(resized.findMostSimilarUserId(users.get(0)).orElseThrow()).isIn(users.subList(1, 10));
+        resized.shutdown();
+
+        // лайки изменились после сохранения модели (например, база пересоздана): файл не подходит,
+        // модель обучается заново уже на новых лайках
+        jdbcTemplate.update("DELETE FROM film_likes WHERE user_id = ?", users.get(19));
+        likeIndex.rebuild();
+        long fingerprint = likeIndex.read(likeIndex::fingerprint);
+        assertThat(AlsModel.read(modelPath).fingerprint()).isNotEqualTo(fingerprint);
+        AlsRecommendationStorage reset = storage(modelPath, 3);
+        reset.load();
+        // модель сохраняется в файл до того, как начинает обслуживать запросы
+        awaitModel(reset, 3);
+        assertThat(AlsModel.read(modelPath).fingerprint()).isEqualTo(fingerprint);
+        assertThat(reset.findRecommendedFilmIds(users.get(19))).isEmpty();
+        reset.shutdown();
+    }
+
+    private AlsRecommendationStorage storage(Path modelPath, int factors) {
+        return new AlsRecommendationStorage(likeIndex, factors, 15, 1, 40, modelPath, 3, 8, 50, 16, 2);
+    }
+
+    private static void awaitModel(AlsRecommendationStorage storage, int factors) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (storage.servedFactors() != factors && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(storage.servedFactors()).isEqualTo(factors);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({BitsetRecommendationStorage.class, LikeIndex.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BitsetRecommendationStorageTest {
+
+    private final BitsetRecommendationStorage recommendationStorage;
+    private final LikeIndex likeIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> userIds = new ArrayList<>();
+    private final List<Integer> filmIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 30; i++) {
+            jdbcTemplate.update("INSERT INTO users (email, login, birthday) VALUES (?, ?, DATE '1990-01-01')",
+                    "rec" + i + "@mail.ru", "rec" + i);
+            jdbcTemplate.update("INSERT INTO films (name, release_date, duration) VALUES (?, DATE '2000-01-01', 100)",
+                    "Film " + i);
+        }
+        userIds.addAll(jdbcTemplate.queryForList("SELECT id FROM users WHERE login LIKE 'rec%' ORDER BY id",
+                Integer.class));
+        filmIds.addAll(jdbcTemplate.queryForList("SELECT id FROM films WHERE name LIKE 'Film %' ORDER BY id",
+                Integer.class));
+    }
+
+    @Test
+    void findRecommendedFilmIds_shouldMatchSqlEngine() {
+        Random random = new Random(42);
+        for (int userId : userIds) {
+            for (int filmId : filmIds) {
+                if (random.nextInt(4) == 0) {
+                    jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+                }
+            }
+        }
+        likeIndex.rebuild();
+        RecommendationStorage sqlEngine = new RecommendationDbStorage(jdbcTemplate);
+
+        for (int userId : userIds) {
+            assertThat(recommendationStorage.findMostSimilarUserId(userId))
+                    .isEqualTo(sqlEngine.findMostSimilarUserId(userId));
+            assertThat(recommendationStorage.findRecommendedFilmIds(userId))
+                    .isEqualTo(sqlEngine.findRecommendedFilmIds(userId));
+        }
+    }
+
+    @Test
+    void findRecommendedFilmIds_shouldRankFilmsOfSeveralNeighbours() {
+        int me = userIds.get(0);
+        like(me, 0, 1, 2, 3);
+        like(userIds.get(1), 0, 1, 2, 10);
+        like(userIds.get(2), 0, 1, 10, 11);
+        like(userIds.get(3), 3, 12);
+        like(userIds.get(4), 20);
+        likeIndex.rebuild();
+        BitsetRecommendationStorage knn = new BitsetRecommendationStorage(likeIndex, 3, "overlap");
+
+        assertThat(knn.findRecommendedFilmIds(me))
+                .containsExactly(filmIds.get(10), filmIds.get(11), filmIds.get(12));
+
+        likeIndex.onLikeRemoved(filmIds.get(10), userIds.get(1));
+        likeIndex.onLikeRemoved(filmIds.get(10), userIds.get(2));
+        assertThat(knn.findRecommendedFilmIds(me)).containsExactly(filmIds.get(11), filmIds.get(12));
+    }
+
+    private void like(int userId, int... films) {
+        for (int film : films) {
+            jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmIds.get(film), userId);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+    private static final int SIZE = 2000;
+
+    @Test
+    void search_shouldFindMostOfExactTopByDotProduct() {
+        Random random = new Random(1);
+        float[] vectors = new float[SIZE * DIMENSION];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = (float) random.nextGaussian();
+        }
+        HnswIndex index = HnswIndex.build(vectors, DIMENSION, 16, 100, 7);
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = new float[DIMENSION];
+            for (int i = 0; i < DIMENSION; i++) {
+                query[i] = (float) random.nextGaussian();
+            }
+            Set<Integer> exact = IntStream.range(0, SIZE).boxed()
+                    .sorted(Comparator.comparingDouble((Integer node) -> index.dot(query, node)).reversed())
+                    .limit(10)
+                    .collect(Collectors.toSet());
+            found += (int) Arrays.stream(index.search(query, 10, 64)).filter(exact::contains).count();
+        }
+
+        assertThat((double) found / (queries * 10)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void search_shouldReturnNothingForEmptyIndex() {
+        HnswIndex index = HnswIndex.build(new float[0], DIMENSION, 16, 100, 7);
+
+        assertThat(index.search(new float[DIMENSION], 10, 64)).isEmpty();
+    }
+}
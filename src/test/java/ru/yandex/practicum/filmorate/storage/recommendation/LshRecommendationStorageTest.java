@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import(LikeIndex.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class LshRecommendationStorageTest {
+
+    private final LikeIndex likeIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> userIds = new ArrayList<>();
+    private final List<Integer> filmIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.update("INSERT INTO users (email, login, birthday) VALUES (?, ?, DATE '1990-01-01')",
+                    "lsh" + i + "@mail.ru", "lsh" + i);
+        }
+        for (int i = 0; i < 40; i++) {
+            jdbcTemplate.update("INSERT INTO films (name, release_date, duration) VALUES (?, DATE '2000-01-01', 100)",
+                    "Film " + i);
+        }
+        userIds.addAll(jdbcTemplate.queryForList("SELECT id FROM users WHERE login LIKE 'lsh%' ORDER BY id",
+                Integer.class));
+        filmIds.addAll(jdbcTemplate.queryForList("SELECT id FROM films WHERE name LIKE 'Film %' ORDER BY id",
+                Integer.class));
+    }
+
+    @Test
+    void findRecommendedFilmIds_shouldFindUserWithNearlySameLikes() {
+        int me = userIds.get(0);
+        int twin = userIds.get(1);
+        like(me, 0, 1, 2, 3, 4, 5, 6, 7);
+        like(twin, 0, 1, 2, 3, 4, 5, 6, 7, 8);
+        like(userIds.get(2), 20, 21, 22);
+        likeIndex.rebuild();
+        LshRecommendationStorage lsh = lsh();
+
+        assertThat(lsh.findMostSimilarUserId(me)).contains(twin);
+        assertThat(lsh.findRecommendedFilmIds(me)).containsExactly(filmIds.get(8));
+        assertThat(lsh.findMostSimilarUserId(userIds.get(3))).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void likeEvents_shouldKeepSignaturesSameAsRebuilt() {
+        for (int u = 0; u < userIds.size(); u++) {
+            like(userIds.get(u), u, u + 1, u + 2, u + 3, 30);
+        }
+        likeIndex.rebuild();
+        LshRecommendationStorage incremental = lsh();
+
+        // лайки и их снятие идут в обход базы: проверяется только LshRecommendationStorage
+        likeIndex.onLikeAdded(filmIds.get(35), userIds.get(0));
+        likeIndex.onLikeAdded(filmIds.get(35), userIds.get(5));
+        likeIndex.onLikeRemoved(filmIds.get(30), userIds.get(1));
+        likeIndex.onLikeRemoved(filmIds.get(1), userIds.get(1));
+        likeIndex.onUserDeleted(userIds.get(9));
+        likeIndex.onFilmDeleted(filmIds.get(5));
+        LshRecommendationStorage rebuilt = lsh();
+
+        for (int userId : userIds) {
+            assertThat(incremental.findNeighbourIds(userId)).isEqualTo(rebuilt.findNeighbourIds(userId));
+        }
+        assertThat(incremental.findNeighbourIds(userIds.get(0))).containsExactly(userIds.get(2));
+        assertThat(incremental.findNeighbourIds(userIds.get(9))).isEmpty();
+    }
+
+    private LshRecommendationStorage lsh() {
+        LshRecommendationStorage lsh = new LshRecommendationStorage(likeIndex, 64, 3, 1, "overlap");
+        lsh.init();
+        return lsh;
+    }
+
+    private void like(int userId, int... films) {
+        for (int film : films) {
+            jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmIds.get(film), userId);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.like.LikeIndex;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest(properties = {
+        // фоновый пересчёт шёл бы вне тестовой транзакции, поэтому тест вызывает refresh сам
+        "filmorate.recommendations.materialized.refresh-interval-ms=3600000",
+        "filmorate.recommendations.materialized.max-staleness-ms=3600000"
+})
+@AutoConfigureTestDatabase
+@Import({RecommendationMaterializer.class, BitsetRecommendationStorage.class, LikeIndex.class,
+        SimpleMeterRegistry.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class RecommendationMaterializerTest {
+
+    private final RecommendationMaterializer materializer;
+    private final LikeIndex likeIndex;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void likes_shouldMarkAffectedUsersAndRefreshStoredRecommendations() {
+        int me = user("me");
+        int neighbour = user("neighbour");
+        int stranger = user("stranger");
+        int shared = film("Shared");
+        int recommended = film("Recommended");
+        int later = film("Later");
+        like(shared, me);
+        like(shared, neighbour);
+        like(recommended, neighbour);
+        likeIndex.rebuild();
+
+        assertThat(materializer.getRecommendedFilmIds(me)).containsExactly(recommended);
+        assertThat(storedCount(me)).isEqualTo(1);
+
+        // сосед лайкнул ещё фильм: мои рекомендации устарели, но в пределах допустимой задержки
+        like(later, neighbour);
+        likeIndex.onLikeAdded(later, neighbour);
+        materializer.onLikeChanged(later, neighbour);
+        assertThat(materializer.backlog()).isEqualTo(2);
+        assertThat(meterRegistry.get("filmorate.recommendations.backlog").gauge().value()).isEqualTo(2);
+        assertThat(materializer.getRecommendedFilmIds(me)).containsExactly(recommended);
+
+        materializer.refresh();
+
+        assertThat(materializer.backlog()).isZero();
+        assertThat(materializer.getRecommendedFilmIds(me)).containsExactly(recommended, later);
+        assertThat(materializer.getRecommendedFilmIds(stranger)).isEqualTo(List.of());
+
+        // остальные лайкнувшие фильм не помечаются: очередь не растёт с популярностью фильма
+        jdbcTemplate.update("DELETE FROM user_recommendations");
+        like(shared, stranger);
+        likeIndex.onLikeAdded(shared, stranger);
+        materializer.onLikeChanged(shared, stranger);
+        assertThat(materializer.backlog()).isEqualTo(1);
+
+        materializer.refresh();
+
+        assertThat(materializer.backlog()).isZero();
+        assertThat(storedCount(stranger)).isEqualTo(1);
+        assertThat(storedCount(me)).isZero();
+        assertThat(storedCount(neighbour)).isZero();
+    }
+
+    private int storedCount(int userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_recommendations WHERE user_id = ?",
+                Integer.class, userId);
+    }
+
+    private int user(String login) {
+        jdbcTemplate.update("INSERT INTO users (email, login, birthday) VALUES (?, ?, DATE '1990-01-01')",
+                login + "@mail.ru", login);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, login);
+    }
+
+    private int film(String name) {
+        jdbcTemplate.update("INSERT INTO films (name, release_date, duration) VALUES (?, DATE '2000-01-01', 100)",
+                name);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM films", Integer.class);
+    }
+
+    private void like(int filmId, int userId) {
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewSummary;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry.Kind;
+import ru.yandex.practicum.filmorate.validation.ValidationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest(properties = {
+        "filmorate.reviews.useful-buffer.enabled=true",
+        "filmorate.reviews.useful-buffer.hot-threshold=2",
+        // фоновый сброс шёл бы вне тестовой транзакции, поэтому тест вызывает flush сам
+        "filmorate.reviews.useful-buffer.flush-interval-ms=3600000",
+        "filmorate.reviews.useful-reconcile-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+@Import({ReviewDbStorage.class, ReviewUsefulBuffer.class, ReviewUsefulReconciler.class, FilmReviewStats.class,
+        ValidationUtils.class, EntityIdRegistry.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ReviewDbStorageTest {
+
+    private final ReviewDbStorage reviewStorage;
+    private final ReviewUsefulBuffer usefulBuffer;
+    private final ReviewUsefulReconciler reconciler;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityIdRegistry idRegistry;
+
+    private final List<Integer> userIds = new ArrayList<>();
+    private int filmId;
+
+    @BeforeEach
+    void setUp() {
+        // строки вставляются напрямую, поэтому реестр id пополняется вручную, как это сделало бы хранилище
+        for (int i = 0; i < 5; i++) {
+            int userId = jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE (INSERT INTO users " +
+                    "(email, login, birthday) VALUES (?, ?, DATE '1990-01-01'))", Integer.class,
+                    "voter" + i + "@mail.ru", "voter" + i);
+            idRegistry.add(Kind.USER, userId);
+            userIds.add(userId);
+        }
+        filmId = jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE (INSERT INTO films " +
+                "(name, release_date, duration) VALUES ('Reviewed', DATE '2000-01-01', 100))", Integer.class);
+        idRegistry.add(Kind.FILM, filmId);
+    }
+
+    @Test
+    void votes_shouldAdjustUsefulByDifferenceWithPreviousVote() {
+        int reviewId = review();
+        reviewStorage.addLike(reviewId, userIds.get(0));
+        assertThat(storedUseful(reviewId)).isEqualTo(1);
+
+        // смена лайка на дизлайк — минус два, повтор того же голоса ничего не меняет
+        reviewStorage.addDislike(reviewId, userIds.get(0));
+        assertThat(storedUseful(reviewId)).isEqualTo(-1);
+        reviewStorage.addDislike(reviewId, userIds.get(0));
+        assertThat(storedUseful(reviewId)).isEqualTo(-1);
+
+        // дальше отзыв горячий: изменения уходят в накопитель, но только после фиксации транзакции
+        // голоса, а тестовая транзакция не фиксируется (накопление проверяет ReviewUsefulBufferTest)
+        reviewStorage.addLike(reviewId, userIds.get(1));
+        assertThat(storedUseful(reviewId)).isEqualTo(-1);
+        assertThat(reviewStorage.findById(reviewId).getUseful()).isEqualTo(-1);
+        assertThat(usefulBuffer.pending(reviewId)).isZero();
+    }
+
+    @Test
+    void reconcile_shouldRepairUsefulChangedBehindStorage() {
+        int reviewId = review();
+        reviewStorage.addLike(reviewId, userIds.get(0));
+        jdbcTemplate.update("UPDATE reviews SET useful = 42 WHERE id = ?", reviewId);
+
+        assertThat(reconciler.reconcile()).isEqualTo(1);
+        assertThat(storedUseful(reviewId)).isEqualTo(1);
+        assertThat(reconciler.reconcile()).isZero();
+    }
+
+    @Test
+    void findByFilmId_shouldWalkAllReviewsPageByPageInStableOrder() {
+        int[] useful = {3, -1, 3, 0, 5, 0, 3};
+        List<Integer> reviewIds = new ArrayList<>();
+        for (int value : useful) {
+            int reviewId = review();
+            jdbcTemplate.update("UPDATE reviews SET useful = ? WHERE id = ?", value, reviewId);
+            reviewIds.add(reviewId);
+        }
+        List<Integer> expected = List.of(reviewIds.get(4), reviewIds.get(0), reviewIds.get(2), reviewIds.get(6),
+                reviewIds.get(3), reviewIds.get(5), reviewIds.get(1));
+
+        List<Integer> walked = new ArrayList<>();
+        ReviewCursor cursor = null;
+        List<Review> page;
+        do {
+            page = reviewStorage.findByFilmId(filmId, cursor, 3);
+            page.forEach(review -> walked.add(review.getReviewId()));
+            cursor = page.isEmpty() ? null : ReviewCursor.decode(ReviewCursor.after(page.getLast()).encode());
+        } while (page.size() == 3);
+
+        assertThat(walked).isEqualTo(expected);
+        assertThat(reviewStorage.findAll(null, 10)).extracting(Review::getReviewId).isEqualTo(expected);
+        assertThat(reviewStorage.findAll(new ReviewCursor(3, reviewIds.get(2)), 2))
+                .extracting(Review::getReviewId)
+                .containsExactly(reviewIds.get(6), reviewIds.get(3));
+    }
+
+    @Test
+    void reviewChanges_shouldKeepFilmSummaryInSync() {
+        int first = review();
+        int second = review();
+        int third = review();
+        reviewStorage.addLike(second, userIds.get(0));
+        reviewStorage.addDislike(first, userIds.get(0));
+
+        Review changed = reviewStorage.findById(third);
+        changed.setIsPositive(false);
+        reviewStorage.update(changed);
+
+        assertSummary(2, 1, 0, second);
+
+        reviewStorage.delete(second);
+        assertSummary(1, 1, -1, third);
+
+        // рассинхронизация за спиной хранилища исправляется сверкой
+        jdbcTemplate.update("UPDATE film_review_stats SET positive_count = 7, total_useful = 5");
+        assertThat(reconciler.reconcile()).isEqualTo(1);
+        assertSummary(1, 1, -1, third);
+    }
+
+    private void assertSummary(int positive, int negative, int useful, int topReviewId) {
+        ReviewSummary summary = reviewStorage.findSummary(filmId);
+        assertThat(summary.getPositiveCount()).isEqualTo(positive);
+        assertThat(summary.getNegativeCount()).isEqualTo(negative);
+        assertThat(summary.getTotalUseful()).isEqualTo(useful);
+        assertThat(summary.getTopReviewId()).isEqualTo(topReviewId);
+    }
+
+    private int review() {
+        Review review = new Review();
+        review.setContent("Отзыв");
+        review.setIsPositive(true);
+        review.setUserId(userIds.get(4));
+        review.setFilmId(filmId);
+        return reviewStorage.add(review).getReviewId();
+    }
+
+    private int storedUseful(int reviewId) {
+        return jdbcTemplate.queryForObject("SELECT useful FROM reviews WHERE id = ?", Integer.class, reviewId);
+    }
+}
@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry.Kind;
+import ru.yandex.practicum.filmorate.validation.ValidationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Голос попадает в накопитель только после фиксации своей транзакции, поэтому тесты работают
+// без общей транзакции и удаляют свои строки сами
+@JdbcTest(properties = {
+        "filmorate.reviews.useful-buffer.enabled=true",
+        "filmorate.reviews.useful-buffer.hot-threshold=2",
+        "filmorate.reviews.useful-buffer.flush-interval-ms=3600000",
+        "filmorate.reviews.useful-reconcile-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+@Import({ReviewDbStorage.class, ReviewUsefulBuffer.class, ReviewUsefulReconciler.class, FilmReviewStats.class,
+        ValidationUtils.class, EntityIdRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ReviewUsefulBufferTest {
+
+    private final ReviewDbStorage reviewStorage;
+    private final ReviewUsefulBuffer usefulBuffer;
+    private final ReviewUsefulReconciler reconciler;
+    private final FilmReviewStats reviewStats;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityIdRegistry idRegistry;
+
+    private final List<Integer> userIds = new ArrayList<>();
+    private final List<Integer> reviewIds = new ArrayList<>();
+    private int filmId;
+    private int reviewId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 4; i++) {
+            String login = "buffer" + i + "-" + System.nanoTime();
+            int userId = jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE (INSERT INTO users " +
+                    "(email, login, birthday) VALUES (?, ?, DATE '1990-01-01'))", Integer.class,
+                    login + "@mail.ru", login);
+            idRegistry.add(Kind.USER, userId);
+            userIds.add(userId);
+        }
+        filmId = jdbcTemplate.queryForObject("SELECT id FROM FINAL TABLE (INSERT INTO films " +
+                "(name, release_date, duration) VALUES ('Buffered', DATE '2000-01-01', 100))", Integer.class);
+        idRegistry.add(Kind.FILM, filmId);
+
+        reviewId = review(userIds.get(3));
+        // два голоса записываются сразу, следующие идут в накопитель
+        reviewStorage.addLike(reviewId, userIds.get(0));
+        reviewStorage.addLike(reviewId, userIds.get(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewIds.forEach(usefulBuffer::discard);
+        // отзывы, голоса и сводка удаляются каскадно
+        jdbcTemplate.update("DELETE FROM films WHERE id = ?", filmId);
+        idRegistry.remove(Kind.FILM, filmId);
+        idRegistry.removeAll(Kind.REVIEW, reviewIds);
+        for (int userId : userIds) {
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+            idRegistry.remove(Kind.USER, userId);
+        }
+    }
+
+    @Test
+    void offer_shouldBufferCommittedVoteUntilFlush() {
+        reviewStorage.addLike(reviewId, userIds.get(2));
+
+        assertThat(storedUseful()).isEqualTo(2);
+        assertThat(usefulBuffer.pending(reviewId)).isEqualTo(1);
+        assertThat(reviewStorage.findById(reviewId).getUseful()).isEqualTo(3);
+
+        assertThat(usefulBuffer.flush()).isEqualTo(1);
+        assertThat(storedUseful()).isEqualTo(3);
+        assertThat(usefulBuffer.pending(reviewId)).isZero();
+        assertThat(reviewStats.find(filmId).getTotalUseful()).isEqualTo(3);
+    }
+
+    @Test
+    void flush_shouldAddDeltasOfReviewsOfOneFilmToItsSummary() {
+        int otherId = review(userIds.get(2));
+        reviewStorage.addLike(reviewId, userIds.get(2));
+        reviewStorage.addDislike(otherId, userIds.get(0));
+        reviewStorage.addDislike(otherId, userIds.get(1));
+        reviewStorage.addDislike(otherId, userIds.get(3));
+
+        assertThat(usefulBuffer.flush()).isEqualTo(2);
+        assertThat(storedUseful()).isEqualTo(3);
+        assertThat(reviewStats.find(filmId).getTotalUseful()).isZero();
+        assertThat(reviewStats.find(filmId).getTopReviewId()).isEqualTo(reviewId);
+        assertThat(reconciler.reconcile()).isZero();
+    }
+
+    @Test
+    void offer_shouldDropVoteOfRolledBackTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            reviewStorage.addLike(reviewId, userIds.get(2));
+            status.setRollbackOnly();
+        });
+
+        assertThat(usefulBuffer.pending(reviewId)).isZero();
+        assertThat(usefulBuffer.flush()).isZero();
+        assertThat(storedUseful()).isEqualTo(2);
+    }
+
+    @Test
+    void flush_shouldKeepDeltaWhenWriteFails() {
+        reviewStorage.addLike(reviewId, userIds.get(2));
+        jdbcTemplate.execute("ALTER TABLE reviews ADD CONSTRAINT useful_limit CHECK (useful < 3)");
+        try {
+            assertThat(usefulBuffer.flush()).isZero();
+            assertThat(usefulBuffer.pending(reviewId)).isEqualTo(1);
+            assertThat(storedUseful()).isEqualTo(2);
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE reviews DROP CONSTRAINT useful_limit");
+        }
+
+        assertThat(usefulBuffer.flush()).isEqualTo(1);
+        assertThat(storedUseful()).isEqualTo(3);
+    }
+
+    @Test
+    void reconcile_shouldSkipReviewWithVoteInFlightAndNotCountItTwice() throws InterruptedException {
+        CountDownLatch voted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Thread voter = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            reviewStorage.addLike(reviewId, userIds.get(2));
+            voted.countDown();
+            await(commit);
+        }));
+        voter.start();
+        assertThat(voted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // голос за горячий отзыв ещё не зафиксирован: сверка его не ждёт и отзыв пропускает
+        assertThat(reconciler.reconcile()).isZero();
+        commit.countDown();
+        voter.join();
+
+        assertThat(usefulBuffer.pending(reviewId)).isEqualTo(1);
+        // сверка сначала сбрасывает накопитель, после этого рейтинг сходится с голосами
+        assertThat(reconciler.reconcile()).isZero();
+        assertThat(storedUseful()).isEqualTo(3);
+        assertThat(usefulBuffer.pending(reviewId)).isZero();
+    }
+
+    private int review(int userId) {
+        Review review = new Review();
+        review.setContent("Отзыв");
+        review.setIsPositive(true);
+        review.setUserId(userId);
+        review.setFilmId(filmId);
+        int id = reviewStorage.add(review).getReviewId();
+        reviewIds.add(id);
+        return id;
+    }
+
+    private int storedUseful() {
+        return jdbcTemplate.queryForObject("SELECT useful FROM reviews WHERE id = ?", Integer.class, reviewId);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
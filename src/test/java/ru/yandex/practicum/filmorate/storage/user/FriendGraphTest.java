@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.FriendLink;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.ValidationUtils;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Граф меняется только после фиксации записи, поэтому тесты работают без общей транзакции
+// и удаляют своих пользователей сами
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FriendGraph.class, UserDbStorage.class, ValidationUtils.class, EntityIdRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FriendGraphTest {
+
+    private final FriendGraph friendGraph;
+    private final UserDbStorage userStorage;
+
+    @Test
+    void userStorageWrites_shouldKeepGraphInSyncWithDatabase() {
+        User alice = user("graph-alice");
+        User bob = user("graph-bob");
+        User carol = user("graph-carol");
+        User dave = user("graph-dave");
+
+        alice.setFriendLinks(links(new FriendLink(dave.getId(), FriendshipStatus.CONFIRMED),
+                new FriendLink(bob.getId(), FriendshipStatus.UNCONFIRMED),
+                new FriendLink(carol.getId(), FriendshipStatus.CONFIRMED)));
+        userStorage.update(alice);
+        bob.setFriendLinks(links(new FriendLink(carol.getId(), FriendshipStatus.UNCONFIRMED),
+                new FriendLink(dave.getId(), FriendshipStatus.CONFIRMED)));
+        userStorage.update(bob);
+
+        assertThat(friendGraph.friendIds(alice.getId())).containsExactly(bob.getId(), carol.getId(), dave.getId());
+        assertThat(friendGraph.commonFriendIds(alice.getId(), bob.getId())).containsExactly(carol.getId(), dave.getId());
+        assertThat(friendGraph.status(alice.getId(), carol.getId())).contains(FriendshipStatus.CONFIRMED);
+        assertThat(friendGraph.status(alice.getId(), bob.getId())).contains(FriendshipStatus.UNCONFIRMED);
+        assertThat(friendGraph.status(carol.getId(), alice.getId())).isEmpty();
+
+        // граф, построенный заново из базы, совпадает с обновлённым на лету
+        friendGraph.rebuild();
+        assertThat(friendGraph.friendIds(alice.getId())).containsExactly(bob.getId(), carol.getId(), dave.getId());
+        assertThat(friendGraph.friendIds(bob.getId())).containsExactly(carol.getId(), dave.getId());
+
+        // у carol своих связей нет, её убирают из списков тех, кто её добавил
+        userStorage.deleteById(carol.getId());
+        assertThat(friendGraph.friendIds(alice.getId())).containsExactly(bob.getId(), dave.getId());
+        assertThat(friendGraph.commonFriendIds(alice.getId(), bob.getId())).containsExactly(dave.getId());
+
+        bob.setFriendLinks(new HashSet<>());
+        userStorage.update(bob);
+        assertThat(friendGraph.friendIds(bob.getId())).isEmpty();
+        assertThat(friendGraph.commonFriendIds(alice.getId(), bob.getId())).isEmpty();
+
+        userStorage.deleteById(dave.getId());
+        assertThat(friendGraph.friendIds(alice.getId())).containsExactly(bob.getId());
+        userStorage.deleteById(alice.getId());
+        userStorage.deleteById(bob.getId());
+    }
+
+    @Test
+    @Transactional
+    void addFriendLink_shouldNotReachGraphWhenTransactionRollsBack() {
+        User first = user("rollback-first");
+        User second = user("rollback-second");
+
+        userStorage.addFriendLink(first.getId(), second.getId());
+        assertThat(friendGraph.friendIds(first.getId())).isEmpty();
+
+        TestTransaction.end();
+        assertThat(friendGraph.friendIds(first.getId())).isEmpty();
+    }
+
+    private User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return userStorage.add(user);
+    }
+
+    private static Set<FriendLink> links(FriendLink... links) {
+        return new HashSet<>(Set.of(links));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FriendSuggestions.class, FriendGraph.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FriendSuggestionsTest {
+
+    private final FriendSuggestions friendSuggestions;
+    private final FriendGraph friendGraph;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 40; i++) {
+            jdbcTemplate.update("INSERT INTO users (email, login, birthday) VALUES (?, ?, DATE '1990-01-01')",
+                    "fof" + i + "@mail.ru", "fof" + i);
+        }
+        userIds.addAll(jdbcTemplate.queryForList("SELECT id FROM users WHERE login LIKE 'fof%' ORDER BY id",
+                Integer.class));
+    }
+
+    @Test
+    void suggest_shouldRankNonFriendsByMutualFriends() {
+        int me = userIds.get(0);
+        friends(me, 1, 2, 3);
+        friends(userIds.get(1), 0, 4, 5);
+        friends(userIds.get(2), 4, 5, 3);
+        friends(userIds.get(3), 4, 6);
+        friendGraph.rebuild();
+
+        // 4 — общий у троих друзей, 5 — у двоих, 6 — у одного; друг 3 и сам пользователь не предлагаются
+        assertThat(friendSuggestions.suggest(me, 10))
+                .containsExactly(userIds.get(4), userIds.get(5), userIds.get(6));
+        assertThat(friendSuggestions.suggest(me, 2)).containsExactly(userIds.get(4), userIds.get(5));
+        assertThat(friendSuggestions.suggest(userIds.get(7), 10)).isEmpty();
+    }
+
+    @Test
+    void suggest_shouldGiveSameResultWhenFrontierIsSplitAcrossTasks() {
+        Random random = new Random(7);
+        for (int userId : userIds) {
+            for (int friendId : userIds) {
+                if (userId != friendId && random.nextInt(3) == 0) {
+                    link(userId, friendId);
+                }
+            }
+        }
+        friendGraph.rebuild();
+        FriendSuggestions forked = new FriendSuggestions(friendGraph, 10_000, 2, 60_000, 2);
+        forked.init();
+
+        try {
+            for (int userId : userIds) {
+                assertThat(forked.suggest(userId, 5)).isEqualTo(friendSuggestions.suggest(userId, 5));
+            }
+        } finally {
+            forked.shutdown();
+        }
+    }
+
+    @Test
+    void suggest_shouldWalkAtMostMaxFrontierFriends() {
+        int me = userIds.get(0);
+        friends(me, 1, 2, 3, 4);
+        for (int friend = 1; friend <= 4; friend++) {
+            friends(userIds.get(friend), 10 + friend);
+        }
+        friendGraph.rebuild();
+        FriendSuggestions capped = new FriendSuggestions(friendGraph, 2, 512, 60_000, 1);
+
+        assertThat(capped.suggest(me, 10)).hasSize(2);
+    }
+
+    private void friends(int userId, int... friendIndexes) {
+        for (int friendIndex : friendIndexes) {
+            link(userId, userIds.get(friendIndex));
+        }
+    }
+
+    private void link(int userId, int friendId) {
+        jdbcTemplate.update("INSERT INTO user_friends (user_id, friend_id, status) VALUES (?, ?, 'CONFIRMED')",
+                userId, friendId);
+    }
+}
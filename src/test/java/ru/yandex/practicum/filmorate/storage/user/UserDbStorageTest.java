@@ -6,11 +6,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.FriendLink;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.event.EventDbStorage;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry;
+import ru.yandex.practicum.filmorate.validation.EntityIdRegistry.Kind;
 import ru.yandex.practicum.filmorate.validation.ValidationUtils;
 
 import java.time.LocalDate;
@@ -23,12 +26,14 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
 @AutoConfigureTestDatabase
-@Import({UserDbStorage.class, EventDbStorage.class, ValidationUtils.class})
+@Import({UserDbStorage.class, FriendGraph.class, EventDbStorage.class, ValidationUtils.class, EntityIdRegistry.class})
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class UserDbStorageTest {
 
     private final UserDbStorage userStorage;
-
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityIdRegistry idRegistry;
+    private final ValidationUtils validationUtils;
 
     @Test
     void add_shouldCreateUserAndReturnWithId() {
@@ -92,6 +97,82 @@ class UserDbStorageTest {
                 .hasMessageContaining("99999");
     }
 
+    @Test
+    void update_shouldKeepFriendLinksWhenNotPassed() {
+        User user1 = userStorage.add(createUser("k1@mail.ru", "k1", "K1", LocalDate.of(2000, 1, 1)));
+        User user2 = userStorage.add(createUser("k2@mail.ru", "k2", "K2", LocalDate.of(2000, 1, 1)));
+        userStorage.addFriendLink(user1.getId(), user2.getId());
+
+        User request = createUser("k1new@mail.ru", "k1", "K1", LocalDate.of(2000, 1, 1));
+        request.setId(user1.getId());
+        userStorage.update(request);
+
+        assertThat(userStorage.findById(user1.getId()).getFriendLinks())
+                .extracting(FriendLink::getFriendId)
+                .containsExactly(user2.getId());
+    }
+
+    @Test
+    void update_shouldAddRemoveAndChangeStatusOfFriendLinks() {
+        User user1 = userStorage.add(createUser("s1@mail.ru", "s1", "S1", LocalDate.of(2000, 1, 1)));
+        User user2 = userStorage.add(createUser("s2@mail.ru", "s2", "S2", LocalDate.of(2000, 1, 1)));
+        User user3 = userStorage.add(createUser("s3@mail.ru", "s3", "S3", LocalDate.of(2000, 1, 1)));
+        User user4 = userStorage.add(createUser("s4@mail.ru", "s4", "S4", LocalDate.of(2000, 1, 1)));
+        User user5 = userStorage.add(createUser("s5@mail.ru", "s5", "S5", LocalDate.of(2000, 1, 1)));
+        userStorage.addFriendLink(user1.getId(), user2.getId());
+        userStorage.addFriendLink(user1.getId(), user3.getId());
+        userStorage.addFriendLink(user1.getId(), user5.getId());
+
+        // user2 подтверждён, user3 удалён, user4 добавлен, user5 без изменений
+        user1.setFriendLinks(new HashSet<>(Set.of(new FriendLink(user2.getId(), FriendshipStatus.CONFIRMED),
+                new FriendLink(user4.getId(), FriendshipStatus.UNCONFIRMED),
+                new FriendLink(user5.getId(), FriendshipStatus.UNCONFIRMED))));
+        userStorage.update(user1);
+
+        assertThat(status(user1.getId(), user2.getId())).isEqualTo(FriendshipStatus.CONFIRMED);
+        assertThat(status(user1.getId(), user4.getId())).isEqualTo(FriendshipStatus.UNCONFIRMED);
+        assertThat(status(user1.getId(), user5.getId())).isEqualTo(FriendshipStatus.UNCONFIRMED);
+        assertThat(userStorage.findById(user1.getId()).getFriendLinks())
+                .extracting(FriendLink::getFriendId)
+                .containsExactlyInAnyOrder(user2.getId(), user4.getId(), user5.getId());
+
+        // подтверждённая связь снова становится неподтверждённой, пустой набор удаляет все связи
+        user1.setFriendLinks(new HashSet<>(Set.of(new FriendLink(user2.getId(), FriendshipStatus.UNCONFIRMED))));
+        userStorage.update(user1);
+        assertThat(userStorage.findById(user1.getId()).getFriendLinks())
+                .extracting(FriendLink::getFriendId)
+                .containsExactly(user2.getId());
+        assertThat(status(user1.getId(), user2.getId())).isEqualTo(FriendshipStatus.UNCONFIRMED);
+
+        user1.setFriendLinks(new HashSet<>());
+        userStorage.update(user1);
+        assertThat(userStorage.findById(user1.getId()).getFriendLinks()).isEmpty();
+        assertThat(userStorage.findById(user2.getId()).getFriendLinks()).isEmpty();
+    }
+
+    @Test
+    void friendLinkOperations_shouldChangeOnlyAffectedRows() {
+        User user1 = userStorage.add(createUser("f1@mail.ru", "f1", "F1", LocalDate.of(2000, 1, 1)));
+        User user2 = userStorage.add(createUser("f2@mail.ru", "f2", "F2", LocalDate.of(2000, 1, 1)));
+        User user3 = userStorage.add(createUser("f3@mail.ru", "f3", "F3", LocalDate.of(2000, 1, 1)));
+
+        userStorage.addFriendLink(user1.getId(), user2.getId());
+        userStorage.addFriendLink(user1.getId(), user3.getId());
+        userStorage.addFriendLink(user2.getId(), user1.getId());
+        userStorage.confirmFriendLink(user2.getId(), user1.getId());
+
+        assertThat(status(user1.getId(), user2.getId())).isEqualTo(FriendshipStatus.CONFIRMED);
+        assertThat(status(user2.getId(), user1.getId())).isEqualTo(FriendshipStatus.CONFIRMED);
+        assertThat(status(user1.getId(), user3.getId())).isEqualTo(FriendshipStatus.UNCONFIRMED);
+
+        userStorage.removeFriendLink(user1.getId(), user3.getId());
+
+        assertThat(userStorage.findById(user1.getId()).getFriendLinks())
+                .extracting(FriendLink::getFriendId)
+                .containsExactly(user2.getId());
+        assertThat(status(user2.getId(), user1.getId())).isEqualTo(FriendshipStatus.CONFIRMED);
+    }
+
     @Test
     void delete_shouldRemoveUser() {
         User user = userStorage.add(createUser("del@mail.ru", "del", "Del", LocalDate.of(1995, 1, 1)));
@@ -149,6 +230,51 @@ class UserDbStorageTest {
         assertThat(all).extracting(User::getLogin).containsExactlyInAnyOrder("u1", "u2");
     }
 
+    @Test
+    void exists_shouldAnswerWithoutLoadingUsers() {
+        User user = userStorage.add(createUser("ex@mail.ru", "ex", "Ex", LocalDate.of(1990, 1, 1)));
+
+        assertThat(userStorage.exists(user.getId())).isTrue();
+        assertThat(userStorage.exists(99999)).isFalse();
+        // сообщение называет именно отсутствующий id
+        validationUtils.validateUser(user.getId());
+        assertThatThrownBy(() -> validationUtils.validateUser(99999))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("99999");
+
+        userStorage.deleteById(user.getId());
+        assertThat(userStorage.exists(user.getId())).isFalse();
+    }
+
+    @Test
+    void idRegistry_shouldFailVerificationWhenRowsChangeBehindStorage() {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES ('raw@mail.ru', 'raw', 'Raw', '1990-01-01')");
+        int id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = 'raw'", Integer.class);
+
+        // строка вставлена в обход хранилища — сверка в тестах сообщает о расхождении, а не чинит его молча
+        assertThatThrownBy(() -> userStorage.findById(id))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("USER " + id);
+
+        idRegistry.add(Kind.USER, id);
+        assertThat(userStorage.findById(id).getLogin()).isEqualTo("raw");
+
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+        assertThatThrownBy(() -> userStorage.findById(id))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("USER " + id);
+
+        idRegistry.remove(Kind.USER, id);
+        assertThatThrownBy(() -> userStorage.findById(id))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining(String.valueOf(id));
+    }
+
+    private FriendshipStatus status(int userId, int friendId) {
+        return FriendshipStatus.valueOf(jdbcTemplate.queryForObject(
+                "SELECT status FROM user_friends WHERE user_id = ? AND friend_id = ?", String.class, userId, friendId));
+    }
+
     private static User createUser(String email, String login, String name, LocalDate birthday) {
         User user = new User();
         user.setEmail(email);